@@ -46,6 +46,30 @@ public @interface Options {
 
   boolean useCache() default true;
 
+  /**
+   * Whether the results of the statement are kept in the session's local cache.
+   *
+   * @since 3.5.0
+   */
+  boolean useLocalCache() default true;
+
+  /**
+   * Whether the rows of the result are converted to objects in batches on the result mapping pool.
+   *
+   * @since 3.5.0
+   * @see org.apache.ibatis.session.Configuration#setResultMappingPool(java.util.concurrent.ForkJoinPool)
+   */
+  boolean parallelResultMapping() default false;
+
+  /**
+   * Whether a cursor of the statement reads and maps rows ahead of the consumer on a separate thread.
+   * The session must not be used for anything else until such a cursor is closed.
+   *
+   * @since 3.5.0
+   * @see org.apache.ibatis.session.Configuration#setCursorPrefetchSize(int)
+   */
+  boolean prefetchCursor() default false;
+
   FlushCachePolicy flushCache() default FlushCachePolicy.DEFAULT;
 
   ResultSetType resultSetType() default ResultSetType.FORWARD_ONLY;
@@ -20,6 +20,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.apache.ibatis.mapping.FetchType;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.UnknownTypeHandler;
@@ -46,4 +47,13 @@ public @interface Result {
   One one() default @One;
 
   Many many() default @Many;
+
+  /**
+   * Decodes the column on first access instead of when the row is mapped, see
+   * <code>fetchType</code> of the <code>result</code> element. Ignored for nested selects,
+   * use {@link One#fetchType()} or {@link Many#fetchType()} instead.
+   *
+   * @since 3.5.0
+   */
+  FetchType fetchType() default FetchType.DEFAULT;
 }
@@ -28,12 +28,14 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Clinton Begin
@@ -61,6 +63,28 @@ public class MapperMethod {
    * @return
    */
   public Object execute(SqlSession sqlSession, Object[] args) {
+    if (method.returnsFuture()) {
+      //返回CompletableFuture的方法在异步查询线程池上执行，sqlSession不是线程安全的，所以使用自己的sqlSession，
+      //调用方的sqlSession可以继续使用或者关闭
+      final Configuration configuration = sqlSession.getConfiguration();
+      return CompletableFuture.supplyAsync(() -> executeInNewSession(configuration, args),
+          configuration.getAsyncQueryPool());
+    }
+    return executeCommand(sqlSession, args);
+  }
+
+  /**
+   * 在新的sqlSession中执行，成功时提交，失败时关闭sqlSession会回滚
+   */
+  private Object executeInNewSession(Configuration configuration, Object[] args) {
+    try (SqlSession sqlSession = new DefaultSqlSessionFactory(configuration).openSession()) {
+      Object result = executeCommand(sqlSession, args);
+      sqlSession.commit();
+      return result;
+    }
+  }
+
+  private Object executeCommand(SqlSession sqlSession, Object[] args) {
     Object result;
     switch (command.getType()) {
       //insert 语句
@@ -323,6 +347,8 @@ public class MapperMethod {
     private final boolean returnsCursor;
     /**方法返回类型是否是Optional*/
     private final boolean returnsOptional;
+    /**方法返回类型是否是CompletableFuture，是的话其余属性按CompletableFuture的类型参数计算*/
+    private final boolean returnsFuture;
     /**方法返回类型*/
     private final Class<?> returnType;
     /**@MapKey 注解的值*/
@@ -343,16 +369,25 @@ public class MapperMethod {
     public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
       //获取返回类型Type
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+      this.returnsFuture = CompletableFuture.class.equals(method.getReturnType());
+      if (returnsFuture) {
+        resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+            ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+      }
       if (resolvedReturnType instanceof Class<?>) {
         this.returnType = (Class<?>) resolvedReturnType;
       } else if (resolvedReturnType instanceof ParameterizedType) {
         this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
       } else {
-        this.returnType = method.getReturnType();
+        this.returnType = returnsFuture ? Object.class : method.getReturnType();
       }
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsVoid = void.class.equals(this.returnType) || (returnsFuture && Void.class.equals(this.returnType));
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
       this.returnsCursor = Cursor.class.equals(this.returnType);
+      if (returnsFuture && returnsCursor) {
+        throw new BindingException("Mapper method '" + method.getName() + "' cannot return a CompletableFuture of a Cursor,"
+            + " the cursor would be closed with the session that runs the future");
+      }
       this.returnsOptional = Optional.class.equals(this.returnType);
       this.mapKey = getMapKey(method);
       this.returnsMap = this.mapKey != null;
@@ -397,6 +432,15 @@ public class MapperMethod {
       return returnType;
     }
 
+    /**
+     * return whether return type is {@code java.util.concurrent.CompletableFuture}
+     * @return return {@code true}, if return type is {@code java.util.concurrent.CompletableFuture}
+     * @since 3.5.0
+     */
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
+
     public boolean returnsMany() {
       return returnsMany;
     }
@@ -440,7 +484,7 @@ public class MapperMethod {
     private String getMapKey(Method method) {
       String mapKey = null;
       //若方法的返回类型是Map或者其子类
-      if (Map.class.isAssignableFrom(method.getReturnType())) {
+      if (Map.class.isAssignableFrom(returnsFuture ? this.returnType : method.getReturnType())) {
         //获取方法上@MapKey的值返回
         final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
         if (mapKeyAnnotation != null) {
@@ -311,6 +311,9 @@ public class MapperBuilderAssistant extends BaseBuilder {
    * @param databaseId
    * @param lang
    * @param resultSets
+   * @param useLocalCache 查询结果是否保存在一级缓存中
+   * @param parallelResultMapping 是否在线程池中并行转换结果行
+   * @param prefetchCursor 游标是否由单独的线程预取
    * @return
    */
   public MappedStatement addMappedStatement(
@@ -333,7 +336,10 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String keyColumn,
       String databaseId,
       LanguageDriver lang,
-      String resultSets) {
+      String resultSets,
+      boolean useLocalCache,
+      boolean parallelResultMapping,
+      boolean prefetchCursor) {
 
     if (unresolvedCacheRef) {
       throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -360,6 +366,9 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .resultSetType(resultSetType)
         .flushCacheRequired(valueOrDefault(flushCache, !isSelect))
         .useCache(valueOrDefault(useCache, isSelect))
+        .useLocalCache(useLocalCache)
+        .parallelResultMapping(parallelResultMapping)
+        .prefetchCursor(prefetchCursor)
         .cache(currentCache);
     //获取参数Map
     ParameterMap statementParameterMap = getStatementParameterMap(parameterMap, parameterType, id);
@@ -481,6 +490,31 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String resultSet,
       String foreignColumn,
       boolean lazy) {
+    return buildResultMapping(
+        resultType, property, column, javaType, jdbcType, nestedSelect, nestedResultMap, notNullColumn, columnPrefix,
+        typeHandler, flags, resultSet, foreignColumn, lazy, false);
+  }
+
+  /**
+   * 构建ResultMapping，lazyColumn表示普通列显式指定了fetchType="lazy"，对嵌套查询、嵌套结果和复合列无效
+   * @since 3.5.0
+   */
+  public ResultMapping buildResultMapping(
+      Class<?> resultType,
+      String property,
+      String column,
+      Class<?> javaType,
+      JdbcType jdbcType,
+      String nestedSelect,
+      String nestedResultMap,
+      String notNullColumn,
+      String columnPrefix,
+      Class<? extends TypeHandler<?>> typeHandler,
+      List<ResultFlag> flags,
+      String resultSet,
+      String foreignColumn,
+      boolean lazy,
+      boolean lazyColumn) {
     //在<result>标签未配置javaType的情况下，根据resultMap的返回类型推断其javaType
     Class<?> javaTypeClass = resolveResultJavaType(resultType, property, javaType);
     //获取typeHandler实例
@@ -499,6 +533,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .columnPrefix(columnPrefix)
         .foreignColumn(foreignColumn)
         .lazy(lazy)
+        .lazyColumn(lazyColumn && nestedSelect == null && nestedResultMap == null && resultSet == null && composites.isEmpty())
         .build();
   }
 
@@ -611,6 +646,96 @@ public class MapperBuilderAssistant extends BaseBuilder {
     return configuration.getLanguageRegistry().getDriver(langClass);
   }
 
+  /** Backward compatibility signature */
+  public MappedStatement addMappedStatement(
+    String id,
+    SqlSource sqlSource,
+    StatementType statementType,
+    SqlCommandType sqlCommandType,
+    Integer fetchSize,
+    Integer timeout,
+    String parameterMap,
+    Class<?> parameterType,
+    String resultMap,
+    Class<?> resultType,
+    ResultSetType resultSetType,
+    boolean flushCache,
+    boolean useCache,
+    boolean resultOrdered,
+    KeyGenerator keyGenerator,
+    String keyProperty,
+    String keyColumn,
+    String databaseId,
+    LanguageDriver lang,
+    String resultSets,
+    boolean useLocalCache,
+    boolean parallelResultMapping) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, useLocalCache, parallelResultMapping, false);
+  }
+
+  /** Backward compatibility signature */
+  public MappedStatement addMappedStatement(
+    String id,
+    SqlSource sqlSource,
+    StatementType statementType,
+    SqlCommandType sqlCommandType,
+    Integer fetchSize,
+    Integer timeout,
+    String parameterMap,
+    Class<?> parameterType,
+    String resultMap,
+    Class<?> resultType,
+    ResultSetType resultSetType,
+    boolean flushCache,
+    boolean useCache,
+    boolean resultOrdered,
+    KeyGenerator keyGenerator,
+    String keyProperty,
+    String keyColumn,
+    String databaseId,
+    LanguageDriver lang,
+    String resultSets,
+    boolean useLocalCache) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, useLocalCache, false);
+  }
+
+  /** Backward compatibility signature */
+  public MappedStatement addMappedStatement(
+    String id,
+    SqlSource sqlSource,
+    StatementType statementType,
+    SqlCommandType sqlCommandType,
+    Integer fetchSize,
+    Integer timeout,
+    String parameterMap,
+    Class<?> parameterType,
+    String resultMap,
+    Class<?> resultType,
+    ResultSetType resultSetType,
+    boolean flushCache,
+    boolean useCache,
+    boolean resultOrdered,
+    KeyGenerator keyGenerator,
+    String keyProperty,
+    String keyColumn,
+    String databaseId,
+    LanguageDriver lang,
+    String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, true);
+  }
+
   /** Backward compatibility signature */
   public MappedStatement addMappedStatement(
     String id,
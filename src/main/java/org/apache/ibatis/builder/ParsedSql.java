@@ -0,0 +1,63 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.builder.SqlSourceBuilder.ParameterPlaceholder;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+
+/**
+ * 解析后的sql，#{}已替换为?，参数占位符按出现顺序保存
+ * 与参数无关，可以被同一语句的多次执行复用
+ *
+ * @since 3.5.0
+ */
+public final class ParsedSql {
+
+  private final String sql;
+  private final List<ParameterPlaceholder> placeholders;
+
+  public ParsedSql(String sql, List<ParameterPlaceholder> placeholders) {
+    this.sql = sql;
+    this.placeholders = Collections.unmodifiableList(placeholders);
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  public List<ParameterPlaceholder> getPlaceholders() {
+    return placeholders;
+  }
+
+  /**
+   * 根据参数类型和附加参数生成ParameterMapping
+   * @param parameterType 参数类型
+   * @param metaParameters 附加参数的MetaObject
+   */
+  public List<ParameterMapping> getParameterMappings(Class<?> parameterType, MetaObject metaParameters) {
+    final List<ParameterMapping> parameterMappings = new ArrayList<>(placeholders.size());
+    for (ParameterPlaceholder placeholder : placeholders) {
+      parameterMappings.add(placeholder.toParameterMapping(parameterType, metaParameters));
+    }
+    return parameterMappings;
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按生成的sql文本缓存解析结果，每个语句一个
+ * 动态sql最终只有少数几种形态，命中时省去#{}的扫描和参数表达式的解析；属性类型依赖运行时的参数值，仍在每次执行时确定
+ * 容量写满后按clock策略淘汰：上次扫过之后再次命中的sql保留一轮，其余的被淘汰，避免${}拼接出的无限种sql占用内存
+ * 命中和未命中次数可用于调整容量
+ *
+ * @since 3.5.0
+ */
+public class ParsedSqlCache {
+
+  private final SqlSourceBuilder sqlSourceBuilder;
+  private final int maxSize;
+  private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  /**淘汰时的扫描位置，只在evict中使用*/
+  private Iterator<Map.Entry<String, Entry>> clockHand;
+
+  /**
+   * @param sqlSourceBuilder 用于解析未命中的sql
+   * @param maxSize 最多缓存的sql数量，0表示不缓存
+   */
+  public ParsedSqlCache(SqlSourceBuilder sqlSourceBuilder, int maxSize) {
+    this.sqlSourceBuilder = sqlSourceBuilder;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * 返回sql的解析结果
+   * @param originalSql 含有#{}的sql
+   */
+  public ParsedSql parse(String originalSql) {
+    Entry entry = cache.get(originalSql);
+    if (entry != null) {
+      entry.referenced = true;
+      hits.increment();
+      return entry.parsedSql;
+    }
+    misses.increment();
+    ParsedSql parsedSql = sqlSourceBuilder.parseSql(originalSql);
+    if (maxSize > 0) {
+      if (cache.size() >= maxSize) {
+        evict();
+      }
+      cache.putIfAbsent(originalSql, new Entry(parsedSql));
+    }
+    return parsedSql;
+  }
+
+  /**
+   * 转动clock指针直到有空位：被引用过的sql清除引用标记后跳过，未被引用的淘汰
+   */
+  private synchronized void evict() {
+    while (cache.size() >= maxSize) {
+      if (clockHand == null || !clockHand.hasNext()) {
+        clockHand = cache.entrySet().iterator();
+        if (!clockHand.hasNext()) {
+          return;
+        }
+      }
+      Map.Entry<String, Entry> candidate = clockHand.next();
+      if (candidate.getValue().referenced) {
+        candidate.getValue().referenced = false;
+      } else {
+        cache.remove(candidate.getKey(), candidate.getValue());
+      }
+    }
+  }
+
+  public SqlSourceBuilder getSqlSourceBuilder() {
+    return sqlSourceBuilder;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public int getSize() {
+    return cache.size();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public void clear() {
+    cache.clear();
+  }
+
+  private static final class Entry {
+    private final ParsedSql parsedSql;
+    /**上次被clock指针扫过之后是否命中过*/
+    private volatile boolean referenced;
+
+    Entry(ParsedSql parsedSql) {
+      this.parsedSql = parsedSql;
+    }
+  }
+
+}
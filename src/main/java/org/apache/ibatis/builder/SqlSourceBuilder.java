@@ -20,13 +20,14 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.parsing.GenericTokenParser;
-import org.apache.ibatis.parsing.TokenHandler;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
 
 /**
  * @author Clinton Begin
@@ -47,81 +48,80 @@ public class SqlSourceBuilder extends BaseBuilder {
    * @return
    */
   public SqlSource parse(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters) {
-    //注意这个类有个方法handleToken，会在下面的parse.parse方法中调用到，handleToken中会获取
-    //parameterMapping，这是个隐藏点，之前一直找不到在哪里进行ParameterMap中parameterMappings的赋值
-    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters);
-    GenericTokenParser parser = new GenericTokenParser("#{", "}", handler);
-    //解析 #{} ，将#{}转化为?，获取PreparedStatement需要的sql语句，例如 select * from test where id=?
+    ParsedSql parsedSql = parseSql(originalSql);
+    //构建一个ContextMap的MetaObject对象，这个ContextMap 其中有两个key 一个是_parameter 值是参数对象
+    MetaObject metaParameters = configuration.newMetaObject(additionalParameters);
+    return new StaticSqlSource(configuration, parsedSql.getSql(), parsedSql.getParameterMappings(parameterType, metaParameters));
+  }
+
+  /**
+   * 解析 #{} ，将#{}转化为?，获取PreparedStatement需要的sql语句，例如 select * from test where id=?
+   * 并按顺序记录每个#{}的参数占位符，结果与参数无关
+   * @param originalSql 要执行的sql语句
+   */
+  public ParsedSql parseSql(String originalSql) {
+    final List<ParameterPlaceholder> placeholders = new ArrayList<>();
+    GenericTokenParser parser = new GenericTokenParser("#{", "}", content -> {
+      placeholders.add(parsePlaceholder(content));
+      return "?";
+    });
     String sql = parser.parse(originalSql);
-    return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
+    return new ParsedSql(sql, placeholders);
   }
 
-  private static class ParameterMappingTokenHandler extends BaseBuilder implements TokenHandler {
-    /**是在ParameterMappingTokenHandler的handleToken方法中进行解析的*/
-    private List<ParameterMapping> parameterMappings = new ArrayList<>();
-    /**参数类型（xml中定义的parameterType的类型，缺省为Object）*/
-    private Class<?> parameterType;
-    /**Map<String, Object>的MetaObject*/
-    private MetaObject metaParameters;
-
-    public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters) {
-      super(configuration);
-      this.parameterType = parameterType;
-      //构建一个ContextMap的MetaObject对象，这个ContextMap 其中有两个key 一个是_parameter 值是参数对象
-      this.metaParameters = configuration.newMetaObject(additionalParameters);
-    }
+  /**
+   * 预解析#{}中的内容，除属性类型外（依赖运行时参数）的javaType、jdbcType、typeHandler等只解析一次
+   * @param content #{}中的内容
+   * @return 参数占位符
+   */
+  public ParameterPlaceholder parsePlaceholder(String content) {
+    return new ParameterPlaceholder(content, parseParameterMapping(content));
+  }
 
-    public List<ParameterMapping> getParameterMappings() {
-      return parameterMappings;
+  private Map<String, String> parseParameterMapping(String content) {
+    try {
+      return new ParameterExpression(content);
+    } catch (BuilderException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      throw new BuilderException("Parsing error was found in mapping #{" + content + "}.  Check syntax #{property|(expression), var1=value1, var2=value2, ...} ", ex);
     }
+  }
 
-    /**
-     * 解析sql语句中的#{}，主要将其替换成?,并且记录相应的ParameterMapping对象
-     * @param content
-     * @return
-     */
-    @Override
-    public String handleToken(String content) {
-      parameterMappings.add(buildParameterMapping(content));
-      return "?";
-    }
+  /**
+   * 预解析的#{}，在运行时根据参数确定属性类型后生成ParameterMapping
+   *
+   * @since 3.5.0
+   */
+  public final class ParameterPlaceholder {
+    private final String content;
+    private final String property;
+    /**#{}中的jdbcType原始值，用于判断CURSOR*/
+    private final String jdbcTypeValue;
+    /**显式指定的javaType，未指定为null*/
+    private final Class<?> javaType;
+    private final JdbcType jdbcType;
+    private final ParameterMode mode;
+    private final Integer numericScale;
+    private final String resultMapId;
+    private final String typeHandlerAlias;
+    private final String jdbcTypeName;
+    /**显式指定javaType时typeHandler与属性类型无关，只解析一次*/
+    private final TypeHandler<?> typeHandler;
+    /**上一次生成的ParameterMapping，属性类型相同时直接复用*/
+    private volatile ResolvedMapping resolved;
 
-    /**
-     * 这个方法就是构建一个parameterMapping
-     * @param content 这个就是#{}中的值
-     *  例如  name,javaType=string,jdbcType=VARCHAR,typeHandler=com.yyl.typeHandler.MyStringTypeHandler
-     * @return
-     */
-    private ParameterMapping buildParameterMapping(String content) {
-      //将#{}表达式中的语句解析成Map
-      Map<String, String> propertiesMap = parseParameterMapping(content);
-      //获取属性key，上面的例子，就是name
-      String property = propertiesMap.get("property");
-      //获取字段类型
-      Class<?> propertyType;
-      if (metaParameters.hasGetter(property)) { // issue #448 get type from additional params
-        //获取参数的类型
-        propertyType = metaParameters.getGetterType(property);
-      } else if (typeHandlerRegistry.hasTypeHandler(parameterType)) {
-        propertyType = parameterType;
-        //获取jdbcType的值
-      } else if (JdbcType.CURSOR.name().equals(propertiesMap.get("jdbcType"))) {
-        propertyType = java.sql.ResultSet.class;
-      } else if (property == null || Map.class.isAssignableFrom(parameterType)) {
-        propertyType = Object.class;
-      } else {
-        //若上面都查找不到proeprty属性，那么构建一个参数类型的反射器，从其中查找
-        MetaClass metaClass = MetaClass.forClass(parameterType, configuration.getReflectorFactory());
-        if (metaClass.hasGetter(property)) {
-          propertyType = metaClass.getGetterType(property);
-        } else {
-          propertyType = Object.class;
-        }
-      }
-      //创建ParameterMapping对象
-      ParameterMapping.Builder builder = new ParameterMapping.Builder(configuration, property, propertyType);
-      Class<?> javaType = propertyType;
+    private ParameterPlaceholder(String content, Map<String, String> propertiesMap) {
+      this.content = content;
+      this.property = propertiesMap.get("property");
+      this.jdbcTypeValue = propertiesMap.get("jdbcType");
+      Class<?> javaType = null;
+      JdbcType jdbcType = null;
+      ParameterMode mode = null;
+      Integer numericScale = null;
+      String resultMapId = null;
       String typeHandlerAlias = null;
+      String jdbcTypeName = null;
       /**
        * 遍历propertiesMap，举个例子，
        * name,javaType=string,jdbcType=VARCHAR,typeHandler=com.yyl.typeHandler.MyStringTypeHandler
@@ -136,19 +136,18 @@ public class SqlSourceBuilder extends BaseBuilder {
         String value = entry.getValue();
         if ("javaType".equals(name)) {
           javaType = resolveClass(value);
-          builder.javaType(javaType);
         } else if ("jdbcType".equals(name)) {
-          builder.jdbcType(resolveJdbcType(value));
+          jdbcType = resolveJdbcType(value);
         } else if ("mode".equals(name)) {
-          builder.mode(resolveParameterMode(value));
+          mode = resolveParameterMode(value);
         } else if ("numericScale".equals(name)) {
-          builder.numericScale(Integer.valueOf(value));
+          numericScale = Integer.valueOf(value);
         } else if ("resultMap".equals(name)) {
-          builder.resultMapId(value);
+          resultMapId = value;
         } else if ("typeHandler".equals(name)) {
           typeHandlerAlias = value;
         } else if ("jdbcTypeName".equals(name)) {
-          builder.jdbcTypeName(value);
+          jdbcTypeName = value;
         } else if ("property".equals(name)) {
           // Do Nothing
         } else if ("expression".equals(name)) {
@@ -157,20 +156,119 @@ public class SqlSourceBuilder extends BaseBuilder {
           throw new BuilderException("An invalid property '" + name + "' was found in mapping #{" + content + "}.  Valid properties are " + parameterProperties);
         }
       }
-      if (typeHandlerAlias != null) {
-        builder.typeHandler(resolveTypeHandler(javaType, typeHandlerAlias));
+      this.javaType = javaType;
+      this.jdbcType = jdbcType;
+      this.mode = mode;
+      this.numericScale = numericScale;
+      this.resultMapId = resultMapId;
+      this.typeHandlerAlias = typeHandlerAlias;
+      this.jdbcTypeName = jdbcTypeName;
+      this.typeHandler = javaType != null && typeHandlerAlias != null ? resolveTypeHandler(javaType, typeHandlerAlias) : null;
+    }
+
+    private ParameterPlaceholder(ParameterPlaceholder source, String property) {
+      this.content = source.content;
+      this.property = property;
+      this.jdbcTypeValue = source.jdbcTypeValue;
+      this.javaType = source.javaType;
+      this.jdbcType = source.jdbcType;
+      this.mode = source.mode;
+      this.numericScale = source.numericScale;
+      this.resultMapId = source.resultMapId;
+      this.typeHandlerAlias = source.typeHandlerAlias;
+      this.jdbcTypeName = source.jdbcTypeName;
+      this.typeHandler = source.typeHandler;
+    }
+
+    public String getProperty() {
+      return property;
+    }
+
+    /**
+     * 复制一个属性名不同的占位符，foreach中将item改名为__frch_item_N时使用
+     */
+    public ParameterPlaceholder withProperty(String property) {
+      return new ParameterPlaceholder(this, property);
+    }
+
+    /**
+     * 根据参数类型和附加参数确定属性类型，生成ParameterMapping
+     * @param parameterType 参数类型
+     * @param metaParameters ContextMap的MetaObject
+     */
+    public ParameterMapping toParameterMapping(Class<?> parameterType, MetaObject metaParameters) {
+      //获取字段类型
+      Class<?> propertyType;
+      if (metaParameters.hasGetter(property)) { // issue #448 get type from additional params
+        //获取参数的类型
+        propertyType = metaParameters.getGetterType(property);
+      } else if (typeHandlerRegistry.hasTypeHandler(parameterType)) {
+        propertyType = parameterType;
+        //获取jdbcType的值
+      } else if (JdbcType.CURSOR.name().equals(jdbcTypeValue)) {
+        propertyType = java.sql.ResultSet.class;
+      } else if (property == null || Map.class.isAssignableFrom(parameterType)) {
+        propertyType = Object.class;
+      } else {
+        //若上面都查找不到proeprty属性，那么构建一个参数类型的反射器，从其中查找
+        MetaClass metaClass = MetaClass.forClass(parameterType, configuration.getReflectorFactory());
+        if (metaClass.hasGetter(property)) {
+          propertyType = metaClass.getGetterType(property);
+        } else {
+          propertyType = Object.class;
+        }
       }
-      return builder.build();
+      ResolvedMapping last = resolved;
+      if (last != null && last.propertyType == propertyType) {
+        return last.mapping;
+      }
+      ParameterMapping mapping = buildParameterMapping(propertyType);
+      resolved = new ResolvedMapping(propertyType, mapping);
+      return mapping;
     }
 
-    private Map<String, String> parseParameterMapping(String content) {
-      try {
-        return new ParameterExpression(content);
-      } catch (BuilderException ex) {
-        throw ex;
-      } catch (Exception ex) {
-        throw new BuilderException("Parsing error was found in mapping #{" + content + "}.  Check syntax #{property|(expression), var1=value1, var2=value2, ...} ", ex);
+    private ParameterMapping buildParameterMapping(Class<?> propertyType) {
+      //创建ParameterMapping对象
+      ParameterMapping.Builder builder = new ParameterMapping.Builder(configuration, property, propertyType);
+      if (javaType != null) {
+        builder.javaType(javaType);
+      }
+      if (jdbcType != null) {
+        builder.jdbcType(jdbcType);
+      }
+      if (mode != null) {
+        builder.mode(mode);
+      }
+      if (numericScale != null) {
+        builder.numericScale(numericScale);
       }
+      if (resultMapId != null) {
+        builder.resultMapId(resultMapId);
+      }
+      if (jdbcTypeName != null) {
+        builder.jdbcTypeName(jdbcTypeName);
+      }
+      if (typeHandler != null) {
+        builder.typeHandler(typeHandler);
+      } else if (typeHandlerAlias != null) {
+        builder.typeHandler(resolveTypeHandler(propertyType, typeHandlerAlias));
+      }
+      return builder.build();
+    }
+
+    @Override
+    public String toString() {
+      return "#{" + content + "}";
+    }
+  }
+
+  private static final class ResolvedMapping {
+    final Class<?> propertyType;
+    final ParameterMapping mapping;
+
+    ResolvedMapping(Class<?> propertyType, ParameterMapping mapping) {
+      this.propertyType = propertyType;
+      this.mapping = mapping;
     }
   }
 
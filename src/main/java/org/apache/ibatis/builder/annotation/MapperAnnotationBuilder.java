@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.ibatis.annotations.Arg;
 import org.apache.ibatis.annotations.CacheNamespace;
@@ -302,6 +303,9 @@ public class MapperAnnotationBuilder {
       boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
       boolean flushCache = !isSelect;
       boolean useCache = isSelect;
+      boolean useLocalCache = true;
+      boolean parallelResultMapping = false;
+      boolean prefetchCursor = false;
 
       KeyGenerator keyGenerator;
       String keyProperty = null;
@@ -330,6 +334,9 @@ public class MapperAnnotationBuilder {
           flushCache = false;
         }
         useCache = options.useCache();
+        useLocalCache = options.useLocalCache();
+        parallelResultMapping = options.parallelResultMapping();
+        prefetchCursor = options.prefetchCursor();
         fetchSize = options.fetchSize() > -1 || options.fetchSize() == Integer.MIN_VALUE ? options.fetchSize() : null; //issue #348
         timeout = options.timeout() > -1 ? options.timeout() : null;
         statementType = options.statementType();
@@ -376,7 +383,10 @@ public class MapperAnnotationBuilder {
           null,
           languageDriver,
           // ResultSets
-          options != null ? nullOrEmpty(options.resultSets()) : null);
+          options != null ? nullOrEmpty(options.resultSets()) : null,
+          useLocalCache,
+          parallelResultMapping,
+          prefetchCursor);
     }
   }
   
@@ -408,13 +418,19 @@ public class MapperAnnotationBuilder {
   private Class<?> getReturnType(Method method) {
     Class<?> returnType = method.getReturnType();
     Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+    if (CompletableFuture.class.equals(returnType)) {
+      // the statement returns what the future completes with
+      returnType = Object.class;
+      resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+          ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+    }
     if (resolvedReturnType instanceof Class) {
       returnType = (Class<?>) resolvedReturnType;
       if (returnType.isArray()) {
         returnType = returnType.getComponentType();
       }
       // gcode issue #508
-      if (void.class.equals(returnType)) {
+      if (void.class.equals(returnType) || Void.class.equals(returnType)) {
         ResultType rt = method.getAnnotation(ResultType.class);
         if (rt != null) {
           returnType = rt.value();
@@ -557,7 +573,8 @@ public class MapperAnnotationBuilder {
           flags,
           null,
           null,
-          isLazy(result));
+          isLazy(result),
+          result.fetchType() == FetchType.LAZY);
       resultMappings.add(resultMapping);
     }
   }
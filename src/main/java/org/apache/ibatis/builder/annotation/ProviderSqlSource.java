@@ -21,7 +21,10 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.ParsedSql;
+import org.apache.ibatis.builder.ParsedSqlCache;
 import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.parsing.PropertyParser;
@@ -35,7 +38,7 @@ import org.apache.ibatis.session.Configuration;
 public class ProviderSqlSource implements SqlSource {
 
   private final Configuration configuration;
-  private final SqlSourceBuilder sqlSourceParser;
+  private final ParsedSqlCache parsedSqlCache;
   private final Class<?> providerType;
   private Method providerMethod;
   private String[] providerMethodArgumentNames;
@@ -58,7 +61,7 @@ public class ProviderSqlSource implements SqlSource {
     String providerMethodName;
     try {
       this.configuration = configuration;
-      this.sqlSourceParser = new SqlSourceBuilder(configuration);
+      this.parsedSqlCache = new ParsedSqlCache(new SqlSourceBuilder(configuration), configuration.getParsedSqlCacheSize());
       this.providerType = (Class<?>) provider.getClass().getMethod("type").invoke(provider);
       providerMethodName = (String) provider.getClass().getMethod("method").invoke(provider);
 
@@ -126,7 +129,9 @@ public class ProviderSqlSource implements SqlSource {
                 + " using a specifying parameterObject. In this case, please specify a 'java.util.Map' object.");
       }
       Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-      return sqlSourceParser.parse(replacePlaceholder(sql), parameterType, new HashMap<String, Object>());
+      ParsedSql parsedSql = parsedSqlCache.parse(replacePlaceholder(sql));
+      return new StaticSqlSource(configuration, parsedSql.getSql(),
+          parsedSql.getParameterMappings(parameterType, configuration.newMetaObject(new HashMap<String, Object>())));
     } catch (BuilderException e) {
       throw e;
     } catch (Exception e) {
@@ -136,6 +141,13 @@ public class ProviderSqlSource implements SqlSource {
     }
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public ParsedSqlCache getParsedSqlCache() {
+    return parsedSqlCache;
+  }
+
   private Object[] extractProviderMethodArguments(Object parameterObject) {
     if (providerContext != null) {
       Object[] args = new Object[2];
@@ -18,6 +18,7 @@ package org.apache.ibatis.builder.xml;
 import java.io.InputStream;
 import java.io.Reader;
 import java.util.Properties;
+import java.util.regex.Pattern;
 import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
@@ -42,6 +43,7 @@ import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.LocalCacheEviction;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.type.JdbcType;
@@ -317,9 +319,19 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
     configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
     configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
+    configuration.setLocalCacheSize(integerValueOf(props.getProperty("localCacheSize"), 0));
+    configuration.setLocalCacheMaxRows(integerValueOf(props.getProperty("localCacheMaxRows"), 0));
+    configuration.setLocalCacheEviction(LocalCacheEviction.valueOf(props.getProperty("localCacheEviction", "LRU")));
     configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));
     configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
     configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
+    configuration.setCompiledRowMappingEnabled(booleanValueOf(props.getProperty("compiledRowMappingEnabled"), false));
+    configuration.setCompactMapResultsEnabled(booleanValueOf(props.getProperty("compactMapResultsEnabled"), false));
+    configuration.setParallelResultMappingBatchSize(integerValueOf(props.getProperty("parallelResultMappingBatchSize"), 256));
+    configuration.setCursorPrefetchSize(integerValueOf(props.getProperty("cursorPrefetchSize"), 0));
+    configuration.setParsedSqlCacheSize(integerValueOf(props.getProperty("parsedSqlCacheSize"), 64));
+    String substitutionFilter = props.getProperty("substitutionFilter");
+    configuration.setSubstitutionFilter(substitutionFilter == null ? null : Pattern.compile(substitutionFilter));
     configuration.setDefaultScriptingLanguage(resolveClass(props.getProperty("defaultScriptingLanguage")));
     @SuppressWarnings("unchecked")
     Class<? extends TypeHandler> typeHandler = (Class<? extends TypeHandler>)resolveClass(props.getProperty("defaultEnumTypeHandler"));
@@ -514,13 +514,15 @@ public class XMLMapperBuilder extends BaseBuilder {
     String foreignColumn = context.getStringAttribute("foreignColumn");
     //是否懒加载
     boolean lazy = "lazy".equals(context.getStringAttribute("fetchType", configuration.isLazyLoadingEnabled() ? "lazy" : "eager"));
+    //普通列只有显式指定fetchType="lazy"时才延迟解码，不受lazyLoadingEnabled影响
+    boolean lazyColumn = "lazy".equals(context.getStringAttribute("fetchType"));
     //字段所表示的java类型Class
     Class<?> javaTypeClass = resolveClass(javaType);
     @SuppressWarnings("unchecked")
     //从别名中获取typeHandler的class
     Class<? extends TypeHandler<?>> typeHandlerClass = (Class<? extends TypeHandler<?>>) resolveClass(typeHandler);
     JdbcType jdbcTypeEnum = resolveJdbcType(jdbcType);
-    return builderAssistant.buildResultMapping(resultType, property, column, javaTypeClass, jdbcTypeEnum, nestedSelect, nestedResultMap, notNullColumn, columnPrefix, typeHandlerClass, flags, resultSet, foreignColumn, lazy);
+    return builderAssistant.buildResultMapping(resultType, property, column, javaTypeClass, jdbcTypeEnum, nestedSelect, nestedResultMap, notNullColumn, columnPrefix, typeHandlerClass, flags, resultSet, foreignColumn, lazy, lazyColumn);
   }
 
   /**
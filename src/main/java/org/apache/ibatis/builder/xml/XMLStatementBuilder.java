@@ -97,6 +97,12 @@ public class XMLStatementBuilder extends BaseBuilder {
     boolean flushCache = context.getBooleanAttribute("flushCache", !isSelect);
     //若不设置，默认select语句会使用缓存
     boolean useCache = context.getBooleanAttribute("useCache", isSelect);
+    //是否把查询结果保存在一级缓存中，默认保存
+    boolean useLocalCache = context.getBooleanAttribute("useLocalCache", true);
+    //是否在线程池中并行转换结果行，默认不开启
+    boolean parallelResultMapping = context.getBooleanAttribute("parallelResultMapping", false);
+    //游标是否由单独的线程预取，默认不开启
+    boolean prefetchCursor = context.getBooleanAttribute("prefetchCursor", false);
     boolean resultOrdered = context.getBooleanAttribute("resultOrdered", false);
     //创建XMLIncludeTransformer
     XMLIncludeTransformer includeParser = new XMLIncludeTransformer(configuration, builderAssistant);
@@ -127,7 +133,8 @@ public class XMLStatementBuilder extends BaseBuilder {
     builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
         fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
         resultSetTypeEnum, flushCache, useCache, resultOrdered, 
-        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, useLocalCache, parallelResultMapping,
+        prefetchCursor);
   }
 
   /**
@@ -15,9 +15,17 @@
  */
 package org.apache.ibatis.cache;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ibatis.reflection.ArrayUtil;
 
@@ -28,44 +36,74 @@ public class CacheKey implements Cloneable, Serializable {
 
   private static final long serialVersionUID = 1146682552656046210L;
 
+  // the serialized form is still the one of the list based implementation
+  private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("multiplier", int.class),
+      new ObjectStreamField("hashcode", int.class),
+      new ObjectStreamField("checksum", long.class),
+      new ObjectStreamField("count", int.class),
+      new ObjectStreamField("updateList", List.class) };
+
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
   private static final int DEFAULT_MULTIPLYER = 37;
   private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final int MAX_INTERNED = 4096;
+  private static final long FINGERPRINT_MULTIPLIER = 0x9e3779b97f4a7c15L;
+  private static final ConcurrentHashMap<String, InternedString> interned = new ConcurrentHashMap<>();
+  private static final AtomicLong internedIds = new AtomicLong();
+  private static Iterator<InternedString> clockHand;
 
-  private final int multiplier;
+  private int multiplier;
   private int hashcode;
   private long checksum;
   private int count;
-  // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  private transient long fingerprint;
+  // serialized as the updateList field of serialPersistentFields, see writeObject
+  private transient Object[] updateList;
 
   public CacheKey() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /*
+   * @param expectedUpdateCount the number of updates the key will get, to size its storage
+   */
+  public CacheKey(int expectedUpdateCount) {
     this.hashcode = DEFAULT_HASHCODE;
     this.multiplier = DEFAULT_MULTIPLYER;
     this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.updateList = new Object[Math.max(expectedUpdateCount, 1)];
   }
 
   public CacheKey(Object[] objects) {
-    this();
+    this(objects.length);
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
+    append(object);
+  }
+
+  private void append(Object object) {
     int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object); 
 
+    if (count == updateList.length) {
+      updateList = Arrays.copyOf(updateList, count * 2);
+    }
+    updateList[count] = object;
+    fingerprint = fingerprint * FINGERPRINT_MULTIPLIER + mix(((long) baseHashCode << 32) ^ count);
+
     count++;
     checksum += baseHashCode;
     baseHashCode *= count;
 
     hashcode = multiplier * hashcode + baseHashCode;
-
-    updateList.add(object);
   }
 
   public void updateAll(Object[] objects) {
@@ -74,6 +112,56 @@ public class CacheKey implements Cloneable, Serializable {
     }
   }
 
+  /**
+   * Returns an instance standing for the given string, to be passed to {@link #update(Object)}.
+   * <p>
+   * Each distinct string gets an integer id, and keys compare the instances by that id, which is
+   * much cheaper than comparing long strings like the SQL of a statement on every cache lookup.
+   * The instance has the hash code and string form of the string and is serialized as the string,
+   * so keys stay the same for caches that store them outside of this JVM.
+   * <p>
+   * Note that a key holding an interned string is not equal to a key holding the string itself.
+   * At most a few thousand strings are kept. When the bound is reached, a string that was not
+   * interned again since the clock hand last passed it is dropped. Ids are never reused, so a
+   * dropped string only gets a new id and keys holding the old one no longer match.
+   *
+   * @param value a string that is likely to be used again in other keys
+   * @return the interned instance
+   * @since 3.5.0
+   */
+  public static Object intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    InternedString result = interned.get(value);
+    if (result != null) {
+      result.referenced = true;
+      return result;
+    }
+    if (interned.size() >= MAX_INTERNED) {
+      evictInterned();
+    }
+    return interned.computeIfAbsent(value, k -> new InternedString(k, internedIds.incrementAndGet()));
+  }
+
+  private static synchronized void evictInterned() {
+    // clock: strings interned again since the last pass get a second chance
+    while (interned.size() >= MAX_INTERNED) {
+      if (clockHand == null || !clockHand.hasNext()) {
+        clockHand = interned.values().iterator();
+        if (!clockHand.hasNext()) {
+          return;
+        }
+      }
+      InternedString candidate = clockHand.next();
+      if (candidate.referenced) {
+        candidate.referenced = false;
+      } else {
+        interned.remove(candidate.value, candidate);
+      }
+    }
+  }
+
   @Override
   public boolean equals(Object object) {
     if (this == object) {
@@ -94,11 +182,14 @@ public class CacheKey implements Cloneable, Serializable {
     if (count != cacheKey.count) {
       return false;
     }
+    if (fingerprint != cacheKey.fingerprint) {
+      return false;
+    }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    for (int i = 0; i < count; i++) {
+      Object thisObject = updateList[i];
+      Object thatObject = cacheKey.updateList[i];
+      if (thisObject != thatObject && !ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
     }
@@ -113,8 +204,8 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public String toString() {
     StringBuilder returnValue = new StringBuilder().append(hashcode).append(':').append(checksum);
-    for (Object object : updateList) {
-      returnValue.append(':').append(ArrayUtil.toString(object));
+    for (int i = 0; i < count; i++) {
+      returnValue.append(':').append(ArrayUtil.toString(updateList[i]));
     }
     return returnValue.toString();
   }
@@ -122,8 +213,70 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    clonedCacheKey.updateList = updateList.clone();
     return clonedCacheKey;
   }
 
+  private static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+    value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return value ^ (value >>> 33);
+  }
+
+  private static final class InternedString implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String value;
+    private final transient long id;
+    private transient volatile boolean referenced;
+
+    InternedString(String value, long id) {
+      this.value = value;
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return this == object || object instanceof InternedString && id == ((InternedString) object).id;
+    }
+
+    @Override
+    public int hashCode() {
+      return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return value;
+    }
+
+    private Object readResolve() {
+      return intern(value);
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("multiplier", multiplier);
+    fields.put("hashcode", hashcode);
+    fields.put("checksum", checksum);
+    fields.put("count", count);
+    fields.put("updateList", new ArrayList<>(Arrays.asList(updateList).subList(0, count)));
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    List<?> list = (List<?>) fields.get("updateList", null);
+    multiplier = fields.get("multiplier", DEFAULT_MULTIPLYER);
+    hashcode = DEFAULT_HASHCODE;
+    checksum = 0;
+    count = 0;
+    updateList = new Object[Math.max(list.size(), 1)];
+    for (Object object : list) {
+      append(object);
+    }
+  }
+
 }
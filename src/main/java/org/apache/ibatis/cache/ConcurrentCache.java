@@ -0,0 +1,30 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Marks a cache that is safe for concurrent use on its own.
+ * <p>
+ * When the cache of a namespace and all of its eviction decorators implement this interface the
+ * {@link org.apache.ibatis.mapping.CacheBuilder} does not wrap the cache in a
+ * {@link org.apache.ibatis.cache.decorators.SynchronizedCache}, so reads do not contend on a
+ * global monitor. A decorator implementing it must only rely on its delegate being thread safe.
+ *
+ * @since 3.5.0
+ */
+public interface ConcurrentCache extends Cache {
+
+}
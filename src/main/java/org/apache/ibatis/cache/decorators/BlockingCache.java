@@ -16,10 +16,10 @@
 package org.apache.ibatis.cache.decorators;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
@@ -30,6 +30,16 @@ import org.apache.ibatis.cache.CacheException;
  * Simple and inefficient version of EhCache's BlockingCache decorator.
  * It sets a lock over a cache key when the element is not found in cache.
  * This way, other threads will wait until this element is filled instead of hitting the database.
+ * <p>
+ * The first thread that misses a key starts a load, other threads missing the same key wait for it
+ * and read the value it puts instead of running the same query. The load ends when the value is
+ * put or when the loading thread removes the key (rollback), and is then forgotten, so no state is
+ * kept for keys that are not being loaded. Hits never wait.
+ * <p>
+ * With a timeout, a thread waits at most that many milliseconds. It then gets a miss and loads the
+ * value itself, so a session that is never closed can not block it forever. The load of the other
+ * thread is left as is, so the threads still waiting for it keep waiting until it ends or they time
+ * out themselves.
  * 
  * @author Eduardo Macarron
  *
@@ -38,11 +48,13 @@ public class BlockingCache implements Cache {
 
   private long timeout;
   private final Cache delegate;
-  private final ConcurrentHashMap<Object, ReentrantLock> locks;
+  private final ConcurrentHashMap<Object, Load> loads;
+  private final LongAdder coalescedCount = new LongAdder();
+  private final LongAdder timedOutCount = new LongAdder();
 
   public BlockingCache(Cache delegate) {
     this.delegate = delegate;
-    this.locks = new ConcurrentHashMap<>();
+    this.loads = new ConcurrentHashMap<>();
   }
 
   @Override
@@ -60,24 +72,57 @@ public class BlockingCache implements Cache {
     try {
       delegate.putObject(key, value);
     } finally {
-      releaseLock(key);
+      Load load = loads.get(key);
+      if (load != null) {
+        finish(key, load);
+      }
     }
   }
 
   @Override
   public Object getObject(Object key) {
-    acquireLock(key);
     Object value = delegate.getObject(key);
-    if (value != null) {
-      releaseLock(key);
-    }        
+    long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+    while (value == null) {
+      Load load = new Load();
+      Load current = loads.putIfAbsent(key, load);
+      if (current == null) {
+        // the caller loads the value, unless it was put while the load was being registered
+        value = delegate.getObject(key);
+        if (value != null) {
+          finish(key, load);
+        }
+        return value;
+      }
+      if (current.owner == Thread.currentThread()) {
+        // the caller already loads this key, waiting for itself would never end
+        return delegate.getObject(key);
+      }
+      coalescedCount.increment();
+      boolean loaded;
+      try {
+        loaded = current.await(deadline);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CacheException("Got interrupted while waiting for the load of key " + key + " at the cache " + delegate.getId(), e);
+      }
+      if (!loaded) {
+        timedOutCount.increment();
+        // the load belongs to the other thread, the caller only stops waiting for it
+        return delegate.getObject(key);
+      }
+      value = delegate.getObject(key);
+    }
     return value;
   }
 
   @Override
   public Object removeObject(Object key) {
     // despite of its name, this method is called only to release locks
-    releaseLock(key);
+    Load load = loads.get(key);
+    if (load != null && load.owner == Thread.currentThread()) {
+      finish(key, load);
+    }
     return null;
   }
 
@@ -90,34 +135,24 @@ public class BlockingCache implements Cache {
   public ReadWriteLock getReadWriteLock() {
     return null;
   }
-  
-  private ReentrantLock getLockForKey(Object key) {
-    ReentrantLock lock = new ReentrantLock();
-    ReentrantLock previous = locks.putIfAbsent(key, lock);
-    return previous == null ? lock : previous;
+
+  /*
+   * The number of misses that waited for a load started by another thread instead of loading the
+   * value themselves
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
   }
-  
-  private void acquireLock(Object key) {
-    Lock lock = getLockForKey(key);
-    if (timeout > 0) {
-      try {
-        boolean acquired = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
-        if (!acquired) {
-          throw new CacheException("Couldn't get a lock in " + timeout + " for the key " +  key + " at the cache " + delegate.getId());  
-        }
-      } catch (InterruptedException e) {
-        throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
-      }
-    } else {
-      lock.lock();
-    }
+
+  /*
+   * The number of waits that gave up because of the timeout
+   */
+  public long getTimedOutCount() {
+    return timedOutCount.sum();
   }
-  
-  private void releaseLock(Object key) {
-    ReentrantLock lock = locks.get(key);
-    if (lock.isHeldByCurrentThread()) {
-      lock.unlock();
-    }
+
+  public int getLoadingCount() {
+    return loads.size();
   }
 
   public long getTimeout() {
@@ -126,5 +161,26 @@ public class BlockingCache implements Cache {
 
   public void setTimeout(long timeout) {
     this.timeout = timeout;
-  }  
-}
\ No newline at end of file
+  }
+
+  private void finish(Object key, Load load) {
+    loads.remove(key, load);
+    load.done.countDown();
+  }
+
+  private static final class Load {
+    final Thread owner = Thread.currentThread();
+    final CountDownLatch done = new CountDownLatch(1);
+
+    /*
+     * Returns false if the deadline passed before the load ended, a deadline of 0 waits forever.
+     */
+    boolean await(long deadline) throws InterruptedException {
+      if (deadline == 0) {
+        done.await();
+        return true;
+      }
+      return done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+  }
+}
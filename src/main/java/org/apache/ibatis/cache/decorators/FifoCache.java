@@ -15,8 +15,6 @@
  */
 package org.apache.ibatis.cache.decorators;
 
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
@@ -29,13 +27,11 @@ import org.apache.ibatis.cache.Cache;
 public class FifoCache implements Cache {
 
   private final Cache delegate;
-  private final Deque<Object> keyList;
-  private int size;
+  private final RingBuffer keyList;
 
   public FifoCache(Cache delegate) {
     this.delegate = delegate;
-    this.keyList = new LinkedList<>();
-    this.size = 1024;
+    this.keyList = new RingBuffer(1024);
   }
 
   @Override
@@ -49,7 +45,7 @@ public class FifoCache implements Cache {
   }
 
   public void setSize(int size) {
-    this.size = size;
+    keyList.resize(size, delegate::removeObject);
   }
 
   @Override
@@ -80,9 +76,8 @@ public class FifoCache implements Cache {
   }
 
   private void cycleKeyList(Object key) {
-    keyList.addLast(key);
-    if (keyList.size() > size) {
-      Object oldestKey = keyList.removeFirst();
+    Object oldestKey = keyList.add(key);
+    if (oldestKey != null) {
       delegate.removeObject(oldestKey);
     }
   }
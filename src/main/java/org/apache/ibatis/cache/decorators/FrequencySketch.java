@@ -0,0 +1,101 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Arrays;
+
+/**
+ * A count-min sketch of 4-bit counters that estimates how often a key was seen recently.
+ * <p>
+ * All counters are halved once the number of increments reaches ten times the capacity, so the
+ * estimates follow changes of the access pattern. The sketch is not thread safe.
+ */
+class FrequencySketch {
+
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNT = 15;
+
+  private final long[] table;
+  private final int sampleSize;
+  private int additions;
+
+  FrequencySketch(int capacity) {
+    int size = Integer.highestOneBit(Math.max(8, capacity - 1)) << 1;
+    this.table = new long[size];
+    this.sampleSize = 10 * Math.max(capacity, 1);
+  }
+
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < SEEDS.length; i++) {
+      long slot = slotHash(hash, i);
+      int shift = counterShift(slot);
+      frequency = Math.min(frequency, (int) ((table[indexOf(slot)] >>> shift) & 0xfL));
+    }
+    return frequency;
+  }
+
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      long slot = slotHash(hash, i);
+      int index = indexOf(slot);
+      int shift = counterShift(slot);
+      if (((table[index] >>> shift) & 0xfL) < MAX_COUNT) {
+        table[index] += 1L << shift;
+        added = true;
+      }
+    }
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  void clear() {
+    Arrays.fill(table, 0L);
+    additions = 0;
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions >>>= 1;
+  }
+
+  private long slotHash(int hash, int i) {
+    long slot = (hash + SEEDS[i]) * SEEDS[i];
+    return slot ^ (slot >>> 32);
+  }
+
+  private int indexOf(long slot) {
+    return (int) (slot >>> 4) & (table.length - 1);
+  }
+
+  private int counterShift(long slot) {
+    return ((int) slot & 0xf) << 2;
+  }
+
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
@@ -28,8 +29,18 @@ public class LoggingCache implements Cache {
 
   private final Log log;
   private final Cache delegate;
+  /**
+   * @deprecated not updated atomically when the cache is not synchronized, use {@link #getRequestCount()}
+   */
+  @Deprecated
   protected int requests = 0;
+  /**
+   * @deprecated not updated atomically when the cache is not synchronized, use {@link #getHitCount()}
+   */
+  @Deprecated
   protected int hits = 0;
+  private final LongAdder requestCount = new LongAdder();
+  private final LongAdder hitCount = new LongAdder();
 
   public LoggingCache(Cache delegate) {
     this.delegate = delegate;
@@ -54,9 +65,11 @@ public class LoggingCache implements Cache {
   @Override
   public Object getObject(Object key) {
     requests++;
+    requestCount.increment();
     final Object value = delegate.getObject(key);
     if (value != null) {
       hits++;
+      hitCount.increment();
     }
     if (log.isDebugEnabled()) {
       log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
@@ -89,8 +102,22 @@ public class LoggingCache implements Cache {
     return delegate.equals(obj);
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
   private double getHitRatio() {
-    return (double) hits / (double) requests;
+    return (double) getHitCount() / (double) getRequestCount();
   }
 
 }
@@ -0,0 +1,261 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Off-heap cache decorator.
+ * <p>
+ * Values are serialized into direct byte buffers, only the keys and the position of each value stay
+ * on the heap. The memory is split in regions that are filled one after the other; when the last
+ * one is full the oldest region is reused and the entries it holds are evicted. The
+ * {@code capacity} property is the total size of the regions in bytes, the {@code size} property
+ * optionally limits the number of entries. Values that are already serialized (by a read-write
+ * cache) are stored as is, other values are serialized with the {@code serializer} property,
+ * {@code JAVA} by default. Values larger than a region are not cached, they are counted by
+ * {@link #getOversizedCount()}.
+ * <p>
+ * The delegate only provides the id. This decorator is not thread safe, it is wrapped in a
+ * {@link SynchronizedCache} like the other eviction decorators.
+ *
+ * @since 3.5.0
+ */
+public class OffHeapCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(OffHeapCache.class);
+  private static final int MIN_REGION_SIZE = 64 * 1024;
+  private static final int MAX_REGION_COUNT = 16;
+
+  private final Cache delegate;
+  private final Map<Object, Slot> index;
+  private CacheSerializer serializer = new JavaSerializer();
+  private long capacity = 64L * 1024 * 1024;
+  private int size = Integer.MAX_VALUE;
+  private Region[] regions;
+  private int current;
+  private long oversizedCount;
+
+  public OffHeapCache(Cache delegate) {
+    this.delegate = delegate;
+    this.index = new LinkedHashMap<Object, Slot>() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, Slot> eldest) {
+        if (size() > size) {
+          regions[eldest.getValue().region].keys.remove(eldest.getKey());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return index.size();
+  }
+
+  public void setSize(int size) {
+    this.size = size;
+    clear();
+  }
+
+  public void setCapacity(long capacity) {
+    this.capacity = capacity;
+    clear();
+    regions = null;
+  }
+
+  /**
+   * The number of values that were not cached because they are larger than a region.
+   */
+  public long getOversizedCount() {
+    return oversizedCount;
+  }
+
+  public void setSerializer(String serializer) {
+    this.serializer = SerializedCache.newSerializer(serializer);
+    clear();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    boolean serialized = value instanceof byte[];
+    byte[] bytes = serialized ? (byte[]) value : serializer.serialize(value);
+    free(key);
+    Region region = regionFor(bytes.length);
+    if (region == null) {
+      if (oversizedCount++ == 0) {
+        log.warn("Cache " + getId() + " does not store values larger than " + regions[current].capacity
+            + " bytes, raise its capacity to cache them");
+      }
+      return;
+    }
+    int offset = region.write(key, bytes);
+    index.put(key, new Slot(current, offset, bytes.length, serialized));
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Slot slot = index.get(key);
+    return slot == null ? null : read(slot);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    // the value is not read back, the result of this method is not used
+    free(key);
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    index.clear();
+    if (regions != null) {
+      for (Region region : regions) {
+        region.reset();
+      }
+    }
+    current = 0;
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private void free(Object key) {
+    Slot slot = index.remove(key);
+    if (slot != null) {
+      regions[slot.region].keys.remove(key);
+    }
+  }
+
+  private Object read(Slot slot) {
+    byte[] bytes = regions[slot.region].read(slot.offset, slot.length);
+    return slot.serialized ? bytes : serializer.deserialize(bytes);
+  }
+
+  private Region regionFor(int length) {
+    if (regions == null) {
+      regions = newRegions();
+    }
+    Region region = regions[current];
+    if (length > region.capacity) {
+      return null;
+    }
+    if (length > region.remaining()) {
+      current = (current + 1) % regions.length;
+      region = regions[current];
+      evict(region);
+    }
+    return region;
+  }
+
+  private void evict(Region region) {
+    // a region only holds the keys of the entries stored in it
+    for (Object key : region.keys) {
+      index.remove(key);
+    }
+    region.reset();
+  }
+
+  private Region[] newRegions() {
+    // at least two regions, smaller than MIN_REGION_SIZE only when the capacity does not hold two of them
+    long regionSize = Math.max(capacity / MAX_REGION_COUNT, Math.min(MIN_REGION_SIZE, capacity / 2));
+    regionSize = Math.min(Integer.MAX_VALUE, Math.max(1, regionSize));
+    int count = (int) Math.max(2, capacity / regionSize);
+    Region[] newRegions = new Region[count];
+    for (int i = 0; i < count; i++) {
+      newRegions[i] = new Region((int) regionSize);
+    }
+    return newRegions;
+  }
+
+  private static final class Slot {
+    final int region;
+    final int offset;
+    final int length;
+    final boolean serialized;
+
+    Slot(int region, int offset, int length, boolean serialized) {
+      this.region = region;
+      this.offset = offset;
+      this.length = length;
+      this.serialized = serialized;
+    }
+  }
+
+  private static final class Region {
+    final int capacity;
+    final Set<Object> keys = new HashSet<>();
+    private ByteBuffer buffer;
+
+    Region(int capacity) {
+      this.capacity = capacity;
+    }
+
+    int remaining() {
+      return buffer == null ? capacity : buffer.remaining();
+    }
+
+    int write(Object key, byte[] bytes) {
+      if (buffer == null) {
+        // allocated on first use, so a large capacity does not cost memory until it is needed
+        buffer = ByteBuffer.allocateDirect(capacity);
+      }
+      int offset = buffer.position();
+      buffer.put(bytes);
+      keys.add(key);
+      return offset;
+    }
+
+    byte[] read(int offset, int length) {
+      byte[] bytes = new byte[length];
+      ByteBuffer view = buffer.duplicate();
+      view.position(offset);
+      view.get(bytes);
+      return bytes;
+    }
+
+    void reset() {
+      keys.clear();
+      if (buffer != null) {
+        buffer.clear();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,98 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, array backed FIFO queue. Adding to a full buffer overwrites the oldest element, so
+ * neither adding nor evicting allocates. Not thread safe.
+ */
+class RingBuffer {
+
+  private Object[] elements;
+  private int head;
+  private int count;
+
+  RingBuffer(int capacity) {
+    this.elements = new Object[Math.max(capacity, 0)];
+  }
+
+  /*
+   * Appends an element, evicting the oldest one if the buffer is full.
+   *
+   * @param element the element to add
+   * @return the evicted element or null
+   */
+  Object add(Object element) {
+    if (elements.length == 0) {
+      return element;
+    }
+    int tail = head + count;
+    if (tail >= elements.length) {
+      tail -= elements.length;
+    }
+    if (count < elements.length) {
+      elements[tail] = element;
+      count++;
+      return null;
+    }
+    Object oldest = elements[head];
+    elements[head] = element;
+    head = head + 1 == elements.length ? 0 : head + 1;
+    return oldest;
+  }
+
+  /*
+   * Changes the capacity, keeping the most recent elements.
+   *
+   * @param capacity the new capacity
+   * @param evicted receives the elements that no longer fit, may be null
+   */
+  void resize(int capacity, Consumer<Object> evicted) {
+    Object[] resized = new Object[Math.max(capacity, 0)];
+    int dropped = Math.max(0, count - resized.length);
+    for (int i = 0; i < count; i++) {
+      Object element = elements[(head + i) % elements.length];
+      if (i < dropped) {
+        if (evicted != null) {
+          evicted.accept(element);
+        }
+      } else {
+        resized[i - dropped] = element;
+      }
+    }
+    elements = resized;
+    head = 0;
+    count -= dropped;
+  }
+
+  void clear() {
+    Arrays.fill(elements, null);
+    head = 0;
+    count = 0;
+  }
+
+  int size() {
+    return count;
+  }
+
+  int capacity() {
+    return elements.length;
+  }
+
+}
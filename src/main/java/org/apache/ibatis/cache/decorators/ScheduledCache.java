@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
@@ -27,12 +28,14 @@ import org.apache.ibatis.cache.Cache;
  * 刷新间隔时间，再执行get、put的时候先判断上次刷新时间+时间间隔是否大于当前时间，若大于当前时间，那么情况缓存
  */
 public class ScheduledCache implements Cache {
+  private static final AtomicLongFieldUpdater<ScheduledCache> LAST_CLEAR = AtomicLongFieldUpdater.newUpdater(ScheduledCache.class, "lastClear");
+
   /**被装饰的缓存类*/
   private final Cache delegate;
   /**刷新时间间隔*/
   protected long clearInterval;
   /**上次刷新时间*/
-  protected long lastClear;
+  protected volatile long lastClear;
 
   public ScheduledCache(Cache delegate) {
     this.delegate = delegate;
@@ -104,8 +107,13 @@ public class ScheduledCache implements Cache {
    * @return
    */
   private boolean clearWhenStale() {
-    if (System.currentTimeMillis() - lastClear > clearInterval) {
-      clear();
+    long last = lastClear;
+    long now = System.currentTimeMillis();
+    if (now - last > clearInterval) {
+      //并发时只有更新了刷新时间的线程清空缓存，避免清掉其他线程刚放入的数据
+      if (LAST_CLEAR.compareAndSet(this, last, now)) {
+        delegate.clear();
+      }
       return true;
     }
     return false;
@@ -15,29 +15,40 @@
  */
 package org.apache.ibatis.cache.decorators;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
-import java.io.Serializable;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.CompactSerializer;
+import org.apache.ibatis.cache.serializer.JavaSerializer;
 import org.apache.ibatis.io.Resources;
 
 /**
+ * Stores a serialized copy of each object so callers can not modify the cached instance.
+ * <p>
+ * The copy is made by a {@link CacheSerializer}, Java serialization by default. The
+ * {@code serializer} cache property selects another one: {@code JAVA}, {@code COMPACT} or the
+ * fully qualified name of a {@link CacheSerializer} implementation.
+ *
  * @author Clinton Begin
  */
 public class SerializedCache implements Cache {
 
   private final Cache delegate;
+  private CacheSerializer serializer;
 
   public SerializedCache(Cache delegate) {
+    this(delegate, new JavaSerializer());
+  }
+
+  public SerializedCache(Cache delegate, CacheSerializer serializer) {
     this.delegate = delegate;
+    this.serializer = serializer;
   }
 
   @Override
@@ -50,19 +61,19 @@ public class SerializedCache implements Cache {
     return delegate.getSize();
   }
 
+  public void setSerializer(String serializer) {
+    this.serializer = newSerializer(serializer);
+  }
+
   @Override
   public void putObject(Object key, Object object) {
-    if (object == null || object instanceof Serializable) {
-      delegate.putObject(key, serialize((Serializable) object));
-    } else {
-      throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
-    }
+    delegate.putObject(key, serializer.serialize(object));
   }
 
   @Override
   public Object getObject(Object key) {
     Object object = delegate.getObject(key);
-    return object == null ? null : deserialize((byte[]) object);
+    return object == null ? null : serializer.deserialize((byte[]) object);
   }
 
   @Override
@@ -90,26 +101,18 @@ public class SerializedCache implements Cache {
     return delegate.equals(obj);
   }
 
-  private byte[] serialize(Serializable value) {
-    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
-         ObjectOutputStream oos = new ObjectOutputStream(bos)) {
-      oos.writeObject(value);
-      oos.flush();
-      return bos.toByteArray();
-    } catch (Exception e) {
-      throw new CacheException("Error serializing object.  Cause: " + e, e);
+  static CacheSerializer newSerializer(String name) {
+    if ("JAVA".equalsIgnoreCase(name)) {
+      return new JavaSerializer();
+    } else if ("COMPACT".equalsIgnoreCase(name)) {
+      return new CompactSerializer();
     }
-  }
-
-  private Serializable deserialize(byte[] value) {
-    Serializable result;
-    try (ByteArrayInputStream bis = new ByteArrayInputStream(value);
-         ObjectInputStream ois = new CustomObjectInputStream(bis)) {
-      result = (Serializable) ois.readObject();
+    try {
+      Class<?> type = Resources.classForName(name);
+      return (CacheSerializer) type.getConstructor().newInstance();
     } catch (Exception e) {
-      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+      throw new CacheException("Error creating cache serializer '" + name + "'.  Cause: " + e, e);
     }
-    return result;
   }
 
   public static class CustomObjectInputStream extends ObjectInputStream {
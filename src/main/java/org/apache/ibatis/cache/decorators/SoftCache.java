@@ -17,9 +17,8 @@ package org.apache.ibatis.cache.decorators;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
 
@@ -30,15 +29,14 @@ import org.apache.ibatis.cache.Cache;
  * @author Clinton Begin
  */
 public class SoftCache implements Cache {
-  private final Deque<Object> hardLinksToAvoidGarbageCollection;
+  private final RingBuffer hardLinksToAvoidGarbageCollection;
+  private final ReentrantLock hardLinksLock = new ReentrantLock();
   private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
   private final Cache delegate;
-  private int numberOfHardLinks;
 
   public SoftCache(Cache delegate) {
     this.delegate = delegate;
-    this.numberOfHardLinks = 256;
-    this.hardLinksToAvoidGarbageCollection = new LinkedList<>();
+    this.hardLinksToAvoidGarbageCollection = new RingBuffer(256);
     this.queueOfGarbageCollectedEntries = new ReferenceQueue<>();
   }
 
@@ -55,7 +53,12 @@ public class SoftCache implements Cache {
 
 
   public void setSize(int size) {
-    this.numberOfHardLinks = size;
+    hardLinksLock.lock();
+    try {
+      hardLinksToAvoidGarbageCollection.resize(size, null);
+    } finally {
+      hardLinksLock.unlock();
+    }
   }
 
   @Override
@@ -75,11 +78,11 @@ public class SoftCache implements Cache {
         delegate.removeObject(key);
       } else {
         // See #586 (and #335) modifications need more than a read lock 
-        synchronized (hardLinksToAvoidGarbageCollection) {
-          hardLinksToAvoidGarbageCollection.addFirst(result);
-          if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
-            hardLinksToAvoidGarbageCollection.removeLast();
-          }
+        hardLinksLock.lock();
+        try {
+          hardLinksToAvoidGarbageCollection.add(result);
+        } finally {
+          hardLinksLock.unlock();
         }
       }
     }
@@ -94,8 +97,11 @@ public class SoftCache implements Cache {
 
   @Override
   public void clear() {
-    synchronized (hardLinksToAvoidGarbageCollection) {
+    hardLinksLock.lock();
+    try {
       hardLinksToAvoidGarbageCollection.clear();
+    } finally {
+      hardLinksLock.unlock();
     }
     removeGarbageCollectedItems();
     delegate.clear();
@@ -16,14 +16,19 @@
 package org.apache.ibatis.cache.decorators;
 
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
 
 /**
+ * Serializes the access to the delegate with a lock rather than a monitor, so virtual threads
+ * waiting for it do not pin their carrier thread.
+ *
  * @author Clinton Begin
  */
 public class SynchronizedCache implements Cache {
 
+  private final ReentrantLock lock = new ReentrantLock();
   private final Cache delegate;
   
   public SynchronizedCache(Cache delegate) {
@@ -36,28 +41,53 @@ public class SynchronizedCache implements Cache {
   }
 
   @Override
-  public synchronized int getSize() {
-    return delegate.getSize();
+  public int getSize() {
+    lock.lock();
+    try {
+      return delegate.getSize();
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized void putObject(Object key, Object object) {
-    delegate.putObject(key, object);
+  public void putObject(Object key, Object object) {
+    lock.lock();
+    try {
+      delegate.putObject(key, object);
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized Object getObject(Object key) {
-    return delegate.getObject(key);
+  public Object getObject(Object key) {
+    lock.lock();
+    try {
+      return delegate.getObject(key);
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized Object removeObject(Object key) {
-    return delegate.removeObject(key);
+  public Object removeObject(Object key) {
+    lock.lock();
+    try {
+      return delegate.removeObject(key);
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized void clear() {
-    delegate.clear();
+  public void clear() {
+    lock.lock();
+    try {
+      delegate.clear();
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -0,0 +1,317 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.ConcurrentCache;
+
+/**
+ * W-TinyLFU (window tiny least frequently used) cache decorator.
+ * <p>
+ * New entries go to a small LRU window. Entries leaving the window only stay in the main space,
+ * a segmented LRU, if a frequency sketch says they are used more often than the entry they would
+ * replace, so one-off queries do not push out frequently used results.
+ * <p>
+ * The values are stored in the delegate. The policy is split in segments by key hash: reads never
+ * lock, they are recorded in a lossy buffer that is replayed on the policy under the segment lock.
+ * Reads and writes of different segments reach the delegate concurrently, so the whole cache is
+ * only safe without synchronization when the delegate is.
+ *
+ * @since 3.5.0
+ */
+public class TinyLfuCache implements ConcurrentCache {
+
+  private static final int MAX_SEGMENTS = 16;
+  private static final int MIN_SEGMENT_SIZE = 32;
+
+  private final Cache delegate;
+  private Segment[] segments;
+
+  public TinyLfuCache(Cache delegate) {
+    this.delegate = delegate;
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setSize(final int size) {
+    int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, size / MIN_SEGMENT_SIZE)));
+    Segment[] newSegments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      newSegments[i] = new Segment(delegate, Math.max(1, size / count + (i < size % count ? 1 : 0)));
+    }
+    segments = newSegments;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    segmentFor(key).put(key, value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    segmentFor(key).recordRead(key);
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return segmentFor(key).remove(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private Segment segmentFor(Object key) {
+    int hash = key.hashCode();
+    hash ^= hash >>> 16;
+    return segments[(hash * 0x9e3779b9 >>> 16) & (segments.length - 1)];
+  }
+
+  private static final class Node {
+    static final int UNLINKED = 0;
+    static final int WINDOW = 1;
+    static final int PROBATION = 2;
+    static final int PROTECTED = 3;
+
+    final Object key;
+    Node prev;
+    Node next;
+    int queue;
+
+    Node(Object key) {
+      this.key = key;
+    }
+
+    static Node sentinel() {
+      Node sentinel = new Node(null);
+      sentinel.prev = sentinel;
+      sentinel.next = sentinel;
+      return sentinel;
+    }
+  }
+
+  private static final class Segment {
+    private static final int READ_BUFFER_SIZE = 32;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    private final Cache delegate;
+    private final ConcurrentHashMap<Object, Node> map = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicInteger readCount = new AtomicInteger();
+    private final FrequencySketch sketch;
+    private final Node window = Node.sentinel();
+    private final Node probation = Node.sentinel();
+    private final Node protectedQueue = Node.sentinel();
+    private final int maximum;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+    private int windowSize;
+    private int protectedSize;
+    private int count;
+
+    Segment(Cache delegate, int maximum) {
+      this.delegate = delegate;
+      this.maximum = maximum;
+      this.windowMaximum = Math.max(1, maximum / 100);
+      this.protectedMaximum = (maximum - windowMaximum) * 4 / 5;
+      this.sketch = new FrequencySketch(maximum);
+    }
+
+    void recordRead(Object key) {
+      Node node = map.get(key);
+      if (node == null) {
+        return;
+      }
+      int index = readCount.getAndIncrement() & READ_BUFFER_MASK;
+      readBuffer.lazySet(index, node);
+      if (index == READ_BUFFER_MASK && lock.tryLock()) {
+        try {
+          drainReadBuffer();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    void put(Object key, Object value) {
+      lock.lock();
+      try {
+        drainReadBuffer();
+        delegate.putObject(key, value);
+        Node node = map.get(key);
+        if (node != null) {
+          onAccess(node);
+          return;
+        }
+        node = new Node(key);
+        map.put(key, node);
+        sketch.increment(key);
+        linkLast(window, node, Node.WINDOW);
+        windowSize++;
+        count++;
+        evict();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    Object remove(Object key) {
+      lock.lock();
+      try {
+        Node node = map.remove(key);
+        if (node != null) {
+          unlinkFromQueue(node);
+          count--;
+        }
+        return delegate.removeObject(key);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void clear() {
+      lock.lock();
+      try {
+        for (Node node : map.values()) {
+          // reads still buffered for these nodes must be ignored
+          node.queue = Node.UNLINKED;
+        }
+        map.clear();
+        for (Node head : new Node[] { window, probation, protectedQueue }) {
+          head.prev = head;
+          head.next = head;
+        }
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+          readBuffer.lazySet(i, null);
+        }
+        windowSize = 0;
+        protectedSize = 0;
+        count = 0;
+        sketch.clear();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void drainReadBuffer() {
+      for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+        Node node = readBuffer.getAndSet(i, null);
+        if (node != null) {
+          onAccess(node);
+        }
+      }
+    }
+
+    private void onAccess(Node node) {
+      if (node.queue == Node.UNLINKED) {
+        // removed after the read was buffered
+        return;
+      }
+      sketch.increment(node.key);
+      if (node.queue == Node.PROBATION) {
+        unlink(node);
+        linkLast(protectedQueue, node, Node.PROTECTED);
+        protectedSize++;
+        while (protectedSize > protectedMaximum) {
+          Node demoted = protectedQueue.next;
+          unlink(demoted);
+          protectedSize--;
+          linkLast(probation, demoted, Node.PROBATION);
+        }
+      } else {
+        int queue = node.queue;
+        unlink(node);
+        linkLast(queue == Node.WINDOW ? window : protectedQueue, node, queue);
+      }
+    }
+
+    private void evict() {
+      while (windowSize > windowMaximum) {
+        Node candidate = window.next;
+        unlink(candidate);
+        windowSize--;
+        linkLast(probation, candidate, Node.PROBATION);
+      }
+      while (count > maximum) {
+        Node victim = probation.next;
+        Node candidate = probation.prev;
+        if (victim == probation) {
+          victim = protectedQueue.next != protectedQueue ? protectedQueue.next : window.next;
+        } else if (victim != candidate && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+          // the newcomer is not used more often than the entry it would replace
+          victim = candidate;
+        }
+        map.remove(victim.key);
+        delegate.removeObject(victim.key);
+        unlinkFromQueue(victim);
+        count--;
+      }
+    }
+
+    private void unlinkFromQueue(Node node) {
+      if (node.queue == Node.WINDOW) {
+        windowSize--;
+      } else if (node.queue == Node.PROTECTED) {
+        protectedSize--;
+      }
+      unlink(node);
+    }
+
+    private static void linkLast(Node head, Node node, int queue) {
+      node.queue = queue;
+      node.prev = head.prev;
+      node.next = head;
+      head.prev.next = node;
+      head.prev = node;
+    }
+
+    private static void unlink(Node node) {
+      node.prev.next = node.next;
+      node.next.prev = node.prev;
+      node.prev = null;
+      node.next = null;
+      node.queue = Node.UNLINKED;
+    }
+  }
+
+}
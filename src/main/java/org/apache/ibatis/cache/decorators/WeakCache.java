@@ -17,8 +17,6 @@ package org.apache.ibatis.cache.decorators;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
@@ -30,15 +28,13 @@ import org.apache.ibatis.cache.Cache;
  * @author Clinton Begin
  */
 public class WeakCache implements Cache {
-  private final Deque<Object> hardLinksToAvoidGarbageCollection;
+  private final RingBuffer hardLinksToAvoidGarbageCollection;
   private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
   private final Cache delegate;
-  private int numberOfHardLinks;
 
   public WeakCache(Cache delegate) {
     this.delegate = delegate;
-    this.numberOfHardLinks = 256;
-    this.hardLinksToAvoidGarbageCollection = new LinkedList<>();
+    this.hardLinksToAvoidGarbageCollection = new RingBuffer(256);
     this.queueOfGarbageCollectedEntries = new ReferenceQueue<>();
   }
 
@@ -54,7 +50,7 @@ public class WeakCache implements Cache {
   }
 
   public void setSize(int size) {
-    this.numberOfHardLinks = size;
+    hardLinksToAvoidGarbageCollection.resize(size, null);
   }
 
   @Override
@@ -73,10 +69,7 @@ public class WeakCache implements Cache {
       if (result == null) {
         delegate.removeObject(key);
       } else {
-        hardLinksToAvoidGarbageCollection.addFirst(result);
-        if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
-          hardLinksToAvoidGarbageCollection.removeLast();
-        }
+        hardLinksToAvoidGarbageCollection.add(result);
       }
     }
     return result;
@@ -15,22 +15,26 @@
  */
 package org.apache.ibatis.cache.impl;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.ConcurrentCache;
 
 /**
  * 默认的mybatis二级缓存对象
  * @author Clinton Begin
  */
-public class PerpetualCache implements Cache {
+public class PerpetualCache implements ConcurrentCache {
+
+  /**ConcurrentHashMap不能保存null键和null值，用该对象代替*/
+  private static final Object NULL = new Object();
 
   private final String id;
 
-  private Map<Object, Object> cache = new HashMap<>();
+  private Map<Object, Object> cache = new ConcurrentHashMap<>();
 
   public PerpetualCache(String id) {
     this.id = id;
@@ -48,17 +52,17 @@ public class PerpetualCache implements Cache {
 
   @Override
   public void putObject(Object key, Object value) {
-    cache.put(key, value);
+    cache.put(mask(key), mask(value));
   }
 
   @Override
   public Object getObject(Object key) {
-    return cache.get(key);
+    return unmask(cache.get(mask(key)));
   }
 
   @Override
   public Object removeObject(Object key) {
-    return cache.remove(key);
+    return unmask(cache.remove(mask(key)));
   }
 
   @Override
@@ -95,4 +99,12 @@ public class PerpetualCache implements Cache {
     return getId().hashCode();
   }
 
+  private static Object mask(Object object) {
+    return object == null ? NULL : object;
+  }
+
+  private static Object unmask(Object object) {
+    return object == NULL ? null : object;
+  }
+
 }
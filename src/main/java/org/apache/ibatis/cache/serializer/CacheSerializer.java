@@ -0,0 +1,33 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+/**
+ * Turns cached objects into bytes and back, so a read-write cache can hand out copies.
+ * <p>
+ * Implementations must be thread safe and must accept a null value. Errors are reported as
+ * {@link org.apache.ibatis.cache.CacheException}.
+ *
+ * @since 3.5.0
+ * @see org.apache.ibatis.cache.decorators.SerializedCache
+ */
+public interface CacheSerializer {
+
+  byte[] serialize(Object value);
+
+  Object deserialize(byte[] bytes);
+
+}
@@ -0,0 +1,864 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * A binary serializer for the objects MyBatis usually maps results to: beans, the common
+ * collections and maps, boxed primitives, strings, numbers and the {@code java.util},
+ * {@code java.sql} and {@code java.time} date types.
+ * <p>
+ * Beans are copied field by field. The fields and the no-argument constructor of each class are
+ * looked up once and classes are written as a small id instead of a class descriptor, so the
+ * output has no per-call headers. Shared references and cycles are preserved. Values of other
+ * types, and classes that customize their serialized form ({@code writeReplace},
+ * {@code readObject}, {@link Externalizable}, lazy loading proxies...) fall back to Java
+ * serialization. As with Java serialization, beans must be {@link Serializable}, others fail
+ * with the same {@link CacheException}.
+ * <p>
+ * The class ids belong to this instance, so the bytes can only be read by the instance that wrote
+ * them. This is fine for in-memory copies but the output must not be persisted or shared.
+ *
+ * @since 3.5.0
+ */
+public class CompactSerializer implements CacheSerializer {
+
+  private static final int NULL = 0;
+  private static final int REFERENCE = 1;
+  private static final int STRING = 2;
+  private static final int INTEGER = 3;
+  private static final int LONG = 4;
+  private static final int SHORT = 5;
+  private static final int BYTE = 6;
+  private static final int BOOLEAN = 7;
+  private static final int CHARACTER = 8;
+  private static final int FLOAT = 9;
+  private static final int DOUBLE = 10;
+  private static final int BIG_DECIMAL = 11;
+  private static final int BIG_INTEGER = 12;
+  private static final int DATE = 13;
+  private static final int SQL_DATE = 14;
+  private static final int SQL_TIME = 15;
+  private static final int SQL_TIMESTAMP = 16;
+  private static final int LOCAL_DATE = 17;
+  private static final int LOCAL_TIME = 18;
+  private static final int LOCAL_DATE_TIME = 19;
+  private static final int INSTANT = 20;
+  private static final int OFFSET_TIME = 21;
+  private static final int OFFSET_DATE_TIME = 22;
+  private static final int ZONED_DATE_TIME = 23;
+  private static final int BYTES = 24;
+  private static final int ARRAY_LIST = 25;
+  private static final int LINKED_LIST = 26;
+  private static final int HASH_SET = 27;
+  private static final int LINKED_HASH_SET = 28;
+  private static final int TREE_SET = 29;
+  private static final int HASH_MAP = 30;
+  private static final int LINKED_HASH_MAP = 31;
+  private static final int TREE_MAP = 32;
+  private static final int ARRAY = 33;
+  private static final int ENUM = 34;
+  private static final int BEAN = 35;
+  private static final int SERIALIZED = 36;
+
+  private static final Map<Class<?>, Integer> TYPES = new HashMap<>();
+
+  static {
+    TYPES.put(String.class, STRING);
+    TYPES.put(Integer.class, INTEGER);
+    TYPES.put(Long.class, LONG);
+    TYPES.put(Short.class, SHORT);
+    TYPES.put(Byte.class, BYTE);
+    TYPES.put(Boolean.class, BOOLEAN);
+    TYPES.put(Character.class, CHARACTER);
+    TYPES.put(Float.class, FLOAT);
+    TYPES.put(Double.class, DOUBLE);
+    TYPES.put(BigDecimal.class, BIG_DECIMAL);
+    TYPES.put(BigInteger.class, BIG_INTEGER);
+    TYPES.put(Date.class, DATE);
+    TYPES.put(java.sql.Date.class, SQL_DATE);
+    TYPES.put(java.sql.Time.class, SQL_TIME);
+    TYPES.put(java.sql.Timestamp.class, SQL_TIMESTAMP);
+    TYPES.put(LocalDate.class, LOCAL_DATE);
+    TYPES.put(LocalTime.class, LOCAL_TIME);
+    TYPES.put(LocalDateTime.class, LOCAL_DATE_TIME);
+    TYPES.put(Instant.class, INSTANT);
+    TYPES.put(OffsetTime.class, OFFSET_TIME);
+    TYPES.put(OffsetDateTime.class, OFFSET_DATE_TIME);
+    TYPES.put(ZonedDateTime.class, ZONED_DATE_TIME);
+    TYPES.put(byte[].class, BYTES);
+    TYPES.put(ArrayList.class, ARRAY_LIST);
+    TYPES.put(LinkedList.class, LINKED_LIST);
+    TYPES.put(HashSet.class, HASH_SET);
+    TYPES.put(LinkedHashSet.class, LINKED_HASH_SET);
+    TYPES.put(TreeSet.class, TREE_SET);
+    TYPES.put(HashMap.class, HASH_MAP);
+    TYPES.put(LinkedHashMap.class, LINKED_HASH_MAP);
+    TYPES.put(TreeMap.class, TREE_MAP);
+  }
+
+  private final JavaSerializer fallback = new JavaSerializer();
+  private final Map<Class<?>, ClassInfo> classInfos = new ConcurrentHashMap<>();
+  private volatile ClassInfo[] classesById = new ClassInfo[16];
+  private int classCount;
+
+  @Override
+  public byte[] serialize(Object value) {
+    Output out = new Output();
+    try {
+      write(out, value);
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+    return out.toByteArray();
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try {
+      return read(new Input(bytes));
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  private void write(Output out, Object value) throws IllegalAccessException {
+    if (value == null) {
+      out.writeByte(NULL);
+      return;
+    }
+    Class<?> type = value.getClass();
+    Integer tag = TYPES.get(type);
+    if (tag != null) {
+      if (tag >= BYTES && !out.register(value)) {
+        return;
+      }
+      if ((tag == TREE_SET && ((TreeSet<?>) value).comparator() != null)
+          || (tag == TREE_MAP && ((TreeMap<?, ?>) value).comparator() != null)) {
+        writeSerialized(out, value);
+        return;
+      }
+      out.writeByte(tag);
+      writeKnownType(out, tag, value);
+      return;
+    }
+    ClassInfo info = classInfo(type);
+    if (info.kind == ClassInfo.ENUM) {
+      out.writeByte(ENUM);
+      out.writeVarInt(info.id);
+      out.writeVarInt(((Enum<?>) value).ordinal());
+    } else if (info.kind == ClassInfo.ARRAY) {
+      if (out.register(value)) {
+        int length = Array.getLength(value);
+        out.writeByte(ARRAY);
+        out.writeVarInt(info.id);
+        out.writeVarInt(length);
+        for (int i = 0; i < length; i++) {
+          write(out, Array.get(value, i));
+        }
+      }
+    } else if (info.kind == ClassInfo.BEAN) {
+      if (out.register(value)) {
+        out.writeByte(BEAN);
+        out.writeVarInt(info.id);
+        writeFields(out, info, value);
+      }
+    } else if (out.register(value)) {
+      writeSerialized(out, value);
+    }
+  }
+
+  private void writeSerialized(Output out, Object value) {
+    byte[] bytes = fallback.serialize(value);
+    out.writeByte(SERIALIZED);
+    out.writeVarInt(bytes.length);
+    out.writeBytes(bytes);
+  }
+
+  private void writeKnownType(Output out, int tag, Object value) throws IllegalAccessException {
+    switch (tag) {
+      case STRING:
+        out.writeString((String) value);
+        break;
+      case INTEGER:
+        out.writeVarLong((Integer) value);
+        break;
+      case LONG:
+        out.writeVarLong((Long) value);
+        break;
+      case SHORT:
+        out.writeVarLong((Short) value);
+        break;
+      case BYTE:
+        out.writeByte((Byte) value);
+        break;
+      case BOOLEAN:
+        out.writeByte((Boolean) value ? 1 : 0);
+        break;
+      case CHARACTER:
+        out.writeVarInt((Character) value);
+        break;
+      case FLOAT:
+        out.writeFixedInt(Float.floatToRawIntBits((Float) value));
+        break;
+      case DOUBLE:
+        out.writeFixedLong(Double.doubleToRawLongBits((Double) value));
+        break;
+      case BIG_DECIMAL:
+        BigDecimal decimal = (BigDecimal) value;
+        out.writeVarLong(decimal.scale());
+        writeByteArray(out, decimal.unscaledValue().toByteArray());
+        break;
+      case BIG_INTEGER:
+        writeByteArray(out, ((BigInteger) value).toByteArray());
+        break;
+      case DATE:
+      case SQL_DATE:
+      case SQL_TIME:
+        out.writeVarLong(((Date) value).getTime());
+        break;
+      case SQL_TIMESTAMP:
+        java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+        out.writeVarLong(timestamp.getTime());
+        out.writeVarInt(timestamp.getNanos());
+        break;
+      case LOCAL_DATE:
+        out.writeVarLong(((LocalDate) value).toEpochDay());
+        break;
+      case LOCAL_TIME:
+        out.writeVarLong(((LocalTime) value).toNanoOfDay());
+        break;
+      case LOCAL_DATE_TIME:
+        writeLocalDateTime(out, (LocalDateTime) value);
+        break;
+      case INSTANT:
+        writeInstant(out, (Instant) value);
+        break;
+      case OFFSET_TIME:
+        OffsetTime offsetTime = (OffsetTime) value;
+        out.writeVarLong(offsetTime.toLocalTime().toNanoOfDay());
+        out.writeVarLong(offsetTime.getOffset().getTotalSeconds());
+        break;
+      case OFFSET_DATE_TIME:
+        OffsetDateTime offsetDateTime = (OffsetDateTime) value;
+        writeLocalDateTime(out, offsetDateTime.toLocalDateTime());
+        out.writeVarLong(offsetDateTime.getOffset().getTotalSeconds());
+        break;
+      case ZONED_DATE_TIME:
+        ZonedDateTime zonedDateTime = (ZonedDateTime) value;
+        writeInstant(out, zonedDateTime.toInstant());
+        out.writeString(zonedDateTime.getZone().getId());
+        break;
+      case BYTES:
+        writeByteArray(out, (byte[]) value);
+        break;
+      case HASH_MAP:
+      case LINKED_HASH_MAP:
+      case TREE_MAP:
+        Map<?, ?> map = (Map<?, ?>) value;
+        out.writeVarInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          write(out, entry.getKey());
+          write(out, entry.getValue());
+        }
+        break;
+      default:
+        Collection<?> collection = (Collection<?>) value;
+        out.writeVarInt(collection.size());
+        for (Object element : collection) {
+          write(out, element);
+        }
+        break;
+    }
+  }
+
+  private void writeFields(Output out, ClassInfo info, Object bean) throws IllegalAccessException {
+    Field[] fields = info.fields;
+    for (int i = 0; i < fields.length; i++) {
+      Field field = fields[i];
+      switch (info.fieldTypes[i]) {
+        case 'I':
+          out.writeVarLong(field.getInt(bean));
+          break;
+        case 'J':
+          out.writeVarLong(field.getLong(bean));
+          break;
+        case 'S':
+          out.writeVarLong(field.getShort(bean));
+          break;
+        case 'B':
+          out.writeByte(field.getByte(bean));
+          break;
+        case 'Z':
+          out.writeByte(field.getBoolean(bean) ? 1 : 0);
+          break;
+        case 'C':
+          out.writeVarInt(field.getChar(bean));
+          break;
+        case 'F':
+          out.writeFixedInt(Float.floatToRawIntBits(field.getFloat(bean)));
+          break;
+        case 'D':
+          out.writeFixedLong(Double.doubleToRawLongBits(field.getDouble(bean)));
+          break;
+        default:
+          write(out, field.get(bean));
+          break;
+      }
+    }
+  }
+
+  private static void writeByteArray(Output out, byte[] bytes) {
+    out.writeVarInt(bytes.length);
+    out.writeBytes(bytes);
+  }
+
+  private static void writeLocalDateTime(Output out, LocalDateTime value) {
+    out.writeVarLong(value.toLocalDate().toEpochDay());
+    out.writeVarLong(value.toLocalTime().toNanoOfDay());
+  }
+
+  private static void writeInstant(Output out, Instant value) {
+    out.writeVarLong(value.getEpochSecond());
+    out.writeVarInt(value.getNano());
+  }
+
+  private Object read(Input in) throws ReflectiveOperationException {
+    int tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case REFERENCE:
+        return in.reference(in.readVarInt());
+      case STRING:
+        return in.readString();
+      case INTEGER:
+        return (int) in.readVarLong();
+      case LONG:
+        return in.readVarLong();
+      case SHORT:
+        return (short) in.readVarLong();
+      case BYTE:
+        return (byte) in.readByte();
+      case BOOLEAN:
+        return in.readByte() != 0;
+      case CHARACTER:
+        return (char) in.readVarInt();
+      case FLOAT:
+        return Float.intBitsToFloat(in.readFixedInt());
+      case DOUBLE:
+        return Double.longBitsToDouble(in.readFixedLong());
+      case BIG_DECIMAL:
+        int scale = (int) in.readVarLong();
+        return new BigDecimal(new BigInteger(readByteArray(in)), scale);
+      case BIG_INTEGER:
+        return new BigInteger(readByteArray(in));
+      case DATE:
+        return new Date(in.readVarLong());
+      case SQL_DATE:
+        return new java.sql.Date(in.readVarLong());
+      case SQL_TIME:
+        return new java.sql.Time(in.readVarLong());
+      case SQL_TIMESTAMP:
+        java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readVarLong());
+        timestamp.setNanos(in.readVarInt());
+        return timestamp;
+      case LOCAL_DATE:
+        return LocalDate.ofEpochDay(in.readVarLong());
+      case LOCAL_TIME:
+        return LocalTime.ofNanoOfDay(in.readVarLong());
+      case LOCAL_DATE_TIME:
+        return readLocalDateTime(in);
+      case INSTANT:
+        return readInstant(in);
+      case OFFSET_TIME:
+        LocalTime localTime = LocalTime.ofNanoOfDay(in.readVarLong());
+        return OffsetTime.of(localTime, ZoneOffset.ofTotalSeconds((int) in.readVarLong()));
+      case OFFSET_DATE_TIME:
+        LocalDateTime localDateTime = readLocalDateTime(in);
+        return OffsetDateTime.of(localDateTime, ZoneOffset.ofTotalSeconds((int) in.readVarLong()));
+      case ZONED_DATE_TIME:
+        Instant instant = readInstant(in);
+        return ZonedDateTime.ofInstant(instant, ZoneId.of(in.readString()));
+      case BYTES:
+        return in.register(readByteArray(in));
+      case ARRAY_LIST:
+        int size = in.readVarInt();
+        return readCollection(in, new ArrayList<>(size), size);
+      case LINKED_LIST:
+        return readCollection(in, new LinkedList<>(), in.readVarInt());
+      case HASH_SET:
+        return readCollection(in, new HashSet<>(), in.readVarInt());
+      case LINKED_HASH_SET:
+        return readCollection(in, new LinkedHashSet<>(), in.readVarInt());
+      case TREE_SET:
+        return readCollection(in, new TreeSet<>(), in.readVarInt());
+      case HASH_MAP:
+        return readMap(in, new HashMap<>(), in.readVarInt());
+      case LINKED_HASH_MAP:
+        return readMap(in, new LinkedHashMap<>(), in.readVarInt());
+      case TREE_MAP:
+        return readMap(in, new TreeMap<>(), in.readVarInt());
+      case ARRAY:
+        return readArray(in);
+      case ENUM:
+        ClassInfo enumInfo = classInfo(in.readVarInt());
+        return enumInfo.enumConstants[in.readVarInt()];
+      case BEAN:
+        return readBean(in);
+      case SERIALIZED:
+        return in.register(fallback.deserialize(readByteArray(in)));
+      default:
+        throw new CacheException("Error deserializing object.  Cause: unknown type tag " + tag);
+    }
+  }
+
+  private Object readCollection(Input in, Collection<Object> collection, int size) throws ReflectiveOperationException {
+    in.register(collection);
+    for (int i = 0; i < size; i++) {
+      collection.add(read(in));
+    }
+    return collection;
+  }
+
+  private Object readMap(Input in, Map<Object, Object> map, int size) throws ReflectiveOperationException {
+    in.register(map);
+    for (int i = 0; i < size; i++) {
+      Object key = read(in);
+      map.put(key, read(in));
+    }
+    return map;
+  }
+
+  private Object readArray(Input in) throws ReflectiveOperationException {
+    ClassInfo info = classInfo(in.readVarInt());
+    int length = in.readVarInt();
+    Object array = Array.newInstance(info.type.getComponentType(), length);
+    in.register(array);
+    for (int i = 0; i < length; i++) {
+      Array.set(array, i, read(in));
+    }
+    return array;
+  }
+
+  private Object readBean(Input in) throws ReflectiveOperationException {
+    ClassInfo info = classInfo(in.readVarInt());
+    Object bean = info.constructor.newInstance();
+    in.register(bean);
+    Field[] fields = info.fields;
+    for (int i = 0; i < fields.length; i++) {
+      Field field = fields[i];
+      switch (info.fieldTypes[i]) {
+        case 'I':
+          field.setInt(bean, (int) in.readVarLong());
+          break;
+        case 'J':
+          field.setLong(bean, in.readVarLong());
+          break;
+        case 'S':
+          field.setShort(bean, (short) in.readVarLong());
+          break;
+        case 'B':
+          field.setByte(bean, (byte) in.readByte());
+          break;
+        case 'Z':
+          field.setBoolean(bean, in.readByte() != 0);
+          break;
+        case 'C':
+          field.setChar(bean, (char) in.readVarInt());
+          break;
+        case 'F':
+          field.setFloat(bean, Float.intBitsToFloat(in.readFixedInt()));
+          break;
+        case 'D':
+          field.setDouble(bean, Double.longBitsToDouble(in.readFixedLong()));
+          break;
+        default:
+          field.set(bean, read(in));
+          break;
+      }
+    }
+    return bean;
+  }
+
+  private static byte[] readByteArray(Input in) {
+    return in.readBytes(in.readVarInt());
+  }
+
+  private static LocalDateTime readLocalDateTime(Input in) {
+    LocalDate date = LocalDate.ofEpochDay(in.readVarLong());
+    return LocalDateTime.of(date, LocalTime.ofNanoOfDay(in.readVarLong()));
+  }
+
+  private static Instant readInstant(Input in) {
+    long seconds = in.readVarLong();
+    return Instant.ofEpochSecond(seconds, in.readVarInt());
+  }
+
+  private ClassInfo classInfo(Class<?> type) {
+    ClassInfo info = classInfos.get(type);
+    if (info == null) {
+      synchronized (classInfos) {
+        info = classInfos.get(type);
+        if (info == null) {
+          ClassInfo[] byId = classesById;
+          if (classCount == byId.length) {
+            byId = Arrays.copyOf(byId, byId.length * 2);
+          }
+          info = new ClassInfo(classCount, type);
+          byId[classCount++] = info;
+          classesById = byId;
+          classInfos.put(type, info);
+        }
+      }
+    }
+    return info;
+  }
+
+  private ClassInfo classInfo(int id) {
+    ClassInfo[] byId = classesById;
+    if (id >= byId.length || byId[id] == null) {
+      throw new CacheException("Error deserializing object.  Cause: unknown class id " + id);
+    }
+    return byId[id];
+  }
+
+  private static final class ClassInfo {
+    static final int SERIALIZED = 0;
+    static final int ENUM = 1;
+    static final int ARRAY = 2;
+    static final int BEAN = 3;
+    static final Set<String> SERIALIZATION_METHODS = new HashSet<>(
+        Arrays.asList("writeReplace", "readResolve", "writeObject", "readObject"));
+
+    final int id;
+    final Class<?> type;
+    final int kind;
+    final Object[] enumConstants;
+    final Constructor<?> constructor;
+    final Field[] fields;
+    final char[] fieldTypes;
+
+    ClassInfo(int id, Class<?> type) {
+      this.id = id;
+      this.type = type;
+      Constructor<?> beanConstructor = null;
+      List<Field> beanFields = null;
+      if (type.isEnum() || (type.getSuperclass() != null && type.getSuperclass().isEnum())) {
+        this.kind = ENUM;
+      } else if (type.isArray() && !type.getComponentType().isPrimitive()) {
+        this.kind = ARRAY;
+      } else if (!Serializable.class.isAssignableFrom(type)) {
+        // rejected by the Java serialization fallback
+        this.kind = SERIALIZED;
+      } else {
+        beanFields = beanFields(type);
+        beanConstructor = beanFields == null ? null : beanConstructor(type);
+        this.kind = beanConstructor == null ? SERIALIZED : BEAN;
+      }
+      this.enumConstants = kind == ENUM ? enumType(type).getEnumConstants() : null;
+      this.constructor = kind == BEAN ? beanConstructor : null;
+      this.fields = kind == BEAN ? beanFields.toArray(new Field[0]) : null;
+      this.fieldTypes = kind == BEAN ? fieldTypes(fields) : null;
+    }
+
+    private static Class<?> enumType(Class<?> type) {
+      // constants with a body are subclasses of the enum
+      return type.isEnum() ? type : type.getSuperclass();
+    }
+
+    private static Constructor<?> beanConstructor(Class<?> type) {
+      if (type.isInterface() || type.isPrimitive() || type.isArray() || Modifier.isAbstract(type.getModifiers())
+          || Externalizable.class.isAssignableFrom(type)) {
+        return null;
+      }
+      try {
+        Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return constructor;
+      } catch (NoSuchMethodException | RuntimeException e) {
+        return null;
+      }
+    }
+
+    private static List<Field> beanFields(Class<?> type) {
+      List<Field> fields = new ArrayList<>();
+      for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+        if (isPlatformClass(current) || customizesSerialization(current)) {
+          return null;
+        }
+        for (Field field : current.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+            continue;
+          }
+          try {
+            field.setAccessible(true);
+          } catch (RuntimeException e) {
+            return null;
+          }
+          fields.add(field);
+        }
+      }
+      return fields;
+    }
+
+    private static boolean isPlatformClass(Class<?> type) {
+      String name = type.getName();
+      return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+          || name.startsWith("sun.") || name.startsWith("com.sun.");
+    }
+
+    private static boolean customizesSerialization(Class<?> type) {
+      for (Method method : type.getDeclaredMethods()) {
+        if (SERIALIZATION_METHODS.contains(method.getName())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static char[] fieldTypes(Field[] fields) {
+      char[] types = new char[fields.length];
+      for (int i = 0; i < fields.length; i++) {
+        Class<?> type = fields[i].getType();
+        types[i] = type.isPrimitive() ? Array.newInstance(type, 0).getClass().getName().charAt(1) : 'L';
+      }
+      return types;
+    }
+  }
+
+  private static final class Output {
+    private byte[] buffer = new byte[256];
+    private int position;
+    private IdentityHashMap<Object, Integer> handles;
+
+    /*
+     * Returns true when the object is seen for the first time, otherwise writes a reference to it.
+     */
+    boolean register(Object value) {
+      if (handles == null) {
+        handles = new IdentityHashMap<>();
+      }
+      Integer handle = handles.putIfAbsent(value, handles.size());
+      if (handle == null) {
+        return true;
+      }
+      writeByte(REFERENCE);
+      writeVarInt(handle);
+      return false;
+    }
+
+    void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[position++] = (byte) value;
+    }
+
+    void writeBytes(byte[] bytes) {
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    void writeVarInt(int value) {
+      ensureCapacity(5);
+      while ((value & ~0x7f) != 0) {
+        buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+      ensureCapacity(10);
+      // zig-zag encoding keeps small negative numbers short
+      long zigZag = (value << 1) ^ (value >> 63);
+      while ((zigZag & ~0x7fL) != 0) {
+        buffer[position++] = (byte) ((zigZag & 0x7f) | 0x80);
+        zigZag >>>= 7;
+      }
+      buffer[position++] = (byte) zigZag;
+    }
+
+    void writeFixedInt(int value) {
+      ensureCapacity(4);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        buffer[position++] = (byte) (value >>> shift);
+      }
+    }
+
+    void writeFixedLong(long value) {
+      ensureCapacity(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buffer[position++] = (byte) (value >>> shift);
+      }
+    }
+
+    void writeString(String value) {
+      int length = value.length();
+      writeVarInt(length);
+      ensureCapacity(length * 3);
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          buffer[position++] = (byte) c;
+        } else if (c < 0x4000) {
+          buffer[position++] = (byte) ((c & 0x7f) | 0x80);
+          buffer[position++] = (byte) (c >>> 7);
+        } else {
+          buffer[position++] = (byte) ((c & 0x7f) | 0x80);
+          buffer[position++] = (byte) (((c >>> 7) & 0x7f) | 0x80);
+          buffer[position++] = (byte) (c >>> 14);
+        }
+      }
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int length) {
+      if (position + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+      }
+    }
+  }
+
+  private static final class Input {
+    private final byte[] buffer;
+    private int position;
+    private final List<Object> handles = new ArrayList<>();
+
+    Input(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    <T> T register(T value) {
+      handles.add(value);
+      return value;
+    }
+
+    Object reference(int handle) {
+      return handles.get(handle);
+    }
+
+    int readByte() {
+      return buffer[position++];
+    }
+
+    byte[] readBytes(int length) {
+      byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+      position += length;
+      return bytes;
+    }
+
+    int readVarInt() {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+        int b = buffer[position++];
+        value |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+
+    long readVarLong() {
+      long zigZag = 0;
+      for (int shift = 0; ; shift += 7) {
+        long b = buffer[position++];
+        zigZag |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          return (zigZag >>> 1) ^ -(zigZag & 1);
+        }
+      }
+    }
+
+    int readFixedInt() {
+      int value = 0;
+      for (int i = 0; i < 4; i++) {
+        value = (value << 8) | (buffer[position++] & 0xff);
+      }
+      return value;
+    }
+
+    long readFixedLong() {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | (buffer[position++] & 0xff);
+      }
+      return value;
+    }
+
+    String readString() {
+      int length = readVarInt();
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        int c = 0;
+        for (int shift = 0; ; shift += 7) {
+          int b = buffer[position++];
+          c |= (b & 0x7f) << shift;
+          if (b >= 0) {
+            break;
+          }
+        }
+        chars[i] = (char) c;
+      }
+      return new String(chars);
+    }
+  }
+
+}
@@ -0,0 +1,60 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.SerializedCache.CustomObjectInputStream;
+
+/**
+ * Copies objects with standard Java serialization. Every cached object must be
+ * {@link Serializable}. This is the default serializer.
+ *
+ * @since 3.5.0
+ */
+public class JavaSerializer implements CacheSerializer {
+
+  @Override
+  public byte[] serialize(Object value) {
+    if (value != null && !(value instanceof Serializable)) {
+      throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + value);
+    }
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+         ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(value);
+      oos.flush();
+      return bos.toByteArray();
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
+         ObjectInputStream ois = new CustomObjectInputStream(bis)) {
+      return ois.readObject();
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+}
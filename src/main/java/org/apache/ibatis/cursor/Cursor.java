@@ -16,6 +16,12 @@
 package org.apache.ibatis.cursor;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Cursor contract to handle fetching items lazily using an Iterator.
@@ -42,4 +48,26 @@ public interface Cursor<T> extends Closeable, Iterable<T> {
      * @return -1 if the first cursor item has not been retrieved. The index of the current item retrieved.
      */
     int getCurrentIndex();
+
+    /**
+     * @since 3.5.0
+     */
+    @Override
+    default Spliterator<T> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * Returns a sequential stream of the cursor items. Closing the stream closes the cursor.
+     * @since 3.5.0
+     */
+    default Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
 }
@@ -0,0 +1,259 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import org.apache.ibatis.cursor.Cursor;
+
+import java.io.IOException;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Cursor that fetches and maps the rows of another cursor on a separate thread, up to
+ * a given number of rows ahead of the consumer, so the database round trips and the mapping
+ * overlap with the consumption.
+ * <p>
+ * Only the producer thread uses the result set, but it shares the connection with the session.
+ * The session must therefore not be used for anything else until the cursor is closed. Closing
+ * the cursor stops the producer and waits for it before the result set is closed.
+ *
+ * @since 3.5.0
+ */
+public class PrefetchingCursor<T> implements Cursor<T> {
+
+    public static final ThreadFactory DEFAULT_THREAD_FACTORY = runnable -> {
+        Thread thread = new Thread(runnable, "mybatis-cursor-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    /**
+     * The number of rows fetched ahead when the cursorPrefetchSize setting is not set.
+     */
+    public static final int DEFAULT_PREFETCH_SIZE = 64;
+
+    private static final Object END = new Object();
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private static final int TARGET_FETCH_BYTES = 1 << 20;
+    private static final int MAX_COLUMN_BYTES = 4096;
+
+    private final Cursor<T> delegate;
+    private final BlockingQueue<Object> queue;
+    private final ThreadFactory threadFactory;
+    private final int offset;
+    private final CountDownLatch producerDone = new CountDownLatch(1);
+    private final PrefetchIterator prefetchIterator = new PrefetchIterator();
+    private boolean iteratorRetrieved;
+
+    private volatile boolean started;
+    private volatile boolean closed;
+    private boolean consumed;
+    private int consumedIndex = -1;
+
+    public PrefetchingCursor(Cursor<T> delegate, int prefetchSize, int offset, ThreadFactory threadFactory) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, prefetchSize));
+        this.offset = offset;
+        this.threadFactory = threadFactory == null ? DEFAULT_THREAD_FACTORY : threadFactory;
+    }
+
+    /**
+     * Estimates a fetch size that brings about 1MB per round trip, from the display sizes of the columns.
+     */
+    public static int estimateFetchSize(ResultSetMetaData metaData) throws SQLException {
+        long rowBytes = 0;
+        for (int i = 1, n = metaData.getColumnCount(); i <= n; i++) {
+            int displaySize = metaData.getColumnDisplaySize(i);
+            // LOBs report huge or no sizes
+            rowBytes += displaySize <= 0 ? 16 : Math.min(displaySize, MAX_COLUMN_BYTES);
+        }
+        return fetchSizeForRowBytes(rowBytes);
+    }
+
+    /**
+     * The fetch size that brings about 1MB per round trip for rows of the given size.
+     */
+    public static int fetchSizeForRowBytes(long rowBytes) {
+        return (int) Math.max(10, Math.min(5000, TARGET_FETCH_BYTES / Math.max(rowBytes, 1)));
+    }
+
+    @Override
+    public boolean isOpen() {
+        return started && !closed && !consumed;
+    }
+
+    @Override
+    public boolean isConsumed() {
+        return consumed;
+    }
+
+    @Override
+    public int getCurrentIndex() {
+        return offset + consumedIndex;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (iteratorRetrieved) {
+            throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+        }
+        iteratorRetrieved = true;
+        return prefetchIterator;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (!started) {
+            closeDelegate();
+            return;
+        }
+        queue.clear();
+        try {
+            producerDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void start() {
+        started = true;
+        threadFactory.newThread(this::produce).start();
+    }
+
+    private void produce() {
+        try {
+            Iterator<T> iterator = delegate.iterator();
+            while (!closed && iterator.hasNext()) {
+                if (!offer(iterator.next())) {
+                    return;
+                }
+            }
+            offer(END);
+        } catch (Throwable t) {
+            offer(new Failure(t));
+        } finally {
+            closeDelegate();
+            producerDone.countDown();
+        }
+    }
+
+    private boolean offer(Object element) {
+        try {
+            while (!closed) {
+                if (queue.offer(element, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private void closeDelegate() {
+        try {
+            delegate.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T take() {
+        if (closed || consumed) {
+            return null;
+        }
+        if (!started) {
+            start();
+        }
+        Object element;
+        try {
+            element = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the next row of the cursor", e);
+        }
+        if (element == END) {
+            consumed = true;
+            return null;
+        }
+        if (element instanceof Failure) {
+            consumed = true;
+            Throwable cause = ((Failure) element).cause;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        return (T) element;
+    }
+
+    private static class Failure {
+        private final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    private class PrefetchIterator implements Iterator<T> {
+
+        /**
+         * Holder for the next object to be returned
+         */
+        T object;
+
+        @Override
+        public boolean hasNext() {
+            if (object == null) {
+                object = take();
+            }
+            return object != null;
+        }
+
+        @Override
+        public T next() {
+            T next = object;
+            if (next == null) {
+                next = take();
+            }
+            if (next != null) {
+                object = null;
+                consumedIndex++;
+                return next;
+            }
+            throw new NoSuchElementException();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Cannot remove element from Cursor");
+        }
+    }
+}
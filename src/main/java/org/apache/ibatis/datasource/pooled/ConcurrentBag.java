@@ -0,0 +1,197 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free collection of pool entries used by the concurrent pool engine.
+ * <p>
+ * Entries are borrowed by a CAS on their state. A borrowing thread first looks at the entries it
+ * returned itself (thread-local affinity), then scans the shared list, and finally waits on a fair
+ * hand-off queue fed by threads returning entries.
+ */
+class ConcurrentBag<T extends ConcurrentBag.BagEntry> {
+
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+  static final int STATE_REMOVED = -1;
+
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<T> sharedList = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<List<WeakReference<T>>> threadList = ThreadLocal.withInitial(() -> new ArrayList<>(MAX_THREAD_LOCAL_ENTRIES));
+  private final SynchronousQueue<T> handoffQueue = new SynchronousQueue<>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  // kept up to date on every state change so that returning an entry does not scan the list
+  private final AtomicInteger idleCount = new AtomicInteger();
+
+  interface BagEntry {
+
+    int getState();
+
+    boolean compareAndSetState(int expect, int update);
+
+    void setState(int update);
+
+  }
+
+  /*
+   * Borrows an idle entry, waiting at most the given time for one to be returned.
+   *
+   * @param timeout how long to wait, zero or less to only look at the currently idle entries
+   * @param unit the unit of the timeout
+   * @return the borrowed entry or null if none became available in time
+   */
+  T borrow(long timeout, TimeUnit unit) throws InterruptedException {
+    List<WeakReference<T>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      T entry = list.remove(i).get();
+      if (entry != null && claim(entry)) {
+        return entry;
+      }
+    }
+
+    long remaining = unit.toNanos(timeout);
+    if (remaining <= 0) {
+      return scan();
+    }
+
+    // count as a waiter before scanning, so that an entry returned meanwhile is handed off
+    waiters.incrementAndGet();
+    try {
+      T scanned = scan();
+      if (scanned != null) {
+        return scanned;
+      }
+
+      while (remaining > 0) {
+        long start = System.nanoTime();
+        T entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null || claim(entry)) {
+          return entry;
+        }
+        remaining -= System.nanoTime() - start;
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  private T scan() {
+    for (T entry : sharedList) {
+      if (claim(entry)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private boolean claim(T entry) {
+    if (entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+      idleCount.decrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /*
+   * Returns a borrowed entry, handing it directly to a waiting thread when there is one.
+   *
+   * @param entry the entry to return
+   */
+  void requite(T entry) {
+    entry.setState(STATE_NOT_IN_USE);
+    idleCount.incrementAndGet();
+    while (waiters.get() > 0) {
+      if (entry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      }
+      Thread.yield();
+    }
+    List<WeakReference<T>> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_ENTRIES) {
+      list.add(new WeakReference<>(entry));
+    }
+  }
+
+  /*
+   * Adds a new entry to the bag. An idle entry is offered to the waiting threads.
+   *
+   * @param entry the entry to add
+   */
+  void add(T entry) {
+    if (entry.getState() == STATE_NOT_IN_USE) {
+      idleCount.incrementAndGet();
+    }
+    sharedList.add(entry);
+    while (waiters.get() > 0 && entry.getState() == STATE_NOT_IN_USE && !handoffQueue.offer(entry)) {
+      Thread.yield();
+    }
+  }
+
+  /*
+   * Removes a borrowed entry from the bag.
+   *
+   * @param entry the entry to remove
+   * @return true if the entry was part of the bag
+   */
+  boolean remove(T entry) {
+    int state;
+    do {
+      state = entry.getState();
+    } while (state != STATE_REMOVED && !entry.compareAndSetState(state, STATE_REMOVED));
+    if (state == STATE_NOT_IN_USE) {
+      idleCount.decrementAndGet();
+    }
+    threadList.get().removeIf(reference -> reference.get() == entry);
+    return sharedList.remove(entry);
+  }
+
+  /*
+   * Marks an idle entry as borrowed so that it can be removed or inspected safely.
+   *
+   * @param entry the entry to reserve
+   * @return true if the entry was idle and is now owned by the caller
+   */
+  boolean reserve(T entry) {
+    return claim(entry);
+  }
+
+  List<T> values() {
+    return new ArrayList<>(sharedList);
+  }
+
+  int getIdleCount() {
+    return idleCount.get();
+  }
+
+  int size() {
+    return sharedList.size();
+  }
+
+  int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+}
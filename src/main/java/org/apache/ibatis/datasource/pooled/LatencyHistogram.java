@@ -0,0 +1,95 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free log-linear histogram in the spirit of HdrHistogram.
+ * <p>
+ * Values below 32 get a bucket of their own, larger values share a bucket with the values that have
+ * the same 5 most significant bits, so any recorded value is reported within about 3%.
+ */
+class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+  void record(long value) {
+    counts.incrementAndGet(indexOf(Math.max(value, 0)));
+  }
+
+  /*
+   * Copies the current bucket counts, the copy can be given to valueAtPercentile.
+   *
+   * @return the bucket counts
+   */
+  long[] snapshot() {
+    long[] copy = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      copy[i] = counts.get(i);
+    }
+    return copy;
+  }
+
+  /*
+   * Computes a percentile from a copy of the bucket counts.
+   *
+   * @param snapshot bucket counts returned by snapshot()
+   * @param percentile the percentile, between 0 and 100
+   * @return the highest value of the bucket holding the percentile, 0 if nothing was recorded
+   */
+  static long valueAtPercentile(long[] snapshot, double percentile) {
+    long total = 0;
+    for (long count : snapshot) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+    long seen = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return highestValueOf(i);
+      }
+    }
+    return highestValueOf(snapshot.length - 1);
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long highestValueOf(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+}
@@ -0,0 +1,108 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A physical connection held by the concurrent pool engine.
+ * <p>
+ * The entry outlives the {@link PooledConnection} handed to the caller: every checkout wraps the
+ * real connection in a new {@link PooledConnection}, so a proxy closed by a previous user can
+ * never reach the connection again.
+ */
+class PoolEntry implements ConcurrentBag.BagEntry {
+
+  private static final AtomicIntegerFieldUpdater<PoolEntry> STATE_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(PoolEntry.class, "state");
+  private static final AtomicReferenceFieldUpdater<PoolEntry, PooledConnection> OWNER_UPDATER =
+      AtomicReferenceFieldUpdater.newUpdater(PoolEntry.class, PooledConnection.class, "owner");
+
+  private final Connection realConnection;
+  private final long createdTimestamp;
+  private volatile long lastUsedTimestamp;
+  private volatile int state;
+  /**
+   * The connection currently checked out on top of this entry
+   */
+  private volatile PooledConnection owner;
+
+  PoolEntry(Connection realConnection) {
+    this.realConnection = realConnection;
+    this.createdTimestamp = System.currentTimeMillis();
+    this.lastUsedTimestamp = createdTimestamp;
+  }
+
+  /*
+   * Wraps the real connection in a new pooled connection that carries the entry timestamps.
+   *
+   * @param dataSource - the dataSource that the connection is from
+   * @return the new pooled connection
+   */
+  PooledConnection newPooledConnection(PooledDataSource dataSource) {
+    PooledConnection conn = new PooledConnection(realConnection, dataSource);
+    conn.setPoolEntry(this);
+    conn.setCreatedTimestamp(createdTimestamp);
+    conn.setLastUsedTimestamp(lastUsedTimestamp);
+    return conn;
+  }
+
+  Connection getRealConnection() {
+    return realConnection;
+  }
+
+  long getLastUsedTimestamp() {
+    return lastUsedTimestamp;
+  }
+
+  void setLastUsedTimestamp(long lastUsedTimestamp) {
+    this.lastUsedTimestamp = lastUsedTimestamp;
+  }
+
+  long getCreatedTimestamp() {
+    return createdTimestamp;
+  }
+
+  PooledConnection getOwner() {
+    return owner;
+  }
+
+  void setOwner(PooledConnection owner) {
+    this.owner = owner;
+  }
+
+  boolean compareAndSetOwner(PooledConnection expect, PooledConnection update) {
+    return OWNER_UPDATER.compareAndSet(this, expect, update);
+  }
+
+  @Override
+  public int getState() {
+    return state;
+  }
+
+  @Override
+  public boolean compareAndSetState(int expect, int update) {
+    return STATE_UPDATER.compareAndSet(this, expect, update);
+  }
+
+  @Override
+  public void setState(int update) {
+    this.state = update;
+  }
+
+}
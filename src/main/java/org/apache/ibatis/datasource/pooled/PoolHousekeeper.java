@@ -0,0 +1,70 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Runs {@link PooledDataSource#housekeep()} periodically on a daemon thread.
+ * <p>
+ * Only a weak reference to the data source is kept, so an unreferenced pool can still be collected;
+ * the thread stops on the next run after that.
+ */
+class PoolHousekeeper implements Runnable {
+
+  private static final Log log = LogFactory.getLog(PoolHousekeeper.class);
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+
+  private final WeakReference<PooledDataSource> dataSource;
+  private final ScheduledExecutorService executor;
+
+  PoolHousekeeper(PooledDataSource dataSource, long interval) {
+    this.dataSource = new WeakReference<>(dataSource);
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-housekeeper-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void run() {
+    PooledDataSource pool = dataSource.get();
+    if (pool == null) {
+      executor.shutdown();
+      return;
+    }
+    try {
+      pool.housekeep();
+    } catch (RuntimeException e) {
+      // an exception would cancel the periodic task
+      log.warn("Pool housekeeping failed: " + e.getMessage());
+    }
+  }
+
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+}
@@ -17,8 +17,15 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * None of the getters lock the pool, the idle and active connection counts of the synchronized
+ * engine are read without the pool lock and may be slightly stale.
+ *
  * @author Clinton Begin
  */
 public class PoolState {
@@ -34,72 +41,116 @@ public class PoolState {
    * 活动的链接对象
    */
   protected final List<PooledConnection> activeConnections = new ArrayList<>();
-  protected long requestCount = 0;
-  protected long accumulatedRequestTime = 0;
-  protected long accumulatedCheckoutTime = 0;
+  /**
+   * 保护空闲和活动连接列表的锁，等待连接的线程在connectionAvailable上等待
+   * 使用j.u.c的锁而不是对象监视器，虚拟线程等待时不会占住载体线程
+   */
+  final ReentrantLock lock = new ReentrantLock();
+  final Condition connectionAvailable = lock.newCondition();
+  /**
+   * 后台维护正在校验或创建、暂时不在两个列表中的连接数，由lock保护，计入最大活动连接数
+   */
+  int reservedConnections;
+  /**
+   * 并发连接池引擎的连接集合
+   */
+  protected final ConcurrentBag<PoolEntry> connectionBag = new ConcurrentBag<>();
+  /**
+   * 并发连接池引擎已创建（含正在创建）的连接数
+   */
+  protected final AtomicInteger totalConnections = new AtomicInteger();
+  protected final LongAdder requestCount = new LongAdder();
+  protected final LongAdder accumulatedRequestTime = new LongAdder();
+  protected final LongAdder accumulatedCheckoutTime = new LongAdder();
   /**
    * 已过期的数据库连接计数
    */
-  protected long claimedOverdueConnectionCount = 0;
+  protected final LongAdder claimedOverdueConnectionCount = new LongAdder();
   /**
    * 过期时间的累计签出时间
    */
-  protected long accumulatedCheckoutTimeOfOverdueConnections = 0;
-  protected long accumulatedWaitTime = 0;
-  protected long hadToWaitCount = 0;
+  protected final LongAdder accumulatedCheckoutTimeOfOverdueConnections = new LongAdder();
+  protected final LongAdder accumulatedWaitTime = new LongAdder();
+  protected final LongAdder hadToWaitCount = new LongAdder();
   /**
    * 无法使用的数据库连接计数器  connection.isClosed()为true
    */
-  protected long badConnectionCount = 0;
+  protected final LongAdder badConnectionCount = new LongAdder();
+  /**
+   * 等待获取连接时间的分布
+   */
+  final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+  /**
+   * 连接签出时间的分布
+   */
+  final LatencyHistogram checkoutTimeHistogram = new LatencyHistogram();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  public long getRequestCount() {
+    return requestCount.sum();
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  public long getAverageRequestTime() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : accumulatedRequestTime.sum() / requests;
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  public long getAverageWaitTime() {
+    long waits = hadToWaitCount.sum();
+    return waits == 0 ? 0 : accumulatedWaitTime.sum() / waits;
 
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  public long getHadToWaitCount() {
+    return hadToWaitCount.sum();
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  public long getBadConnectionCount() {
+    return badConnectionCount.sum();
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount.sum();
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  public long getAverageOverdueCheckoutTime() {
+    long overdue = claimedOverdueConnectionCount.sum();
+    return overdue == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections.sum() / overdue;
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  public long getAverageCheckoutTime() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : accumulatedCheckoutTime.sum() / requests;
   }
 
 
-  public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+  public int getIdleConnectionCount() {
+    return idleConnections.size() + connectionBag.getIdleCount();
+  }
+
+  public int getActiveConnectionCount() {
+    return activeConnections.size() + (connectionBag.size() - connectionBag.getIdleCount());
   }
 
-  public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+  void recordCheckoutTime(long checkoutTime) {
+    accumulatedCheckoutTime.add(checkoutTime);
+    checkoutTimeHistogram.record(checkoutTime);
+  }
+
+  /**
+   * 获取统计信息的快照，包括等待时间和签出时间的百分位数，不会锁住连接池
+   *
+   * @since 3.5.0
+   */
+  public PoolStatistics snapshot() {
+    return new PoolStatistics(this);
   }
 
   @Override
-  public synchronized String toString() {
+  public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("\n===CONFINGURATION==============================================");
     builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -113,17 +164,13 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolConcurrentBagEnabled       ").append(dataSource.poolConcurrentBagEnabled);
+    builder.append("\n poolHousekeepingInterval       ").append(dataSource.poolHousekeepingInterval);
+    builder.append("\n poolMinimumIdleConnections     ").append(dataSource.poolMinimumIdleConnections);
+    builder.append("\n poolMaximumLifetime            ").append(dataSource.poolMaximumLifetime);
+    builder.append("\n poolMaximumIdleTime            ").append(dataSource.poolMaximumIdleTime);
     builder.append("\n ---STATUS-----------------------------------------------------");
-    builder.append("\n activeConnections              ").append(getActiveConnectionCount());
-    builder.append("\n idleConnections                ").append(getIdleConnectionCount());
-    builder.append("\n requestCount                   ").append(getRequestCount());
-    builder.append("\n averageRequestTime             ").append(getAverageRequestTime());
-    builder.append("\n averageCheckoutTime            ").append(getAverageCheckoutTime());
-    builder.append("\n claimedOverdue                 ").append(getClaimedOverdueConnectionCount());
-    builder.append("\n averageOverdueCheckoutTime     ").append(getAverageOverdueCheckoutTime());
-    builder.append("\n hadToWait                      ").append(getHadToWaitCount());
-    builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
-    builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append(snapshot());
     builder.append("\n===============================================================");
     return builder.toString();
   }
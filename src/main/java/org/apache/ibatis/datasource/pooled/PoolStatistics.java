@@ -0,0 +1,160 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * An immutable copy of the {@link PoolState} statistics, taken without locking the pool.
+ * <p>
+ * All times are in milliseconds. The counters are read one after the other while the pool keeps
+ * running, so they may be slightly out of step with each other.
+ *
+ * @since 3.5.0
+ */
+public final class PoolStatistics {
+
+  private final long requestCount;
+  private final long accumulatedRequestTime;
+  private final long accumulatedCheckoutTime;
+  private final long claimedOverdueConnectionCount;
+  private final long accumulatedCheckoutTimeOfOverdueConnections;
+  private final long accumulatedWaitTime;
+  private final long hadToWaitCount;
+  private final long badConnectionCount;
+  private final int idleConnectionCount;
+  private final int activeConnectionCount;
+  private final long[] waitTimes;
+  private final long[] checkoutTimes;
+
+  PoolStatistics(PoolState state) {
+    this.requestCount = state.requestCount.sum();
+    this.accumulatedRequestTime = state.accumulatedRequestTime.sum();
+    this.accumulatedCheckoutTime = state.accumulatedCheckoutTime.sum();
+    this.claimedOverdueConnectionCount = state.claimedOverdueConnectionCount.sum();
+    this.accumulatedCheckoutTimeOfOverdueConnections = state.accumulatedCheckoutTimeOfOverdueConnections.sum();
+    this.accumulatedWaitTime = state.accumulatedWaitTime.sum();
+    this.hadToWaitCount = state.hadToWaitCount.sum();
+    this.badConnectionCount = state.badConnectionCount.sum();
+    this.idleConnectionCount = state.getIdleConnectionCount();
+    this.activeConnectionCount = state.getActiveConnectionCount();
+    this.waitTimes = state.waitTimeHistogram.snapshot();
+    this.checkoutTimes = state.checkoutTimeHistogram.snapshot();
+  }
+
+  public long getRequestCount() {
+    return requestCount;
+  }
+
+  public long getAverageRequestTime() {
+    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  }
+
+  public long getAverageWaitTime() {
+    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  }
+
+  public long getHadToWaitCount() {
+    return hadToWaitCount;
+  }
+
+  public long getBadConnectionCount() {
+    return badConnectionCount;
+  }
+
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount;
+  }
+
+  public long getAverageOverdueCheckoutTime() {
+    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  }
+
+  public long getAverageCheckoutTime() {
+    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  }
+
+  public int getIdleConnectionCount() {
+    return idleConnectionCount;
+  }
+
+  public int getActiveConnectionCount() {
+    return activeConnectionCount;
+  }
+
+  /*
+   * The time spent waiting for a connection by the requests that had to wait
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the wait time
+   */
+  public long getWaitTimePercentile(double percentile) {
+    return LatencyHistogram.valueAtPercentile(waitTimes, percentile);
+  }
+
+  /*
+   * The time connections were checked out before being returned or claimed as overdue
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the checkout time
+   */
+  public long getCheckoutTimePercentile(double percentile) {
+    return LatencyHistogram.valueAtPercentile(checkoutTimes, percentile);
+  }
+
+  public long getWaitTimeP50() {
+    return getWaitTimePercentile(50);
+  }
+
+  public long getWaitTimeP99() {
+    return getWaitTimePercentile(99);
+  }
+
+  public long getWaitTimeP999() {
+    return getWaitTimePercentile(99.9);
+  }
+
+  public long getCheckoutTimeP50() {
+    return getCheckoutTimePercentile(50);
+  }
+
+  public long getCheckoutTimeP99() {
+    return getCheckoutTimePercentile(99);
+  }
+
+  public long getCheckoutTimeP999() {
+    return getCheckoutTimePercentile(99.9);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("\n activeConnections              ").append(activeConnectionCount);
+    builder.append("\n idleConnections                ").append(idleConnectionCount);
+    builder.append("\n requestCount                   ").append(requestCount);
+    builder.append("\n averageRequestTime             ").append(getAverageRequestTime());
+    builder.append("\n averageCheckoutTime            ").append(getAverageCheckoutTime());
+    builder.append("\n checkoutTime p50/p99/p999      ").append(getCheckoutTimeP50())
+        .append('/').append(getCheckoutTimeP99()).append('/').append(getCheckoutTimeP999());
+    builder.append("\n claimedOverdue                 ").append(claimedOverdueConnectionCount);
+    builder.append("\n averageOverdueCheckoutTime     ").append(getAverageOverdueCheckoutTime());
+    builder.append("\n hadToWait                      ").append(hadToWaitCount);
+    builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
+    builder.append("\n waitTime p50/p99/p999          ").append(getWaitTimeP50())
+        .append('/').append(getWaitTimeP99()).append('/').append(getWaitTimeP999());
+    builder.append("\n badConnectionCount             ").append(badConnectionCount);
+    return builder.toString();
+  }
+
+}
@@ -58,6 +58,10 @@ class PooledConnection implements InvocationHandler {
   private long lastUsedTimestamp;
   private int connectionTypeCode;
   private boolean valid;
+  /**
+   * 并发连接池引擎中持有真正连接的条目，同步引擎下为null
+   */
+  private PoolEntry poolEntry;
 
   /*
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in
@@ -105,6 +109,19 @@ class PooledConnection implements InvocationHandler {
     return proxyConnection;
   }
 
+  /*
+   * Getter for the entry of the concurrent pool engine that owns the real connection
+   *
+   * @return The entry or null when the connection belongs to the synchronized pool
+   */
+  PoolEntry getPoolEntry() {
+    return poolEntry;
+  }
+
+  void setPoolEntry(PoolEntry poolEntry) {
+    this.poolEntry = poolEntry;
+  }
+
   /*
    * Gets the hashcode of the real connection (or 0 if it is null)
    *
@@ -23,7 +23,10 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -35,6 +38,7 @@ import org.apache.ibatis.logging.LogFactory;
 /**
  * 这是mybatis数据库对象的装饰类
  * This is a simple, synchronous, thread-safe database connection pool.
+ * Waiting threads block on a lock condition rather than a monitor, so they do not pin the carrier of a virtual thread.
  *
  * @author Clinton Begin
  */
@@ -63,8 +67,30 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  /**
+   * 是否使用基于ConcurrentBag的无锁连接池引擎
+   */
+  protected boolean poolConcurrentBagEnabled;
+  /**
+   * 后台维护线程的执行间隔（毫秒），0表示不启用
+   */
+  protected int poolHousekeepingInterval;
+  /**
+   * 后台维护线程预热的最小空闲连接数
+   */
+  protected int poolMinimumIdleConnections;
+  /**
+   * 连接的最大存活时间（毫秒），0表示不限制
+   */
+  protected int poolMaximumLifetime;
+  /**
+   * 空闲连接的最大空闲时间（毫秒），0表示不限制
+   */
+  protected int poolMaximumIdleTime;
 
-  private int expectedConnectionTypeCode;
+  private volatile PoolHousekeeper housekeeper;
+
+  private volatile int expectedConnectionTypeCode;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -101,11 +127,17 @@ public class PooledDataSource implements DataSource {
    */
   @Override
   public Connection getConnection() throws SQLException {
-    return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
+    return getConnection(dataSource.getUsername(), dataSource.getPassword());
   }
 
   @Override
   public Connection getConnection(String username, String password) throws SQLException {
+    if (housekeeper == null && poolHousekeepingInterval > 0) {
+      startHousekeeper();
+    }
+    if (poolConcurrentBagEnabled) {
+      return borrowConnection(username, password).getProxyConnection();
+    }
     return popConnection(username, password).getProxyConnection();
   }
 
@@ -250,6 +282,88 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /*
+   * Switches the pool to the lock-free engine: connections are checked out with a CAS on a
+   * concurrent bag instead of under the pool state monitor.
+   *
+   * @param poolConcurrentBagEnabled True to use the concurrent bag engine
+   *
+   * @since 3.5.0
+   */
+  public void setPoolConcurrentBagEnabled(boolean poolConcurrentBagEnabled) {
+    this.poolConcurrentBagEnabled = poolConcurrentBagEnabled;
+    forceCloseAll();
+  }
+
+  /*
+   * How often the housekeeping thread validates idle connections, evicts expired ones and
+   * creates connections up to poolMinimumIdleConnections. When enabled, the ping query is
+   * only run by this thread and never on checkout.
+   *
+   * @param milliseconds the interval, 0 to disable housekeeping
+   *
+   * @since 3.5.0
+   */
+  public void setPoolHousekeepingInterval(int milliseconds) {
+    this.poolHousekeepingInterval = milliseconds;
+    forceCloseAll();
+    startHousekeeper();
+  }
+
+  /**
+   * forceCloseAll会停止后台维护线程，修改其他配置后在下一次获取连接时重新启动
+   */
+  private synchronized void startHousekeeper() {
+    if (housekeeper == null && poolHousekeepingInterval > 0) {
+      housekeeper = new PoolHousekeeper(this, poolHousekeepingInterval);
+    }
+  }
+
+  private synchronized void stopHousekeeper() {
+    if (housekeeper != null) {
+      housekeeper.shutdown();
+      housekeeper = null;
+    }
+  }
+
+  /*
+   * The number of idle connections the housekeeping thread keeps ready
+   *
+   * @param poolMinimumIdleConnections The minimum number of idle connections
+   *
+   * @since 3.5.0
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+    forceCloseAll();
+  }
+
+  /*
+   * The maximum time a connection is kept open, it is closed when returned or by housekeeping
+   * once it is older.
+   *
+   * @param milliseconds the maximum lifetime, 0 for no limit
+   *
+   * @since 3.5.0
+   */
+  public void setPoolMaximumLifetime(int milliseconds) {
+    this.poolMaximumLifetime = milliseconds;
+    forceCloseAll();
+  }
+
+  /*
+   * The maximum time a connection may stay unused before housekeeping closes it, as long as
+   * more than poolMinimumIdleConnections are idle.
+   *
+   * @param milliseconds the maximum idle time, 0 for no limit
+   *
+   * @since 3.5.0
+   */
+  public void setPoolMaximumIdleTime(int milliseconds) {
+    this.poolMaximumIdleTime = milliseconds;
+    forceCloseAll();
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -310,11 +424,33 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public boolean isPoolConcurrentBagEnabled() {
+    return poolConcurrentBagEnabled;
+  }
+
+  public int getPoolHousekeepingInterval() {
+    return poolHousekeepingInterval;
+  }
+
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  public int getPoolMaximumLifetime() {
+    return poolMaximumLifetime;
+  }
+
+  public int getPoolMaximumIdleTime() {
+    return poolMaximumIdleTime;
+  }
+
   /*
    * Closes all active and idle connections in the pool
    */
   public void forceCloseAll() {
-    synchronized (state) {
+    stopHousekeeper();
+    state.lock.lock();
+    try {
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
       for (int i = state.activeConnections.size(); i > 0; i--) {
         try {
@@ -344,6 +480,26 @@ public class PooledDataSource implements DataSource {
           // ignore
         }
       }
+    } finally {
+      state.lock.unlock();
+    }
+    for (PoolEntry entry : state.connectionBag.values()) {
+      if (state.connectionBag.remove(entry)) {
+        state.totalConnections.decrementAndGet();
+        PooledConnection owner = entry.getOwner();
+        if (owner != null) {
+          owner.invalidate();
+        }
+        try {
+          Connection realConn = entry.getRealConnection();
+          if (!realConn.getAutoCommit()) {
+            realConn.rollback();
+          }
+          realConn.close();
+        } catch (Exception e) {
+          // ignore
+        }
+      }
     }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
@@ -364,12 +520,18 @@ public class PooledDataSource implements DataSource {
    * @throws SQLException
    */
   protected void pushConnection(PooledConnection conn) throws SQLException {
+    if (conn.getPoolEntry() != null) {
+      requiteConnection(conn);
+      return;
+    }
 
-    synchronized (state) {
+    state.lock.lock();
+    try {
       state.activeConnections.remove(conn);
       if (conn.isValid()) {
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && !isLifetimeExceeded(conn)) {
+          state.recordCheckoutTime(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -383,9 +545,9 @@ public class PooledDataSource implements DataSource {
           if (log.isDebugEnabled()) {
             log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
           }
-          state.notifyAll();
+          state.connectionAvailable.signalAll();
         } else {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.recordCheckoutTime(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -400,8 +562,10 @@ public class PooledDataSource implements DataSource {
         if (log.isDebugEnabled()) {
           log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
         }
-        state.badConnectionCount++;
+        state.badConnectionCount.increment();
       }
+    } finally {
+      state.lock.unlock();
     }
   }
 
@@ -414,12 +578,14 @@ public class PooledDataSource implements DataSource {
    */
   private PooledConnection popConnection(String username, String password) throws SQLException {
     boolean countedWait = false;
+    long waitTime = 0;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
     int localBadConnectionCount = 0;
 
     while (conn == null) {
-      synchronized (state) {
+      state.lock.lock();
+      try {
         //优先取空闲列表的连接，这个列表会在connection.close的动态代理中添加进去
         if (!state.idleConnections.isEmpty()) {
           // Pool has available connection
@@ -429,7 +595,7 @@ public class PooledDataSource implements DataSource {
           }
         } else {
           // 池中没有可用的链接
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
+          if (state.activeConnections.size() + state.reservedConnections < poolMaximumActiveConnections) {
             // 可以创建新的链接
             conn = new PooledConnection(dataSource.getConnection(), this);
             if (log.isDebugEnabled()) {
@@ -437,14 +603,15 @@ public class PooledDataSource implements DataSource {
             }
           } else {
             // 不能创建新的连接，就获取存活的连接列表的第一个连接
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+            // 后台维护占用了全部名额时活动列表可能为空
+            PooledConnection oldestActiveConnection = state.activeConnections.isEmpty() ? null : state.activeConnections.get(0);
+            long longestCheckoutTime = oldestActiveConnection == null ? 0 : oldestActiveConnection.getCheckoutTime();
             //如果 当前时间-第一个连接获取时间 >20秒，那么删除活动列表的第一个连接
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
+            if (oldestActiveConnection != null && longestCheckoutTime > poolMaximumCheckoutTime) {
               // Can claim overdue connection
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
+              state.claimedOverdueConnectionCount.increment();
+              state.accumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+              state.recordCheckoutTime(longestCheckoutTime);
               state.activeConnections.remove(oldestActiveConnection);
               if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
                 try {
@@ -472,7 +639,7 @@ public class PooledDataSource implements DataSource {
               // 否者需要等待
               try {
                 if (!countedWait) {
-                  state.hadToWaitCount++;
+                  state.hadToWaitCount.increment();
                   countedWait = true;
                 }
                 if (log.isDebugEnabled()) {
@@ -480,8 +647,9 @@ public class PooledDataSource implements DataSource {
                 }
                 long wt = System.currentTimeMillis();
                 //当前线程最多阻塞20s
-                state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+                state.connectionAvailable.await(poolTimeToWait, TimeUnit.MILLISECONDS);
+                waitTime += System.currentTimeMillis() - wt;
+                state.accumulatedWaitTime.add(System.currentTimeMillis() - wt);
               } catch (InterruptedException e) {
                 break;
               }
@@ -501,13 +669,16 @@ public class PooledDataSource implements DataSource {
             conn.setLastUsedTimestamp(System.currentTimeMillis());
             //此连接添加进活动列表
             state.activeConnections.add(conn);
-            state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
+            state.requestCount.increment();
+            state.accumulatedRequestTime.add(System.currentTimeMillis() - t);
+            if (countedWait) {
+              state.waitTimeHistogram.record(waitTime);
+            }
           } else {
             if (log.isDebugEnabled()) {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
             }
-            state.badConnectionCount++;
+            state.badConnectionCount.increment();
             localBadConnectionCount++;
             conn = null;
             if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
@@ -518,8 +689,105 @@ public class PooledDataSource implements DataSource {
             }
           }
         }
+      } finally {
+        state.lock.unlock();
+      }
+
+    }
+
+    if (conn == null) {
+      if (log.isDebugEnabled()) {
+        log.debug("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+      }
+      throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+
+    return conn;
+  }
+
+  /**
+   * 并发连接池引擎获取连接，空闲连接的获取只需要一次CAS操作
+   * @param username
+   * @param password
+   * @return
+   * @throws SQLException
+   */
+  private PooledConnection borrowConnection(String username, String password) throws SQLException {
+    boolean countedWait = false;
+    long waitTime = 0;
+    PooledConnection conn = null;
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+
+    while (conn == null) {
+      PoolEntry entry;
+      try {
+        entry = state.connectionBag.borrow(0, TimeUnit.MILLISECONDS);
+        if (entry == null) {
+          entry = createPoolEntry(ConcurrentBag.STATE_IN_USE);
+        }
+        if (entry != null) {
+          conn = entry.newPooledConnection(this);
+          if (log.isDebugEnabled()) {
+            log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+          }
+        } else {
+          conn = claimOverdueConnection();
+        }
+        if (conn == null) {
+          if (!countedWait) {
+            state.hadToWaitCount.increment();
+            countedWait = true;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+          }
+          long wt = System.currentTimeMillis();
+          entry = state.connectionBag.borrow(poolTimeToWait, TimeUnit.MILLISECONDS);
+          waitTime += System.currentTimeMillis() - wt;
+          state.accumulatedWaitTime.add(System.currentTimeMillis() - wt);
+          if (entry == null) {
+            continue;
+          }
+          conn = entry.newPooledConnection(this);
+        }
+      } catch (InterruptedException e) {
+        break;
       }
 
+      if (conn.isValid()) {
+        try {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+        } catch (SQLException e) {
+          discardPoolEntry(conn.getPoolEntry());
+          throw e;
+        }
+        conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+        conn.setCheckoutTimestamp(System.currentTimeMillis());
+        conn.setLastUsedTimestamp(System.currentTimeMillis());
+        conn.getPoolEntry().setOwner(conn);
+        state.requestCount.increment();
+        state.accumulatedRequestTime.add(System.currentTimeMillis() - t);
+        if (countedWait) {
+          state.waitTimeHistogram.record(waitTime);
+        }
+      } else {
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+        }
+        discardPoolEntry(conn.getPoolEntry());
+        state.badConnectionCount.increment();
+        localBadConnectionCount++;
+        conn = null;
+        if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+          if (log.isDebugEnabled()) {
+            log.debug("PooledDataSource: Could not get a good connection to the database.");
+          }
+          throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+        }
+      }
     }
 
     if (conn == null) {
@@ -532,6 +800,308 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /*
+   * Creates a new entry unless the pool already holds the maximum number of connections
+   *
+   * @param initialState the state of the new entry, an idle entry is offered to the waiting threads
+   * @return the new entry or null if the pool is full
+   */
+  private PoolEntry createPoolEntry(int initialState) throws SQLException {
+    int total;
+    do {
+      total = state.totalConnections.get();
+      if (total >= poolMaximumActiveConnections) {
+        return null;
+      }
+    } while (!state.totalConnections.compareAndSet(total, total + 1));
+
+    try {
+      PoolEntry entry = new PoolEntry(dataSource.getConnection());
+      entry.setState(initialState);
+      state.connectionBag.add(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Created connection " + entry.getRealConnection().hashCode() + ".");
+      }
+      return entry;
+    } catch (SQLException | RuntimeException e) {
+      state.totalConnections.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /*
+   * Takes over the connection that has been checked out for the longest time, provided it has been
+   * checked out for longer than poolMaximumCheckoutTime
+   *
+   * @return a new pooled connection on top of the claimed real connection or null
+   */
+  private PooledConnection claimOverdueConnection() {
+    PooledConnection oldestActiveConnection = null;
+    for (PoolEntry entry : state.connectionBag.values()) {
+      PooledConnection owner = entry.getOwner();
+      if (owner != null && (oldestActiveConnection == null
+          || owner.getCheckoutTimestamp() < oldestActiveConnection.getCheckoutTimestamp())) {
+        oldestActiveConnection = owner;
+      }
+    }
+    if (oldestActiveConnection == null) {
+      return null;
+    }
+    long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+    PoolEntry entry = oldestActiveConnection.getPoolEntry();
+    if (longestCheckoutTime <= poolMaximumCheckoutTime || !entry.compareAndSetOwner(oldestActiveConnection, null)) {
+      return null;
+    }
+    state.claimedOverdueConnectionCount.increment();
+    state.accumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+    state.recordCheckoutTime(longestCheckoutTime);
+    try {
+      if (!entry.getRealConnection().getAutoCommit()) {
+        entry.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      // same as popConnection, the bad connection is detected by the validation that follows
+      log.debug("Bad connection. Could not roll back");
+    }
+    PooledConnection conn = entry.newPooledConnection(this);
+    oldestActiveConnection.invalidate();
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  /**
+   * 并发连接池引擎归还连接，在调用connection.close方法时调用
+   * @param conn
+   * @throws SQLException
+   */
+  private void requiteConnection(PooledConnection conn) throws SQLException {
+    PoolEntry entry = conn.getPoolEntry();
+    if (!entry.compareAndSetOwner(conn, null)) {
+      // the connection was claimed as overdue or closed by forceCloseAll
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCount.increment();
+      return;
+    }
+    if (!conn.isValid()) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      discardPoolEntry(entry);
+      state.badConnectionCount.increment();
+      return;
+    }
+    state.recordCheckoutTime(conn.getCheckoutTime());
+    conn.invalidate();
+    try {
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      discardPoolEntry(entry);
+      throw e;
+    }
+    if (state.connectionBag.getIdleCount() < poolMaximumIdleConnections
+        && conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isLifetimeExceeded(conn)) {
+      entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+      state.connectionBag.requite(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+      }
+    } else {
+      discardPoolEntry(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  private void discardPoolEntry(PoolEntry entry) {
+    if (state.connectionBag.remove(entry)) {
+      state.totalConnections.decrementAndGet();
+    }
+    try {
+      entry.getRealConnection().close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  /**
+   * 后台维护：校验空闲连接、关闭过期连接并预热最小空闲连接数，由PoolHousekeeper定时调用
+   */
+  void housekeep() {
+    if (poolConcurrentBagEnabled) {
+      housekeepConcurrentBag();
+    } else {
+      housekeepIdleConnections();
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Pool housekeeping done, " + state.getIdleConnectionCount() + " idle connections.");
+    }
+  }
+
+  private void housekeepIdleConnections() {
+    List<PooledConnection> candidates;
+    state.lock.lock();
+    try {
+      candidates = new ArrayList<>(state.idleConnections);
+    } finally {
+      state.lock.unlock();
+    }
+    int idleCount = candidates.size();
+    for (PooledConnection conn : candidates) {
+      state.lock.lock();
+      try {
+        if (!state.idleConnections.remove(conn)) {
+          // checked out in the meantime
+          idleCount--;
+          continue;
+        }
+        // 校验期间连接不在任何列表中，预留名额避免popConnection超过最大活动连接数
+        state.reservedConnections++;
+      } finally {
+        state.lock.unlock();
+      }
+      boolean keep = false;
+      try {
+        keep = !shouldEvict(conn, idleCount);
+      } finally {
+        state.lock.lock();
+        try {
+          state.reservedConnections--;
+          keep = keep && state.idleConnections.size() < poolMaximumIdleConnections;
+          if (keep) {
+            state.idleConnections.add(conn);
+          }
+          // 连接放回或名额释放，等待的线程都可以继续
+          state.connectionAvailable.signalAll();
+        } finally {
+          state.lock.unlock();
+        }
+      }
+      if (keep) {
+        continue;
+      }
+      idleCount--;
+      conn.invalidate();
+      closeQuietly(conn.getRealConnection());
+    }
+
+    int minimumIdle = Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections);
+    while (true) {
+      state.lock.lock();
+      try {
+        if (state.idleConnections.size() >= minimumIdle
+            || state.idleConnections.size() + state.activeConnections.size() + state.reservedConnections >= poolMaximumActiveConnections) {
+          return;
+        }
+        state.reservedConnections++;
+      } finally {
+        state.lock.unlock();
+      }
+      PooledConnection conn = null;
+      boolean added = false;
+      try {
+        conn = new PooledConnection(dataSource.getConnection(), this);
+        conn.setConnectionTypeCode(expectedConnectionTypeCode);
+      } catch (SQLException e) {
+        log.warn("Could not create an idle connection: " + e.getMessage());
+      } finally {
+        state.lock.lock();
+        try {
+          state.reservedConnections--;
+          if (conn != null && state.idleConnections.size() < minimumIdle) {
+            state.idleConnections.add(conn);
+            added = true;
+          }
+          state.connectionAvailable.signalAll();
+        } finally {
+          state.lock.unlock();
+        }
+      }
+      if (!added) {
+        if (conn != null) {
+          closeQuietly(conn.getRealConnection());
+        }
+        return;
+      }
+    }
+  }
+
+  private void housekeepConcurrentBag() {
+    int idleCount = state.connectionBag.getIdleCount();
+    for (PoolEntry entry : state.connectionBag.values()) {
+      if (!state.connectionBag.reserve(entry)) {
+        continue;
+      }
+      // 直接按entry的时间戳校验，不为此创建PooledConnection
+      long now = System.currentTimeMillis();
+      if (shouldEvict(entry.getRealConnection(), now - entry.getCreatedTimestamp(), now - entry.getLastUsedTimestamp(), idleCount)) {
+        idleCount--;
+        discardPoolEntry(entry);
+      } else {
+        state.connectionBag.requite(entry);
+      }
+    }
+
+    int minimumIdle = Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections);
+    try {
+      while (state.connectionBag.getIdleCount() < minimumIdle
+          && createPoolEntry(ConcurrentBag.STATE_NOT_IN_USE) != null) {
+        // keep creating until the minimum is reached or the pool is full
+      }
+    } catch (SQLException e) {
+      log.warn("Could not create an idle connection: " + e.getMessage());
+    }
+  }
+
+  /*
+   * Decides whether housekeeping should close an idle connection
+   *
+   * @param conn the idle connection
+   * @param idleCount the number of idle connections, including this one
+   * @return true if the connection is too old, unused for too long or fails the ping query
+   */
+  private boolean shouldEvict(PooledConnection conn, int idleCount) {
+    return shouldEvict(conn.getRealConnection(), conn.getAge(), conn.getTimeElapsedSinceLastUse(), idleCount);
+  }
+
+  private boolean shouldEvict(Connection realConn, long age, long timeElapsedSinceLastUse, int idleCount) {
+    if (poolMaximumLifetime > 0 && age > poolMaximumLifetime) {
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + realConn.hashCode() + " exceeded its maximum lifetime.");
+      }
+      return true;
+    }
+    if (poolMaximumIdleTime > 0 && idleCount > poolMinimumIdleConnections
+        && timeElapsedSinceLastUse > poolMaximumIdleTime) {
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + realConn.hashCode() + " exceeded its maximum idle time.");
+      }
+      return true;
+    }
+    return !pingConnection(realConn, timeElapsedSinceLastUse, true);
+  }
+
+  private boolean isLifetimeExceeded(PooledConnection conn) {
+    return poolMaximumLifetime > 0 && conn.getAge() > poolMaximumLifetime;
+  }
+
+  private void closeQuietly(Connection realConn) {
+    try {
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
   /*
    * Method to check to see if a connection is still usable
    *
@@ -539,26 +1109,33 @@ public class PooledDataSource implements DataSource {
    * @return True if the connection is still usable
    */
   protected boolean pingConnection(PooledConnection conn) {
+    return pingConnection(conn, poolHousekeepingInterval <= 0);
+  }
+
+  private boolean pingConnection(PooledConnection conn, boolean runPingQuery) {
+    return pingConnection(conn.getRealConnection(), conn.getTimeElapsedSinceLastUse(), runPingQuery);
+  }
+
+  private boolean pingConnection(Connection realConn, long timeElapsedSinceLastUse, boolean runPingQuery) {
     boolean result = true;
 
     try {
       //直接调用connection.isClosed()方法判断
-      result = !conn.getRealConnection().isClosed();
+      result = !realConn.isClosed();
     } catch (SQLException e) {
       if (log.isDebugEnabled()) {
-        log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+        log.debug("Connection " + realConn.hashCode() + " is BAD: " + e.getMessage());
       }
       result = false;
     }
 
     if (result) {
-      if (poolPingEnabled) {
-        if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+      if (runPingQuery && poolPingEnabled) {
+        if (poolPingConnectionsNotUsedFor >= 0 && timeElapsedSinceLastUse > poolPingConnectionsNotUsedFor) {
           try {
             if (log.isDebugEnabled()) {
-              log.debug("Testing connection " + conn.getRealHashCode() + " ...");
+              log.debug("Testing connection " + realConn.hashCode() + " ...");
             }
-            Connection realConn = conn.getRealConnection();
             try (Statement statement = realConn.createStatement()) {
               statement.executeQuery(poolPingQuery).close();
             }
@@ -567,18 +1144,18 @@ public class PooledDataSource implements DataSource {
             }
             result = true;
             if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
+              log.debug("Connection " + realConn.hashCode() + " is GOOD!");
             }
           } catch (Exception e) {
             log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
             try {
-              conn.getRealConnection().close();
+              realConn.close();
             } catch (Exception e2) {
               //ignore
             }
             result = false;
             if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+              log.debug("Connection " + realConn.hashCode() + " is BAD: " + e.getMessage());
             }
           }
         }
@@ -25,6 +25,7 @@ import java.util.Enumeration;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -43,10 +44,14 @@ public class UnpooledDataSource implements DataSource {
    */
   private Properties driverProperties;
   private static Map<String, Driver> registeredDrivers = new ConcurrentHashMap<>();
+  /**
+   * 注册驱动时持有的锁，已注册的驱动不加锁
+   */
+  private final ReentrantLock driverLock = new ReentrantLock();
   /**
    * 驱动
    */
-  private String driver;
+  private volatile String driver;
   /**
    * url
    */
@@ -159,7 +164,7 @@ public class UnpooledDataSource implements DataSource {
     return driver;
   }
 
-  public synchronized void setDriver(String driver) {
+  public void setDriver(String driver) {
     this.driver = driver;
   }
 
@@ -240,7 +245,19 @@ public class UnpooledDataSource implements DataSource {
     return connection;
   }
 
-  private synchronized void initializeDriver() throws SQLException {
+  private void initializeDriver() throws SQLException {
+    if (registeredDrivers.containsKey(driver)) {
+      return;
+    }
+    driverLock.lock();
+    try {
+      registerDriver();
+    } finally {
+      driverLock.unlock();
+    }
+  }
+
+  private void registerDriver() throws SQLException {
     if (!registeredDrivers.containsKey(driver)) {
       Class<?> driverType;
       try {
@@ -20,7 +20,11 @@ import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOL
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.ibatis.cache.CacheKey;
@@ -38,6 +42,7 @@ import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheEviction;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -61,6 +66,11 @@ public abstract class BaseExecutor implements Executor {
   /**当前sqlSession的输出参数缓存*/
   protected PerpetualCache localOutputParameterCache;
   protected Configuration configuration;
+  /**设置了localCacheSize或localCacheMaxRows时记录一级缓存中每个结果的行数，按淘汰顺序排列*/
+  private LinkedHashMap<Object, Integer> localCacheRows;
+  private int localCacheRowCount;
+  /**不使用一级缓存的语句的查询结果，外层查询结束后移除*/
+  private List<Object> localCacheDrops;
 
   protected int queryStack;
   private boolean closed;
@@ -73,6 +83,10 @@ public abstract class BaseExecutor implements Executor {
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
+    // ResultLoaderMap.ClosedExecutor没有configuration
+    if (configuration != null && (configuration.getLocalCacheSize() > 0 || configuration.getLocalCacheMaxRows() > 0)) {
+      this.localCacheRows = new LinkedHashMap<>(16, 0.75f, configuration.getLocalCacheEviction() == LocalCacheEviction.LRU);
+    }
   }
 
   @Override
@@ -164,6 +178,10 @@ public abstract class BaseExecutor implements Executor {
       //尝试从一级缓存中获取数据
       list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
       if (list != null) {
+        if (localCacheRows != null) {
+          // LRU时将命中的结果移到队尾
+          localCacheRows.get(key);
+        }
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
       } else {
         //从数据库中查询
@@ -181,6 +199,9 @@ public abstract class BaseExecutor implements Executor {
       if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
         // issue #482
         clearLocalCache();
+      } else {
+        //嵌套查询和延迟加载都已完成，此时才能移除结果
+        trimLocalCache();
       }
     }
     return list;
@@ -219,12 +240,13 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    CacheKey cacheKey = new CacheKey(parameterMappings.size() + 5);
     cacheKey.update(ms.getId());
     cacheKey.update(rowBounds.getOffset());
     cacheKey.update(rowBounds.getLimit());
-    cacheKey.update(boundSql.getSql());
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    //sql换成带整数id的实例，比较时只比较id，不用逐字符比较
+    cacheKey.update(CacheKey.intern(boundSql.getSql()));
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     for (ParameterMapping parameterMapping : parameterMappings) {
@@ -290,6 +312,38 @@ public abstract class BaseExecutor implements Executor {
     if (!closed) {
       localCache.clear();
       localOutputParameterCache.clear();
+      if (localCacheRows != null) {
+        localCacheRows.clear();
+        localCacheRowCount = 0;
+      }
+      localCacheDrops = null;
+    }
+  }
+
+  /**
+   * 移除不使用一级缓存的语句的结果，并按localCacheSize和localCacheMaxRows淘汰结果
+   */
+  private void trimLocalCache() {
+    if (localCacheDrops != null) {
+      for (Object key : localCacheDrops) {
+        localCache.removeObject(key);
+        localOutputParameterCache.removeObject(key);
+      }
+      localCacheDrops = null;
+    }
+    if (localCacheRows == null) {
+      return;
+    }
+    int maxSize = configuration.getLocalCacheSize();
+    int maxRows = configuration.getLocalCacheMaxRows();
+    Iterator<Map.Entry<Object, Integer>> eldest = localCacheRows.entrySet().iterator();
+    while (eldest.hasNext()
+        && (maxSize > 0 && localCacheRows.size() > maxSize || maxRows > 0 && localCacheRowCount > maxRows)) {
+      Map.Entry<Object, Integer> entry = eldest.next();
+      eldest.remove();
+      localCacheRowCount -= entry.getValue();
+      localCache.removeObject(entry.getKey());
+      localOutputParameterCache.removeObject(entry.getKey());
     }
   }
 
@@ -370,6 +424,17 @@ public abstract class BaseExecutor implements Executor {
     if (ms.getStatementType() == StatementType.CALLABLE) {
       localOutputParameterCache.putObject(key, parameter);
     }
+    if (!ms.isUseLocalCache()) {
+      //嵌套查询和延迟加载还会用到结果，外层查询结束后再移除
+      if (localCacheDrops == null) {
+        localCacheDrops = new ArrayList<>();
+      }
+      localCacheDrops.add(key);
+    } else if (localCacheRows != null) {
+      int rows = list == null ? 0 : list.size();
+      Integer previous = localCacheRows.put(key, rows);
+      localCacheRowCount += rows - (previous == null ? 0 : previous);
+    }
     return list;
   }
 
@@ -47,13 +47,15 @@ public class ErrorContext {
     ErrorContext newContext = new ErrorContext();
     newContext.stored = this;
     LOCAL.set(newContext);
-    return LOCAL.get();
+    return newContext;
   }
 
   public ErrorContext recall() {
     if (stored != null) {
-      LOCAL.set(stored);
+      ErrorContext previous = stored;
+      LOCAL.set(previous);
       stored = null;
+      return previous;
     }
     return LOCAL.get();
   }
@@ -107,6 +107,14 @@ public class ResultLoader {
     return configuration.newExecutor(tx, ExecutorType.SIMPLE);
   }
 
+  /**
+   * 加载时是否需要执行查询，不需要查询的属性在结果对象序列化之前加载，反序列化后无法再加载
+   * @since 3.5.0
+   */
+  public boolean isQueryRequired() {
+    return true;
+  }
+
   public boolean wasNull() {
     return resultObject == null;
   }
@@ -96,6 +96,20 @@ public class ResultLoaderMap {
     }
   }
 
+  /**
+   * 加载所有不需要执行查询的属性，例如fetchType="lazy"的普通列
+   * @since 3.5.0
+   */
+  public void loadAllWithoutQuery() throws SQLException {
+    final String[] methodNames = loaderMap.keySet().toArray(new String[loaderMap.size()]);
+    for (String methodName : methodNames) {
+      final LoadPair pair = loaderMap.get(methodName);
+      if (pair.resultLoader != null && !pair.resultLoader.isQueryRequired()) {
+        load(methodName);
+      }
+    }
+  }
+
   private static String getUppercaseFirstProperty(String property) {
     String[] parts = property.split("\\.");
     return parts[0].toUpperCase(Locale.ENGLISH);
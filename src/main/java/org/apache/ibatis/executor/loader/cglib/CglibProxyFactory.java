@@ -131,6 +131,8 @@ public class CglibProxyFactory implements ProxyFactory {
       try {
         synchronized (lazyLoader) {
           if (WRITE_REPLACE_METHOD.equals(methodName)) {
+            // lazy columns cannot be loaded after deserialization
+            lazyLoader.loadAllWithoutQuery();
             Object original;
             if (constructorArgTypes.isEmpty()) {
               original = objectFactory.create(type);
@@ -171,6 +171,8 @@ public class JavassistProxyFactory implements org.apache.ibatis.executor.loader.
       try {
         synchronized (lazyLoader) {
           if (WRITE_REPLACE_METHOD.equals(methodName)) {
+            // lazy columns cannot be loaded after deserialization
+            lazyLoader.loadAllWithoutQuery();
             Object original;
             if (constructorArgTypes.isEmpty()) {
               original = objectFactory.create(type);
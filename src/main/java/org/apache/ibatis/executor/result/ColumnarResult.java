@@ -0,0 +1,375 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A result kept column by column in primitive arrays, for queries returning many numeric rows.
+ * <p>
+ * Declare it as the return type of a mapper method, or as the resultType of a select, to get the
+ * whole result set as one object. No object is created per row: integer columns are stored in
+ * {@code int[]} or {@code long[]}, floating point and decimal columns in {@code double[]}, and
+ * character columns as codes into a dictionary of their distinct values. Other columns are kept
+ * as the objects returned by {@link ResultSet#getObject(int)}.
+ * <p>
+ * A result may be shared, for example through the second level cache, so the column getters return
+ * copies of the arrays. Use the per cell getters to read a few values without copying.
+ *
+ * @since 3.5.0
+ */
+public class ColumnarResult implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  public enum ColumnType {
+    INT, LONG, DOUBLE, STRING, OBJECT
+  }
+
+  private final String[] columnNames;
+  private final ColumnType[] columnTypes;
+  /** int[], long[], double[], int[] of dictionary codes or Object[], by column */
+  private final Object[] columns;
+  private final String[][] dictionaries;
+  private final BitSet[] nulls;
+  private final int rowCount;
+
+  private ColumnarResult(String[] columnNames, ColumnType[] columnTypes, Object[] columns, String[][] dictionaries, BitSet[] nulls, int rowCount) {
+    this.columnNames = columnNames;
+    this.columnTypes = columnTypes;
+    this.columns = columns;
+    this.dictionaries = dictionaries;
+    this.nulls = nulls;
+    this.rowCount = rowCount;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columnNames.length;
+  }
+
+  public List<String> getColumnNames() {
+    return Collections.unmodifiableList(Arrays.asList(columnNames));
+  }
+
+  public ColumnType getColumnType(String column) {
+    return columnTypes[findColumn(column)];
+  }
+
+  /**
+   * @param column the column name, case insensitive
+   * @return the 0-based index of the column
+   */
+  public int findColumn(String column) {
+    for (int i = 0; i < columnNames.length; i++) {
+      if (columnNames[i].equalsIgnoreCase(column)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("There is no column named '" + column + "' in the result");
+  }
+
+  public boolean isNull(int row, String column) {
+    return nulls[findColumn(column)].get(checkRow(row));
+  }
+
+  /**
+   * @return a copy of the values of an INT column, 0 for nulls
+   */
+  public int[] getIntColumn(String column) {
+    return ((int[]) columnOf(column, ColumnType.INT)).clone();
+  }
+
+  /**
+   * @return a copy of the values of a LONG or INT column, 0 for nulls
+   */
+  public long[] getLongColumn(String column) {
+    int index = findColumn(column);
+    if (columnTypes[index] == ColumnType.INT) {
+      int[] ints = (int[]) columns[index];
+      long[] longs = new long[ints.length];
+      for (int i = 0; i < ints.length; i++) {
+        longs[i] = ints[i];
+      }
+      return longs;
+    }
+    return ((long[]) columnOf(column, ColumnType.LONG)).clone();
+  }
+
+  /**
+   * @return a copy of the values of a DOUBLE, INT or LONG column, 0 for nulls
+   */
+  public double[] getDoubleColumn(String column) {
+    int index = findColumn(column);
+    if (columnTypes[index] == ColumnType.INT) {
+      return Arrays.stream((int[]) columns[index]).asDoubleStream().toArray();
+    } else if (columnTypes[index] == ColumnType.LONG) {
+      return Arrays.stream((long[]) columns[index]).asDoubleStream().toArray();
+    }
+    return ((double[]) columnOf(column, ColumnType.DOUBLE)).clone();
+  }
+
+  /**
+   * @return a copy of the dictionary codes of a STRING column, -1 for nulls
+   * @see #getDictionary(String)
+   */
+  public int[] getStringCodes(String column) {
+    return ((int[]) columnOf(column, ColumnType.STRING)).clone();
+  }
+
+  /**
+   * @return a copy of the distinct values of a STRING column, indexed by code
+   */
+  public String[] getDictionary(String column) {
+    columnOf(column, ColumnType.STRING);
+    return dictionaries[findColumn(column)].clone();
+  }
+
+  public int getInt(int row, String column) {
+    return (int) getLong(row, column);
+  }
+
+  public long getLong(int row, String column) {
+    int index = findColumn(column);
+    checkRow(row);
+    switch (columnTypes[index]) {
+      case INT:
+        return ((int[]) columns[index])[row];
+      case LONG:
+        return ((long[]) columns[index])[row];
+      case DOUBLE:
+        return (long) ((double[]) columns[index])[row];
+      default:
+        Object value = getObject(row, column);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+  }
+
+  public double getDouble(int row, String column) {
+    int index = findColumn(column);
+    checkRow(row);
+    if (columnTypes[index] == ColumnType.DOUBLE) {
+      return ((double[]) columns[index])[row];
+    } else if (columnTypes[index] == ColumnType.INT || columnTypes[index] == ColumnType.LONG) {
+      return getLong(row, column);
+    }
+    Object value = getObject(row, column);
+    return value instanceof Number ? ((Number) value).doubleValue() : 0d;
+  }
+
+  public String getString(int row, String column) {
+    Object value = getObject(row, column);
+    return value == null ? null : value.toString();
+  }
+
+  /**
+   * @return the value of a cell, boxed for numeric columns
+   */
+  public Object getObject(int row, String column) {
+    int index = findColumn(column);
+    if (nulls[index].get(checkRow(row))) {
+      return null;
+    }
+    switch (columnTypes[index]) {
+      case INT:
+        return ((int[]) columns[index])[row];
+      case LONG:
+        return ((long[]) columns[index])[row];
+      case DOUBLE:
+        return ((double[]) columns[index])[row];
+      case STRING:
+        return dictionaries[index][((int[]) columns[index])[row]];
+      default:
+        return ((Object[]) columns[index])[row];
+    }
+  }
+
+  private Object columnOf(String column, ColumnType type) {
+    int index = findColumn(column);
+    if (columnTypes[index] != type) {
+      throw new IllegalStateException("Column '" + column + "' is of type " + columnTypes[index] + ", not " + type);
+    }
+    return columns[index];
+  }
+
+  private int checkRow(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException("Row " + row + " is out of range, the result has " + rowCount + " rows");
+    }
+    return row;
+  }
+
+  /**
+   * Fills a columnar result one row at a time.
+   */
+  public static class Builder {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String[] columnNames;
+    private final ColumnType[] columnTypes;
+    private final Object[] columns;
+    private final BitSet[] nulls;
+    private final List<Map<String, Integer>> dictionaries;
+    private int rowCount;
+    private int capacity = INITIAL_CAPACITY;
+
+    public Builder(List<String> columnNames, ResultSetMetaData metaData) throws SQLException {
+      final int columnCount = columnNames.size();
+      this.columnNames = columnNames.toArray(new String[columnCount]);
+      this.columnTypes = new ColumnType[columnCount];
+      this.columns = new Object[columnCount];
+      this.nulls = new BitSet[columnCount];
+      this.dictionaries = new ArrayList<>(columnCount);
+      for (int i = 0; i < columnCount; i++) {
+        columnTypes[i] = columnTypeOf(metaData, i + 1);
+        columns[i] = newColumn(columnTypes[i], capacity);
+        nulls[i] = new BitSet();
+        dictionaries.add(columnTypes[i] == ColumnType.STRING ? new HashMap<>() : null);
+      }
+    }
+
+    private static ColumnType columnTypeOf(ResultSetMetaData metaData, int column) throws SQLException {
+      switch (metaData.getColumnType(column)) {
+        case Types.BIT:
+        case Types.BOOLEAN:
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+          return ColumnType.INT;
+        case Types.BIGINT:
+          return ColumnType.LONG;
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+          // whole numbers that fit a long keep their exact value
+          return metaData.getScale(column) == 0 && metaData.getPrecision(column) > 0 && metaData.getPrecision(column) <= 18
+              ? ColumnType.LONG : ColumnType.DOUBLE;
+        case Types.REAL:
+        case Types.FLOAT:
+        case Types.DOUBLE:
+          return ColumnType.DOUBLE;
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.NCHAR:
+        case Types.NVARCHAR:
+          return ColumnType.STRING;
+        default:
+          return ColumnType.OBJECT;
+      }
+    }
+
+    private static Object newColumn(ColumnType type, int capacity) {
+      switch (type) {
+        case INT:
+        case STRING:
+          return new int[capacity];
+        case LONG:
+          return new long[capacity];
+        case DOUBLE:
+          return new double[capacity];
+        default:
+          return new Object[capacity];
+      }
+    }
+
+    /**
+     * Appends the current row of a result set.
+     */
+    public void addRow(ResultSet rs) throws SQLException {
+      if (rowCount == capacity) {
+        capacity *= 2;
+        for (int i = 0; i < columns.length; i++) {
+          columns[i] = resize(columns[i], capacity);
+        }
+      }
+      for (int i = 0; i < columns.length; i++) {
+        final int column = i + 1;
+        switch (columnTypes[i]) {
+          case INT:
+            ((int[]) columns[i])[rowCount] = rs.getInt(column);
+            break;
+          case LONG:
+            ((long[]) columns[i])[rowCount] = rs.getLong(column);
+            break;
+          case DOUBLE:
+            ((double[]) columns[i])[rowCount] = rs.getDouble(column);
+            break;
+          case STRING:
+            String value = rs.getString(column);
+            ((int[]) columns[i])[rowCount] = value == null ? -1 : codeOf(dictionaries.get(i), value);
+            break;
+          default:
+            ((Object[]) columns[i])[rowCount] = rs.getObject(column);
+            break;
+        }
+        if (rs.wasNull()) {
+          nulls[i].set(rowCount);
+        }
+      }
+      rowCount++;
+    }
+
+    private static int codeOf(Map<String, Integer> dictionary, String value) {
+      Integer code = dictionary.get(value);
+      if (code == null) {
+        code = dictionary.size();
+        dictionary.put(value, code);
+      }
+      return code;
+    }
+
+    private static Object resize(Object column, int length) {
+      if (column instanceof int[]) {
+        return Arrays.copyOf((int[]) column, length);
+      } else if (column instanceof long[]) {
+        return Arrays.copyOf((long[]) column, length);
+      } else if (column instanceof double[]) {
+        return Arrays.copyOf((double[]) column, length);
+      }
+      return Arrays.copyOf((Object[]) column, length);
+    }
+
+    public ColumnarResult build() {
+      final Object[] trimmed = new Object[columns.length];
+      final String[][] dictionaryValues = new String[columns.length][];
+      for (int i = 0; i < columns.length; i++) {
+        trimmed[i] = resize(columns[i], rowCount);
+        Map<String, Integer> dictionary = dictionaries.get(i);
+        if (dictionary != null) {
+          dictionaryValues[i] = new String[dictionary.size()];
+          for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+            dictionaryValues[i][entry.getValue()] = entry.getKey();
+          }
+        }
+      }
+      return new ColumnarResult(columnNames, columnTypes, trimmed, dictionaryValues, nulls, rowCount);
+    }
+  }
+
+}
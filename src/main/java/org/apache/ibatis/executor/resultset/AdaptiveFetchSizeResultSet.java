@@ -0,0 +1,102 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * A ResultSet that adapts its fetch size to the size of the values read from it.
+ * <p>
+ * After each fetch size worth of rows, the average size of the values read per row gives the
+ * fetch size for about 1MB per round trip. Strings and bytes count their length, other values a
+ * fixed estimate, so the sizes only need to be right in magnitude.
+ *
+ * @since 3.5.0
+ */
+final class AdaptiveFetchSizeResultSet implements InvocationHandler {
+
+  private static final int VALUE_BYTES = 16;
+
+  private final ResultSet rs;
+  private int fetchSize;
+  private int rows;
+  private long bytes;
+
+  private AdaptiveFetchSizeResultSet(ResultSet rs, int fetchSize) {
+    this.rs = rs;
+    this.fetchSize = fetchSize;
+  }
+
+  static ResultSet newInstance(ResultSet rs, int fetchSize) {
+    InvocationHandler handler = new AdaptiveFetchSizeResultSet(rs, fetchSize);
+    ClassLoader cl = ResultSet.class.getClassLoader();
+    return (ResultSet) Proxy.newProxyInstance(cl, new Class<?>[]{ResultSet.class}, handler);
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+    try {
+      if (Object.class.equals(method.getDeclaringClass())) {
+        return method.invoke(this, params);
+      }
+      final String name = method.getName();
+      if ("next".equals(name) && rows >= fetchSize) {
+        // all values of the rows counted so far have been read
+        adapt();
+      }
+      final Object result = method.invoke(rs, params);
+      if ("next".equals(name)) {
+        if ((Boolean) result) {
+          rows++;
+        }
+      } else if (name.startsWith("get") && params != null && params.length >= 1) {
+        bytes += sizeOf(result);
+      }
+      return result;
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+  }
+
+  private void adapt() throws SQLException {
+    final int adapted = PrefetchingCursor.fetchSizeForRowBytes(bytes / rows);
+    rows = 0;
+    bytes = 0;
+    if (adapted != fetchSize) {
+      fetchSize = adapted;
+      rs.setFetchSize(adapted);
+    }
+  }
+
+  private static long sizeOf(Object value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof String) {
+      return 2L * ((String) value).length();
+    } else if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    }
+    return VALUE_BYTES;
+  }
+
+}
@@ -0,0 +1,314 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * A forward only ResultSet over rows that were already fetched with {@link ResultSet#getObject(int)}.
+ * <p>
+ * It lets type handlers decode rows on another thread while the statement's result set moves on.
+ * LOBs are read into bytes or strings when the row is fetched, as the driver's connection is still
+ * in use, and wrapped in a serial LOB again for {@code getBlob} and {@code getClob}. The getters
+ * convert the fetched values the way JDBC drivers commonly do. Strings and bytes are converted with
+ * UTF-8, not with the platform charset. Getters and conversions that are not supported throw a
+ * {@link SQLFeatureNotSupportedException}, so the caller can map such rows from the driver's result
+ * set instead.
+ *
+ * @since 3.5.0
+ */
+final class BufferedResultSet implements InvocationHandler {
+
+  private final List<Object[]> rows;
+  private final ResultSetLayout layout;
+  private final ResultSetMetaData metaData;
+  private int row = -1;
+  private boolean wasNull;
+
+  private BufferedResultSet(List<Object[]> rows, ResultSetLayout layout, ResultSetMetaData metaData) {
+    this.rows = rows;
+    this.layout = layout;
+    this.metaData = metaData;
+  }
+
+  static ResultSet newInstance(List<Object[]> rows, ResultSetLayout layout, ResultSetMetaData metaData) {
+    InvocationHandler handler = new BufferedResultSet(rows, layout, metaData);
+    ClassLoader cl = ResultSet.class.getClassLoader();
+    return (ResultSet) Proxy.newProxyInstance(cl, new Class<?>[]{ResultSet.class}, handler);
+  }
+
+  /*
+   * Reads the current row of a result set, LOBs included.
+   */
+  static Object[] fetchRow(ResultSet rs, int columnCount) throws SQLException {
+    Object[] values = new Object[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      values[i] = readLob(rs.getObject(i + 1));
+    }
+    return values;
+  }
+
+  /*
+   * Reads a LOB into the bytes or the string it refers to, so the value no longer needs the
+   * connection.
+   */
+  static Object readLob(Object value) throws SQLException {
+    if (value instanceof Blob) {
+      final Blob blob = (Blob) value;
+      return blob.getBytes(1, (int) blob.length());
+    } else if (value instanceof Clob) {
+      final Clob clob = (Clob) value;
+      return clob.getSubString(1, (int) clob.length());
+    }
+    return value;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+    try {
+      if (Object.class.equals(method.getDeclaringClass())) {
+        return method.invoke(this, params);
+      }
+      final String name = method.getName();
+      switch (name) {
+        case "next":
+          return ++row < rows.size();
+        case "wasNull":
+          return wasNull;
+        case "findColumn":
+          return columnIndex(params[0]);
+        case "getMetaData":
+          return metaData;
+        case "getType":
+          return ResultSet.TYPE_FORWARD_ONLY;
+        case "getConcurrency":
+          return ResultSet.CONCUR_READ_ONLY;
+        case "isClosed":
+          return false;
+        case "close":
+          return null;
+        default:
+          break;
+      }
+      if (name.startsWith("get") && params != null && params.length >= 1) {
+        final Object value = rows.get(row)[columnIndex(params[0]) - 1];
+        wasNull = value == null;
+        return convert(name, value, params.length > 1 && params[1] instanceof Class ? (Class<?>) params[1] : null);
+      }
+      throw new SQLFeatureNotSupportedException("ResultSet." + name + " is not supported on buffered rows");
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+  }
+
+  private int columnIndex(Object column) throws SQLException {
+    if (column instanceof Integer) {
+      return (Integer) column;
+    }
+    int index = layout.indexOf((String) column);
+    if (index == 0) {
+      throw new SQLException("Column '" + column + "' not found");
+    }
+    return index;
+  }
+
+  private Object convert(String getter, Object value, Class<?> type) throws SQLException {
+    switch (getter) {
+      case "getObject":
+        return type == null || value == null || type.isInstance(value) ? value : convertTo(type, value);
+      case "getString":
+      case "getNString":
+        return toStringValue(value);
+      case "getBoolean":
+        if (value == null) {
+          return false;
+        }
+        if (value instanceof Boolean) {
+          return value;
+        }
+        return value instanceof Number ? ((Number) value).intValue() != 0 : !"0".equals(value.toString()) && !"false".equalsIgnoreCase(value.toString());
+      case "getByte":
+        return value == null ? (byte) 0 : toNumber(value).byteValue();
+      case "getShort":
+        return value == null ? (short) 0 : toNumber(value).shortValue();
+      case "getInt":
+        return value == null ? 0 : toNumber(value).intValue();
+      case "getLong":
+        return value == null ? 0L : toNumber(value).longValue();
+      case "getFloat":
+        return value == null ? 0f : toNumber(value).floatValue();
+      case "getDouble":
+        return value == null ? 0d : toNumber(value).doubleValue();
+      case "getBigDecimal":
+        return value == null || value instanceof BigDecimal ? value : new BigDecimal(toNumber(value).toString());
+      case "getDate":
+        return value == null ? null : toDate(value);
+      case "getTime":
+        return value == null ? null : toTime(value);
+      case "getTimestamp":
+        return value == null ? null : toTimestamp(value);
+      case "getBytes":
+        if (value instanceof Blob) {
+          Blob blob = (Blob) value;
+          return blob.getBytes(1, (int) blob.length());
+        }
+        return value instanceof String ? ((String) value).getBytes(StandardCharsets.UTF_8) : value;
+      case "getCharacterStream":
+      case "getNCharacterStream":
+        if (value instanceof Clob) {
+          return ((Clob) value).getCharacterStream();
+        }
+        return value == null ? null : new StringReader(toStringValue(value));
+      case "getBinaryStream":
+        if (value instanceof Blob) {
+          return ((Blob) value).getBinaryStream();
+        }
+        return value instanceof byte[] ? new ByteArrayInputStream((byte[]) value) : value;
+      case "getBlob":
+        return value instanceof byte[] ? new SerialBlob((byte[]) value) : value;
+      case "getClob":
+        return value instanceof String ? new SerialClob(((String) value).toCharArray()) : value;
+      default:
+        // getNClob, getArray, getSQLXML and the like return what the driver fetched
+        return value;
+    }
+  }
+
+  private Object convertTo(Class<?> type, Object value) throws SQLException {
+    if (type == String.class) {
+      return toStringValue(value);
+    } else if (type == Boolean.class) {
+      return convert("getBoolean", value, null);
+    } else if (type == Byte.class) {
+      return toNumber(value).byteValue();
+    } else if (type == Short.class) {
+      return toNumber(value).shortValue();
+    } else if (type == Integer.class) {
+      return toNumber(value).intValue();
+    } else if (type == Long.class) {
+      return toNumber(value).longValue();
+    } else if (type == Float.class) {
+      return toNumber(value).floatValue();
+    } else if (type == Double.class) {
+      return toNumber(value).doubleValue();
+    } else if (type == BigDecimal.class) {
+      return new BigDecimal(toNumber(value).toString());
+    } else if (type == byte[].class) {
+      return convert("getBytes", value, null);
+    } else if (type == java.sql.Date.class) {
+      return toDate(value);
+    } else if (type == Time.class) {
+      return toTime(value);
+    } else if (type == Timestamp.class) {
+      return toTimestamp(value);
+    } else if (type == LocalDateTime.class) {
+      return toTimestamp(value).toLocalDateTime();
+    } else if (type == LocalDate.class) {
+      return toDate(value).toLocalDate();
+    } else if (type == LocalTime.class) {
+      return toTime(value).toLocalTime();
+    }
+    throw new SQLFeatureNotSupportedException("Cannot convert " + value.getClass().getName() + " to " + type.getName() + " on buffered rows");
+  }
+
+  private String toStringValue(Object value) throws SQLException {
+    if (value == null || value instanceof String) {
+      return (String) value;
+    } else if (value instanceof Clob) {
+      Clob clob = (Clob) value;
+      return clob.getSubString(1, (int) clob.length());
+    } else if (value instanceof byte[]) {
+      return new String((byte[]) value, StandardCharsets.UTF_8);
+    }
+    return value.toString();
+  }
+
+  private Number toNumber(Object value) throws SQLException {
+    if (value instanceof Number) {
+      return (Number) value;
+    } else if (value instanceof Boolean) {
+      return (Boolean) value ? 1 : 0;
+    }
+    try {
+      return new BigDecimal(value.toString().trim());
+    } catch (NumberFormatException e) {
+      throw new SQLException("Cannot convert '" + value + "' to a number", e);
+    }
+  }
+
+  private java.sql.Date toDate(Object value) throws SQLException {
+    if (value instanceof java.sql.Date) {
+      return (java.sql.Date) value;
+    } else if (value instanceof java.util.Date) {
+      return new java.sql.Date(((java.util.Date) value).getTime());
+    } else if (value instanceof LocalDate) {
+      return java.sql.Date.valueOf((LocalDate) value);
+    } else if (value instanceof LocalDateTime) {
+      return java.sql.Date.valueOf(((LocalDateTime) value).toLocalDate());
+    }
+    throw new SQLFeatureNotSupportedException("Cannot convert " + value.getClass().getName() + " to a date on buffered rows");
+  }
+
+  private Time toTime(Object value) throws SQLException {
+    if (value instanceof Time) {
+      return (Time) value;
+    } else if (value instanceof java.util.Date) {
+      return new Time(((java.util.Date) value).getTime());
+    } else if (value instanceof LocalTime) {
+      return Time.valueOf((LocalTime) value);
+    } else if (value instanceof LocalDateTime) {
+      return Time.valueOf(((LocalDateTime) value).toLocalTime());
+    }
+    throw new SQLFeatureNotSupportedException("Cannot convert " + value.getClass().getName() + " to a time on buffered rows");
+  }
+
+  private Timestamp toTimestamp(Object value) throws SQLException {
+    if (value instanceof Timestamp) {
+      return (Timestamp) value;
+    } else if (value instanceof java.util.Date) {
+      return new Timestamp(((java.util.Date) value).getTime());
+    } else if (value instanceof LocalDateTime) {
+      return Timestamp.valueOf((LocalDateTime) value);
+    } else if (value instanceof LocalDate) {
+      return Timestamp.valueOf(((LocalDate) value).atStartOfDay());
+    }
+    throw new SQLFeatureNotSupportedException("Cannot convert " + value.getClass().getName() + " to a timestamp on buffered rows");
+  }
+
+}
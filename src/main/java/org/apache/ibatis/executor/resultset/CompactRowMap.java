@@ -0,0 +1,206 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A row of a Map result, storing its values in an array indexed by a key index shared by all
+ * rows mapped with the same {@link CompactRowMapper}.
+ * <p>
+ * The row is copied to a HashMap on its first modification, so it behaves as a regular mutable
+ * map. Iteration follows the column order. It is serialized as a HashMap.
+ *
+ * @since 3.5.0
+ */
+final class CompactRowMap extends AbstractMap<String, Object> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Object ABSENT = new Object();
+
+  private final transient KeyIndex keyIndex;
+  private transient Object[] values;
+  private transient int size;
+  private transient HashMap<String, Object> materialized;
+
+  CompactRowMap(KeyIndex keyIndex) {
+    this.keyIndex = keyIndex;
+    this.values = new Object[keyIndex.keys.length];
+    Arrays.fill(values, ABSENT);
+  }
+
+  /*
+   * Stores a value while the row is mapped, the key being given by its position in the index.
+   */
+  void set(int position, Object value) {
+    if (values[position] == ABSENT) {
+      size++;
+    }
+    values[position] = value;
+  }
+
+  @Override
+  public int size() {
+    return materialized != null ? materialized.size() : size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (materialized != null) {
+      return materialized.containsKey(key);
+    }
+    int position = keyIndex.positionOf(key);
+    return position >= 0 && values[position] != ABSENT;
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (materialized != null) {
+      return materialized.get(key);
+    }
+    int position = keyIndex.positionOf(key);
+    return position < 0 || values[position] == ABSENT ? null : values[position];
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    return materialize().put(key, value);
+  }
+
+  @Override
+  public Object remove(Object key) {
+    return materialize().remove(key);
+  }
+
+  @Override
+  public void clear() {
+    materialize().clear();
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    if (materialized != null) {
+      return materialized.entrySet();
+    }
+    return new AbstractSet<Entry<String, Object>>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return materialized != null ? materialized.entrySet().iterator() : new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return CompactRowMap.this.size();
+      }
+    };
+  }
+
+  private HashMap<String, Object> materialize() {
+    if (materialized == null) {
+      HashMap<String, Object> map = new HashMap<>();
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] != ABSENT) {
+          map.put(keyIndex.keys[i], values[i]);
+        }
+      }
+      materialized = map;
+      values = null;
+    }
+    return materialized;
+  }
+
+  private Object writeReplace() {
+    return new HashMap<>(this);
+  }
+
+  private final class EntryIterator implements Iterator<Entry<String, Object>> {
+    private final Object[] snapshot = values;
+    private int next = advance(0);
+    private String lastKey;
+
+    private int advance(int from) {
+      while (from < snapshot.length && snapshot[from] == ABSENT) {
+        from++;
+      }
+      return from;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < snapshot.length;
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final String key = keyIndex.keys[next];
+      final Object value = snapshot[next];
+      next = advance(next + 1);
+      lastKey = key;
+      return new SimpleEntry<String, Object>(key, value) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Object setValue(Object newValue) {
+          super.setValue(newValue);
+          return put(key, newValue);
+        }
+      };
+    }
+
+    @Override
+    public void remove() {
+      if (lastKey == null) {
+        throw new IllegalStateException();
+      }
+      materialize().remove(lastKey);
+      lastKey = null;
+    }
+  }
+
+  /**
+   * The keys of the rows mapped by one mapper, in column order.
+   */
+  static final class KeyIndex {
+    private final String[] keys;
+    private final Map<String, Integer> positions;
+
+    KeyIndex(String[] keys) {
+      this.keys = keys;
+      this.positions = new HashMap<>(keys.length * 2);
+      for (int i = 0; i < keys.length; i++) {
+        positions.put(keys[i], i);
+      }
+    }
+
+    int positionOf(Object key) {
+      Integer position = positions.get(key);
+      return position == null ? -1 : position;
+    }
+  }
+
+}
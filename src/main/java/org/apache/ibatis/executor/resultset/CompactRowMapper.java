@@ -0,0 +1,82 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * A row mapper for flat result maps of type Map, the counterpart of {@link CompiledRowMapper}.
+ * <p>
+ * The keys are resolved once per result map and column layout into a {@link CompactRowMap.KeyIndex}
+ * shared by all the rows, which only hold their values. Like {@link CompiledRowMapper}, columns are
+ * read by index only when the type handler is one of the built-in handlers.
+ *
+ * @since 3.5.0
+ */
+final class CompactRowMapper {
+
+  private final CompactRowMap.KeyIndex keyIndex;
+  private final String[] columns;
+  private final int[] columnIndexes;
+  private final TypeHandler<?>[] typeHandlers;
+  private final boolean[] byIndex;
+  private final int[] positions;
+  private final boolean callSettersOnNulls;
+
+  CompactRowMapper(CompactRowMap.KeyIndex keyIndex, String[] columns, int[] columnIndexes, TypeHandler<?>[] typeHandlers,
+      int[] positions, boolean callSettersOnNulls) {
+    this.keyIndex = keyIndex;
+    this.columns = columns;
+    this.columnIndexes = columnIndexes;
+    this.typeHandlers = typeHandlers;
+    this.byIndex = new boolean[typeHandlers.length];
+    for (int i = 0; i < typeHandlers.length; i++) {
+      byIndex[i] = CompiledRowMapper.readsByIndex(typeHandlers[i]);
+    }
+    this.positions = positions;
+    this.callSettersOnNulls = callSettersOnNulls;
+  }
+
+  CompactRowMap newRow() {
+    return new CompactRowMap(keyIndex);
+  }
+
+  /*
+   * Stores the mapped columns of the current row in the row value.
+   *
+   * @return whether any column was not null
+   */
+  boolean map(ResultSet rs, CompactRowMap rowValue) throws SQLException {
+    boolean foundValues = false;
+    for (int i = 0; i < columnIndexes.length; i++) {
+      Object value = byIndex[i]
+          ? typeHandlers[i].getResult(rs, columnIndexes[i])
+          : typeHandlers[i].getResult(rs, columns[i]);
+      if (value != null) {
+        foundValues = true;
+      }
+      // gcode issue #377, call setter on nulls (value is not 'found')
+      if (value != null || callSettersOnNulls) {
+        rowValue.set(positions[i], value);
+      }
+    }
+    return foundValues;
+  }
+
+}
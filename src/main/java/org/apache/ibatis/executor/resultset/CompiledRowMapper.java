@@ -0,0 +1,191 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.type.ArrayTypeHandler;
+import org.apache.ibatis.type.BigDecimalTypeHandler;
+import org.apache.ibatis.type.BigIntegerTypeHandler;
+import org.apache.ibatis.type.BlobByteObjectArrayTypeHandler;
+import org.apache.ibatis.type.BlobInputStreamTypeHandler;
+import org.apache.ibatis.type.BlobTypeHandler;
+import org.apache.ibatis.type.BooleanTypeHandler;
+import org.apache.ibatis.type.ByteArrayTypeHandler;
+import org.apache.ibatis.type.ByteObjectArrayTypeHandler;
+import org.apache.ibatis.type.ByteTypeHandler;
+import org.apache.ibatis.type.CharacterTypeHandler;
+import org.apache.ibatis.type.ClobReaderTypeHandler;
+import org.apache.ibatis.type.ClobTypeHandler;
+import org.apache.ibatis.type.DateOnlyTypeHandler;
+import org.apache.ibatis.type.DateTypeHandler;
+import org.apache.ibatis.type.DoubleTypeHandler;
+import org.apache.ibatis.type.EnumOrdinalTypeHandler;
+import org.apache.ibatis.type.EnumTypeHandler;
+import org.apache.ibatis.type.FloatTypeHandler;
+import org.apache.ibatis.type.InstantTypeHandler;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.JapaneseDateTypeHandler;
+import org.apache.ibatis.type.LocalDateTimeTypeHandler;
+import org.apache.ibatis.type.LocalDateTypeHandler;
+import org.apache.ibatis.type.LocalTimeTypeHandler;
+import org.apache.ibatis.type.LongTypeHandler;
+import org.apache.ibatis.type.MonthTypeHandler;
+import org.apache.ibatis.type.NClobTypeHandler;
+import org.apache.ibatis.type.NStringTypeHandler;
+import org.apache.ibatis.type.ObjectTypeHandler;
+import org.apache.ibatis.type.OffsetDateTimeTypeHandler;
+import org.apache.ibatis.type.OffsetTimeTypeHandler;
+import org.apache.ibatis.type.ShortTypeHandler;
+import org.apache.ibatis.type.SqlDateTypeHandler;
+import org.apache.ibatis.type.SqlTimeTypeHandler;
+import org.apache.ibatis.type.SqlTimestampTypeHandler;
+import org.apache.ibatis.type.SqlxmlTypeHandler;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.apache.ibatis.type.TimeOnlyTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.UnknownTypeHandler;
+import org.apache.ibatis.type.YearMonthTypeHandler;
+import org.apache.ibatis.type.YearTypeHandler;
+import org.apache.ibatis.type.ZonedDateTimeTypeHandler;
+
+/**
+ * A row mapper specialized for one result map and one column layout.
+ * <p>
+ * The type handlers and setter invokers are resolved up front, so mapping a row involves neither a
+ * MetaObject nor property name parsing. Public setters are called through classes generated by
+ * {@link SetterClassGenerator}, the others through the Reflector's invokers. Columns are read by index when the type handler is one of
+ * the built-in handlers and by name otherwise, since a custom handler may only implement
+ * {@link TypeHandler#getResult(ResultSet, String)} properly. Only flat result maps of beans are
+ * compiled, see {@link DefaultResultSetHandler}.
+ *
+ * @since 3.5.0
+ */
+final class CompiledRowMapper {
+
+  private static final Set<Class<?>> BUILT_IN_TYPE_HANDLERS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+      ArrayTypeHandler.class,
+      BigDecimalTypeHandler.class,
+      BigIntegerTypeHandler.class,
+      BlobByteObjectArrayTypeHandler.class,
+      BlobInputStreamTypeHandler.class,
+      BlobTypeHandler.class,
+      BooleanTypeHandler.class,
+      ByteArrayTypeHandler.class,
+      ByteObjectArrayTypeHandler.class,
+      ByteTypeHandler.class,
+      CharacterTypeHandler.class,
+      ClobReaderTypeHandler.class,
+      ClobTypeHandler.class,
+      DateOnlyTypeHandler.class,
+      DateTypeHandler.class,
+      DoubleTypeHandler.class,
+      EnumOrdinalTypeHandler.class,
+      EnumTypeHandler.class,
+      FloatTypeHandler.class,
+      InstantTypeHandler.class,
+      IntegerTypeHandler.class,
+      JapaneseDateTypeHandler.class,
+      LocalDateTimeTypeHandler.class,
+      LocalDateTypeHandler.class,
+      LocalTimeTypeHandler.class,
+      LongTypeHandler.class,
+      MonthTypeHandler.class,
+      NClobTypeHandler.class,
+      NStringTypeHandler.class,
+      ObjectTypeHandler.class,
+      OffsetDateTimeTypeHandler.class,
+      OffsetTimeTypeHandler.class,
+      ShortTypeHandler.class,
+      SqlDateTypeHandler.class,
+      SqlTimeTypeHandler.class,
+      SqlTimestampTypeHandler.class,
+      SqlxmlTypeHandler.class,
+      StringTypeHandler.class,
+      TimeOnlyTypeHandler.class,
+      UnknownTypeHandler.class,
+      YearMonthTypeHandler.class,
+      YearTypeHandler.class,
+      ZonedDateTimeTypeHandler.class)));
+
+  private final String[] columns;
+  private final int[] columnIndexes;
+  private final TypeHandler<?>[] typeHandlers;
+  private final boolean[] byIndex;
+  private final String[] properties;
+  private final Invoker[] setters;
+  private final boolean[] primitives;
+  private final boolean callSettersOnNulls;
+
+  CompiledRowMapper(String[] columns, int[] columnIndexes, TypeHandler<?>[] typeHandlers, String[] properties,
+      Invoker[] setters, boolean[] primitives, boolean callSettersOnNulls) {
+    this.columns = columns;
+    this.columnIndexes = columnIndexes;
+    this.typeHandlers = typeHandlers;
+    this.byIndex = new boolean[typeHandlers.length];
+    for (int i = 0; i < typeHandlers.length; i++) {
+      byIndex[i] = readsByIndex(typeHandlers[i]);
+    }
+    this.properties = properties;
+    this.setters = setters;
+    this.primitives = primitives;
+    this.callSettersOnNulls = callSettersOnNulls;
+  }
+
+  /*
+   * Sets the mapped columns of the current row on the row value.
+   *
+   * @return whether any column was not null
+   */
+  boolean map(ResultSet rs, Object rowValue) throws SQLException {
+    boolean foundValues = false;
+    for (int i = 0; i < columnIndexes.length; i++) {
+      Object value = byIndex[i]
+          ? typeHandlers[i].getResult(rs, columnIndexes[i])
+          : typeHandlers[i].getResult(rs, columns[i]);
+      if (value != null) {
+        foundValues = true;
+      }
+      // gcode issue #377, call setter on nulls (value is not 'found')
+      if (value != null || (callSettersOnNulls && !primitives[i])) {
+        try {
+          setters[i].invoke(rowValue, new Object[] { value });
+        } catch (Throwable t) {
+          throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + rowValue.getClass()
+              + "' with value '" + value + "' Cause: " + t.toString(), t);
+        }
+      }
+    }
+    return foundValues;
+  }
+
+  /*
+   * Only the built-in type handlers are known to read columns by index the same way as by name.
+   * Custom type handlers, subclasses of built-in ones included, are read by column name like the
+   * regular mapping does.
+   */
+  static boolean readsByIndex(TypeHandler<?> typeHandler) {
+    return BUILT_IN_TYPE_HANDLERS.contains(typeHandler.getClass());
+  }
+
+}
@@ -20,12 +20,14 @@ import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.result.ColumnarResult;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.executor.result.DefaultResultHandler;
 import org.apache.ibatis.executor.result.ResultMapException;
@@ -38,8 +40,12 @@ import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
@@ -48,19 +54,30 @@ import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
 
 import java.lang.reflect.Constructor;
 import java.sql.CallableStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * @author Clinton Begin
@@ -102,6 +119,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * 上的resultMap后马上移除
    * */
   private final Map<String, Object> ancestorObjects = new HashMap<>();
+  /** 嵌套resultMapping的列前缀，按父列前缀缓存 */
+  private final Map<ResultMapping, Map<String, String>> columnPrefixes = new IdentityHashMap<>();
   /**
    * 以前的RowValue的值
    */
@@ -111,8 +130,6 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
-  // Cached Automappings
-  private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   //是否使用构造函数构造Mapping
@@ -126,7 +143,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   /**
    * ResultSet和ResultMap不匹配的列名的映射对象
    */
-  private static class UnMappedColumnAutoMapping {
+  static class UnMappedColumnAutoMapping {
     /**
      * 列名
      */
@@ -195,7 +212,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     try {
       final String resultMapId = parameterMapping.getResultMapId();
       final ResultMap resultMap = configuration.getResultMap(resultMapId);
-      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration, mappedStatement.getResultSetLayoutCache());
       if (this.resultHandler == null) {
         final DefaultResultHandler resultHandler = new DefaultResultHandler(objectFactory);
         handleRowValues(rsw, resultMap, resultHandler, new RowBounds(), null);
@@ -276,7 +293,21 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     ResultMap resultMap = resultMaps.get(0);
-    return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    // 嵌套查询会在消费线程上延迟加载，与预取线程共用执行器，不预取
+    if (!mappedStatement.isPrefetchCursor() || resultMap.hasNestedQueries()) {
+      return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    }
+    if (mappedStatement.getFetchSize() == null && configuration.getDefaultFetchSize() == null) {
+      // 先按列的显示宽度估算，读取若干行后再按实际读到的行大小调整
+      final ResultSet rs = rsw.getResultSet();
+      final int fetchSize = PrefetchingCursor.estimateFetchSize(rs.getMetaData());
+      rs.setFetchSize(fetchSize);
+      rsw = new ResultSetWrapper(AdaptiveFetchSizeResultSet.newInstance(rs, fetchSize), rsw.getLayout());
+    }
+    final int prefetchSize = configuration.getCursorPrefetchSize() > 0
+        ? configuration.getCursorPrefetchSize() : PrefetchingCursor.DEFAULT_PREFETCH_SIZE;
+    return new PrefetchingCursor<>(new DefaultCursor<>(this, resultMap, rsw, rowBounds), prefetchSize,
+        rowBounds.getOffset(), configuration.getCursorPrefetchThreadFactory());
   }
 
   /**
@@ -299,7 +330,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    return rs != null ? new ResultSetWrapper(rs, configuration) : null;
+    return rs != null ? new ResultSetWrapper(rs, configuration, mappedStatement.getResultSetLayoutCache()) : null;
   }
 
   private ResultSetWrapper getNextResultSet(Statement stmt) {
@@ -312,7 +343,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           if (rs == null) {
             return getNextResultSet(stmt);
           } else {
-            return new ResultSetWrapper(rs, configuration);
+            return new ResultSetWrapper(rs, configuration, mappedStatement.getResultSetLayoutCache());
           }
         }
       }
@@ -392,7 +423,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @throws SQLException
    */
   public void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
-    if (resultMap.hasNestedResultMaps()) {
+    if (ColumnarResult.class.equals(resultMap.getType())) {
+      //按列存储的整个结果集
+      handleRowValuesForColumnarResult(rsw, resultHandler, rowBounds, parentMapping);
+    } else if (resultMap.hasNestedResultMaps()) {
       ensureNoRowBounds();
       checkResultHandler();
       //对于association、collection的包含resultMap或者不包含select元素的解析行值
@@ -429,8 +463,19 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    */
   private void handleRowValuesForSimpleResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping)
       throws SQLException {
+    if (mappedStatement.isParallelResultMapping() && parentMapping == null
+        && resultHandler instanceof DefaultResultHandler && isParallelMappable(resultMap)
+        && rsw.getLayout().canMapBufferedRows(resultMap.getId())) {
+      handleRowValuesInParallel(rsw, resultMap, resultHandler, rowBounds);
+      return;
+    }
     DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
     skipRows(rsw.getResultSet(), rowBounds);
+    handleRemainingRowValues(rsw, resultMap, resultHandler, resultContext, rowBounds, parentMapping);
+  }
+
+  private void handleRemainingRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext,
+      RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
     while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
       ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
       //获取行值
@@ -440,6 +485,156 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  /**
+   * 整个结果集按列读入基本类型数组，作为一个结果对象存储，不为每行创建对象
+   */
+  private void handleRowValuesForColumnarResult(ResultSetWrapper rsw, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping)
+      throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
+    final ColumnarResult.Builder builder = new ColumnarResult.Builder(rsw.getColumnNames(), rs.getMetaData());
+    skipRows(rs, rowBounds);
+    int rows = 0;
+    while (rows < rowBounds.getLimit() && rs.next()) {
+      builder.addRow(rs);
+      rows++;
+    }
+    storeObject(resultHandler, new DefaultResultContext<>(), builder.build(), parentMapping, rs);
+  }
+
+  //
+  // PARALLEL RESULT MAPPING
+  //
+
+  /**
+   * 嵌套查询会用到执行器，鉴别器需要逐行解析，这两种resultMap只能串行转换
+   */
+  private boolean isParallelMappable(ResultMap resultMap) {
+    if (resultMap.hasNestedQueries() || resultMap.getDiscriminator() != null) {
+      return false;
+    }
+    for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
+      if (resultMapping.getResultSet() != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 在当前线程按顺序读取原始列值，每批行交给线程池创建对象和执行TypeHandler，再按顺序加入结果。
+   * 第一行先在当前线程转换，TypeHandler用到缓冲的行不支持的读取方式时，这一行和其余的行按原结果集串行转换
+   */
+  private void handleRowValuesInParallel(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds)
+      throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
+    final ResultSetMetaData metaData = rs.getMetaData();
+    final int columnCount = rsw.getColumnNames().size();
+    final int batchSize = Math.max(1, configuration.getParallelResultMappingBatchSize());
+    final ForkJoinPool pool = configuration.getResultMappingPool();
+    // bounds the rows held in memory while the pool catches up
+    final int maxPending = Math.max(2, pool.getParallelism() * 2);
+    final Deque<Future<List<Object>>> pending = new ArrayDeque<>();
+    final DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
+    try {
+      skipRows(rs, rowBounds);
+      if (rowBounds.getLimit() <= 0 || !rs.next()) {
+        return;
+      }
+      int fetched = 1;
+      final Object firstRowValue;
+      try {
+        final List<Object[]> firstRow = Collections.singletonList(BufferedResultSet.fetchRow(rs, columnCount));
+        firstRowValue = mapBufferedRows(firstRow, rsw.getLayout(), metaData, resultMap).get(0);
+      } catch (RuntimeException | SQLException e) {
+        if (!isUnsupportedOnBufferedRows(e)) {
+          throw e;
+        }
+        rsw.getLayout().disableBufferedRows(resultMap.getId());
+        storeObject(resultHandler, resultContext, getRowValue(rsw, resultMap, null), null, rs);
+        handleRemainingRowValues(rsw, resultMap, resultHandler, resultContext, rowBounds, null);
+        return;
+      }
+      storeObject(resultHandler, resultContext, firstRowValue, null, rs);
+      List<Object[]> batch = new ArrayList<>(batchSize);
+      while (fetched < rowBounds.getLimit() && rs.next()) {
+        batch.add(BufferedResultSet.fetchRow(rs, columnCount));
+        fetched++;
+        if (batch.size() == batchSize) {
+          pending.add(submitBatch(pool, batch, rsw.getLayout(), metaData, resultMap));
+          batch = new ArrayList<>(batchSize);
+          if (pending.size() >= maxPending) {
+            storeBatch(pending.poll(), resultHandler, resultContext, rsw, resultMap);
+          }
+        }
+      }
+      if (!batch.isEmpty()) {
+        pending.add(submitBatch(pool, batch, rsw.getLayout(), metaData, resultMap));
+      }
+      while (!pending.isEmpty()) {
+        storeBatch(pending.poll(), resultHandler, resultContext, rsw, resultMap);
+      }
+    } finally {
+      for (Future<List<Object>> future : pending) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  private Future<List<Object>> submitBatch(ForkJoinPool pool, List<Object[]> rows, ResultSetLayout layout, ResultSetMetaData metaData,
+      ResultMap resultMap) {
+    return pool.submit(() -> mapBufferedRows(rows, layout, metaData, resultMap));
+  }
+
+  private List<Object> mapBufferedRows(List<Object[]> rows, ResultSetLayout layout, ResultSetMetaData metaData, ResultMap resultMap)
+      throws SQLException {
+    // a handler per batch, its per row state must not be shared between threads
+    final DefaultResultSetHandler handler = new DefaultResultSetHandler(executor, mappedStatement, parameterHandler, resultHandler, boundSql, rowBounds);
+    final ResultSetWrapper rsw = new ResultSetWrapper(BufferedResultSet.newInstance(rows, layout, metaData), layout);
+    final List<Object> rowValues = new ArrayList<>(rows.size());
+    while (rsw.getResultSet().next()) {
+      rowValues.add(handler.getRowValue(rsw, resultMap, null));
+    }
+    return rowValues;
+  }
+
+  /**
+   * 缓冲的行不支持的读取方式会抛出SQLFeatureNotSupportedException，TypeHandler可能把它包装在其他异常中
+   */
+  private static boolean isUnsupportedOnBufferedRows(Throwable t) {
+    for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLFeatureNotSupportedException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void storeBatch(Future<List<Object>> batch, ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext,
+      ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final List<Object> rowValues;
+    try {
+      rowValues = batch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while mapping results.  Cause: " + e, e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (isUnsupportedOnBufferedRows(cause)) {
+        // the rows already left the result set, later executions map them serially
+        rsw.getLayout().disableBufferedRows(resultMap.getId());
+      }
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ExecutorException("Error mapping results.  Cause: " + cause, cause);
+    }
+    for (Object rowValue : rowValues) {
+      storeObject(resultHandler, resultContext, rowValue, null, rsw.getResultSet());
+    }
+  }
+
   /**
    * 存储值对象
    * @param resultHandler
@@ -499,6 +694,24 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @throws SQLException
    */
   private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    if (configuration.isCompiledRowMappingEnabled()) {
+      final CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap, columnPrefix);
+      if (rowMapper != null) {
+        this.useConstructorMappings = false;
+        Object rowValue = objectFactory.create(resultMap.getType());
+        boolean foundValues = rowMapper.map(rsw.getResultSet(), rowValue);
+        return foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
+      }
+    }
+    if (configuration.isCompactMapResultsEnabled() && Map.class.equals(resultMap.getType())) {
+      final CompactRowMapper rowMapper = getCompactRowMapper(rsw, resultMap, columnPrefix);
+      if (rowMapper != null) {
+        this.useConstructorMappings = false;
+        CompactRowMap rowValue = rowMapper.newRow();
+        boolean foundValues = rowMapper.map(rsw.getResultSet(), rowValue);
+        return foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
+      }
+    }
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();
     //创建用于承载的JavaBean（还未赋值）
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
@@ -519,6 +732,168 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return rowValue;
   }
 
+  //
+  // COMPILED ROW MAPPERS
+  //
+
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    // column indexes are only valid for result sets of the same layout
+    final Map<String, CompiledRowMapper> compiledRowMappers = rsw.getLayout().getCompiledRowMappers();
+    final String mapKey = resultMap.getId() + ":" + columnPrefix;
+    CompiledRowMapper rowMapper = compiledRowMappers.get(mapKey);
+    if (rowMapper == null) {
+      rowMapper = compileRowMapper(rsw, resultMap, columnPrefix);
+      compiledRowMappers.put(mapKey, rowMapper == null ? ResultSetLayout.NOT_COMPILABLE : rowMapper);
+    }
+    return rowMapper == ResultSetLayout.NOT_COMPILABLE ? null : rowMapper;
+  }
+
+  /**
+   * 为只包含普通属性的resultMap生成按列序号取值、通过生成的类直接调用setter赋值的映射器
+   * 构造器映射、嵌套查询、嵌套结果、多结果集和Map类型的结果不编译，返回null，仍走原来的逻辑
+   */
+  private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    final Class<?> resultType = resultMap.getType();
+    if (!resultMap.getConstructorResultMappings().isEmpty()
+        || resultType.isInterface()
+        || Map.class.isAssignableFrom(resultType)
+        || hasTypeHandlerForResultObject(rsw, resultType)) {
+      return null;
+    }
+    // 自定义的ObjectWrapperFactory可能包装任何结果对象，只有默认实现时才能确定按JavaBean赋值
+    if (configuration.getObjectWrapperFactory().getClass() != DefaultObjectWrapperFactory.class) {
+      return null;
+    }
+    final Reflector reflector = reflectorFactory.findForClass(resultType);
+    if (!reflector.hasDefaultConstructor()) {
+      return null;
+    }
+    final List<String> columns = new ArrayList<>();
+    final List<String> properties = new ArrayList<>();
+    final List<TypeHandler<?>> typeHandlers = new ArrayList<>();
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      final MetaClass metaClass = MetaClass.forClass(resultType, reflectorFactory);
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, null, metaClass, columnPrefix)) {
+        columns.add(mapping.column);
+        properties.add(mapping.property);
+        typeHandlers.add(mapping.typeHandler);
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.getNestedQueryId() != null
+          || propertyMapping.getNestedResultMapId() != null
+          || propertyMapping.getResultSet() != null
+          || propertyMapping.isCompositeResult()
+          || propertyMapping.isLazyColumn()) {
+        return null;
+      }
+      final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+      if (propertyMapping.getProperty() != null
+          && column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        columns.add(column);
+        properties.add(propertyMapping.getProperty());
+        typeHandlers.add(propertyMapping.getTypeHandler());
+      }
+    }
+    final int size = columns.size();
+    final int[] columnIndexes = new int[size];
+    final Invoker[] setters = new Invoker[size];
+    final boolean[] primitives = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      final String property = properties.get(i);
+      // nested properties need MetaObject to instantiate the intermediate objects
+      if (property.indexOf('.') >= 0 || property.indexOf('[') >= 0 || !reflector.hasSetter(property)) {
+        return null;
+      }
+      columnIndexes[i] = rsw.getLayout().indexOf(columns.get(i));
+      setters[i] = SetterClassGenerator.generate(reflector.getSetInvoker(property));
+      if (columnIndexes[i] == 0) {
+        return null;
+      }
+      primitives[i] = reflector.getSetterType(property).isPrimitive();
+    }
+    return new CompiledRowMapper(columns.toArray(new String[size]), columnIndexes, typeHandlers.toArray(new TypeHandler<?>[size]),
+        properties.toArray(new String[size]), setters, primitives, configuration.isCallSettersOnNulls());
+  }
+
+  private CompactRowMapper getCompactRowMapper(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    final Map<String, CompactRowMapper> compactRowMappers = rsw.getLayout().getCompactRowMappers();
+    final String mapKey = resultMap.getId() + ":" + columnPrefix;
+    CompactRowMapper rowMapper = compactRowMappers.get(mapKey);
+    if (rowMapper == null) {
+      rowMapper = compileCompactRowMapper(rsw, resultMap, columnPrefix);
+      compactRowMappers.put(mapKey, rowMapper == null ? ResultSetLayout.NOT_COMPACTABLE : rowMapper);
+    }
+    return rowMapper == ResultSetLayout.NOT_COMPACTABLE ? null : rowMapper;
+  }
+
+  /**
+   * 为只包含普通属性的Map类型resultMap生成映射器，所有行共享同一份key索引，行中只存放值数组
+   * 自定义ObjectFactory、ObjectWrapper，嵌套映射以及带"."或"["的属性名（需要MapWrapper创建嵌套对象）不处理，返回null
+   */
+  private CompactRowMapper compileCompactRowMapper(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    if (!resultMap.getConstructorResultMappings().isEmpty()
+        || objectFactory.getClass() != DefaultObjectFactory.class
+        || hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
+      return null;
+    }
+    final MetaObject metaObject = configuration.newMetaObject(objectFactory.create(resultMap.getType()));
+    if (configuration.getObjectWrapperFactory().hasWrapperFor(metaObject.getOriginalObject())) {
+      return null;
+    }
+    final List<String> columns = new ArrayList<>();
+    final List<String> properties = new ArrayList<>();
+    final List<TypeHandler<?>> typeHandlers = new ArrayList<>();
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix)) {
+        columns.add(mapping.column);
+        properties.add(mapping.property);
+        typeHandlers.add(mapping.typeHandler);
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.getNestedQueryId() != null
+          || propertyMapping.getNestedResultMapId() != null
+          || propertyMapping.getResultSet() != null
+          || propertyMapping.isCompositeResult()) {
+        return null;
+      }
+      final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+      if (propertyMapping.getProperty() != null
+          && column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        columns.add(column);
+        properties.add(propertyMapping.getProperty());
+        typeHandlers.add(propertyMapping.getTypeHandler());
+      }
+    }
+    final int size = columns.size();
+    final int[] columnIndexes = new int[size];
+    final int[] positions = new int[size];
+    final Map<String, Integer> keyPositions = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      final String property = properties.get(i);
+      if (property.indexOf('.') >= 0 || property.indexOf('[') >= 0) {
+        return null;
+      }
+      columnIndexes[i] = rsw.getLayout().indexOf(columns.get(i));
+      if (columnIndexes[i] == 0) {
+        return null;
+      }
+      // 同一个key映射多列时，后面的值覆盖前面的值，与Map.put一致
+      Integer position = keyPositions.get(property);
+      if (position == null) {
+        position = keyPositions.size();
+        keyPositions.put(property, position);
+      }
+      positions[i] = position;
+    }
+    final CompactRowMap.KeyIndex keyIndex = new CompactRowMap.KeyIndex(keyPositions.keySet().toArray(new String[0]));
+    return new CompactRowMapper(keyIndex, columns.toArray(new String[size]), columnIndexes,
+        typeHandlers.toArray(new TypeHandler<?>[size]), positions, configuration.isCallSettersOnNulls());
+  }
+
   private boolean shouldApplyAutomaticMappings(ResultMap resultMap, boolean isNested) {
     if (resultMap.getAutoMapping() != null) {
       return resultMap.getAutoMapping();
@@ -608,10 +983,37 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       //普通列
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+      if (isLazyColumn(propertyMapping, metaResultObject.getOriginalObject().getClass())
+          && propertyMapping.getProperty() != null && !(typeHandler instanceof UnknownTypeHandler)) {
+        //fetchType="lazy"的普通列只保存驱动返回的原始值（LOB定位符或字节数组），第一次访问属性时再由typeHandler解码
+        Object value = rs.getObject(column);
+        if (value == null) {
+          return null;
+        }
+        if (isCachedBySecondLevelCache()) {
+          //放入二级缓存的对象在提交后才序列化，那时LOB定位符可能已经失效，先读出字节或字符串
+          value = BufferedResultSet.readLob(value);
+        }
+        final String property = propertyMapping.getProperty();
+        lazyLoader.addLoader(property, metaResultObject,
+            new LazyColumnLoader(configuration, typeHandler, value, metaResultObject.getSetterType(property)));
+        return DEFERED;
+      }
       return typeHandler.getResult(rs, column);
     }
   }
 
+  private boolean isCachedBySecondLevelCache() {
+    return configuration.isCacheEnabled() && mappedStatement.getCache() != null && mappedStatement.isUseCache();
+  }
+
+  /**
+   * 只有显式指定fetchType="lazy"的普通列才延迟解码，Map类型的结果没有getter可以触发加载，总是立即解码
+   */
+  private static boolean isLazyColumn(ResultMapping propertyMapping, Class<?> resultType) {
+    return propertyMapping.isLazyColumn() && !Map.class.isAssignableFrom(resultType);
+  }
+
   /**
    * 创建自动映射的Mapping
    * @param rsw
@@ -622,7 +1024,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @throws SQLException
    */
   private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
+    return createAutomaticMappings(rsw, resultMap, metaObject, null, columnPrefix);
+  }
+
+  /**
+   * 编译映射器时没有结果对象，按resultMap的类型查找属性，metaObject为null时使用metaClass
+   */
+  private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, MetaClass metaClass, String columnPrefix) throws SQLException {
     final String mapKey = resultMap.getId() + ":" + columnPrefix;
+    //自动映射只和列结构有关，缓存在ResultSetLayout中，同一语句的后续执行不再解析
+    final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = rsw.getLayout().getAutoMappings();
     List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
     if (autoMapping == null) {
       autoMapping = new ArrayList<>();
@@ -641,13 +1052,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           }
         }
         //尝试直接从创建出来的bean对象中查找此此列名
-        final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
-        if (property != null && metaObject.hasSetter(property)) {
+        final String property = metaObject != null
+            ? metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase())
+            : metaClass.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
+        if (property != null && (metaObject != null ? metaObject.hasSetter(property) : metaClass.hasSetter(property))) {
           //不存在与resultMap中的属性
           if (resultMap.getMappedProperties().contains(property)) {
             continue;
           }
-          final Class<?> propertyType = metaObject.getSetterType(property);
+          final Class<?> propertyType = metaObject != null ? metaObject.getSetterType(property) : metaClass.getSetterType(property);
           //存在TypeHandler，mybatis中有默认的TypeHandler，不匹配的一般都有默认的TypeHandler
           if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
             final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
@@ -776,7 +1189,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
          * 为什么要循环全部呢，感觉是因为默认懒加载是层级的懒加载，只要这个resultMap中有一个懒加载，那么其他的select
          * 都是懒加载的。这也是这里要break的原因吧
          */
-        if (propertyMapping.getNestedQueryId() != null && propertyMapping.isLazy()) {
+        if ((propertyMapping.getNestedQueryId() != null && propertyMapping.isLazy())
+            || isLazyColumn(propertyMapping, resultObject.getClass())) {
           resultObject = configuration.getProxyFactory().createProxy(resultObject, lazyLoader, configuration, objectFactory, constructorArgTypes, constructorArgs);
           break;
         }
@@ -1293,6 +1707,21 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   private String getColumnPrefix(String parentPrefix, ResultMapping resultMapping) {
+    if (parentPrefix == null && resultMapping.getColumnPrefix() == null) {
+      return null;
+    }
+    //每行都会计算，缓存拼接并转大写后的结果
+    final Map<String, String> prefixes = columnPrefixes.computeIfAbsent(resultMapping, k -> new HashMap<>());
+    final String parentKey = parentPrefix == null ? "" : parentPrefix;
+    String columnPrefix = prefixes.get(parentKey);
+    if (columnPrefix == null) {
+      columnPrefix = buildColumnPrefix(parentPrefix, resultMapping);
+      prefixes.put(parentKey, columnPrefix);
+    }
+    return columnPrefix;
+  }
+
+  private String buildColumnPrefix(String parentPrefix, ResultMapping resultMapping) {
     final StringBuilder columnPrefixBuilder = new StringBuilder();
     if (parentPrefix != null) {
       columnPrefixBuilder.append(parentPrefix);
@@ -1315,12 +1744,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
       return false;
     } else if (columnPrefix != null) {
-      for (String columnName : rsw.getColumnNames()) {
-        if (columnName.toUpperCase().startsWith(columnPrefix.toUpperCase())) {
-          return true;
-        }
-      }
-      return false;
+      return rsw.getLayout().hasColumnWithPrefix(columnPrefix);
     }
     return true;
   }
@@ -1332,6 +1756,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   /**
    * 生成唯一的rowkey，这个应该是用来合并最终的结果集
+   * 参与rowkey的列在每种列结构下只解析一次，每行只按列序号取值
    * @param resultMap
    * @param rsw
    * @param columnPrefix
@@ -1339,24 +1764,37 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @throws SQLException
    */
   private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
-    cacheKey.update(resultMap.getId());
+    final ResultSetLayout layout = rsw.getLayout();
+    RowKeyPlan rowKeyPlan = layout.getRowKeyPlan(resultMap, columnPrefix);
+    if (rowKeyPlan == null) {
+      rowKeyPlan = createRowKeyPlan(resultMap, rsw, columnPrefix);
+      layout.putRowKeyPlan(resultMap, columnPrefix, rowKeyPlan);
+    }
+    return rowKeyPlan.createRowKey(rsw.getResultSet());
+  }
+
+  private RowKeyPlan createRowKeyPlan(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+    final List<String> columns = new ArrayList<>();
+    final List<TypeHandler<?>> typeHandlers = new ArrayList<>();
     //获取resultMap的idResultMapping集合，若不存在就获取propertyResultMapping
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
     if (resultMappings.isEmpty()) {
       if (Map.class.isAssignableFrom(resultMap.getType())) {
-        createRowKeyForMap(rsw, cacheKey);
+        createRowKeyForMap(rsw, columns, typeHandlers);
       } else {
-        createRowKeyForUnmappedProperties(resultMap, rsw, cacheKey, columnPrefix);
+        createRowKeyForUnmappedProperties(resultMap, rsw, columns, typeHandlers, columnPrefix);
       }
     } else {
       //创建rowKey，简单的说就是取<id>标签或者非<association>、非<collection>的resultMapping的列名和列值
-      createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
+      createRowKeyForMappedProperties(resultMap, rsw, columns, typeHandlers, resultMappings, columnPrefix);
     }
-    if (cacheKey.getUpdateCount() < 2) {
-      return CacheKey.NULL_CACHE_KEY;
+    final int size = columns.size();
+    final int[] columnIndexes = new int[size];
+    for (int i = 0; i < size; i++) {
+      columnIndexes[i] = rsw.getLayout().indexOf(columns.get(i));
     }
-    return cacheKey;
+    return new RowKeyPlan(resultMap.getId(), columns.toArray(new String[size]), columnIndexes,
+        typeHandlers.toArray(new TypeHandler<?>[size]), configuration.isReturnInstanceForEmptyRow());
   }
 
   private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
@@ -1382,49 +1820,45 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   /**
-   * 为mappedStatement的配置创建行key
+   * 收集mappedStatement的配置中参与行key的列
    * @param resultMap
    * @param rsw 包含resultSet对象
-   * @param cacheKey 缓存key
+   * @param columns 参与行key的列名
+   * @param typeHandlers 列对应的typeHandler
    * @param resultMappings resultMap下的resultMapping集合
    * @param columnPrefix
    * @throws SQLException
    */
-  private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+  private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<String> columns, List<TypeHandler<?>> typeHandlers,
+      List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
     for (ResultMapping resultMapping : resultMappings) {
       //当前映射的行是嵌套查询的行也就是<association>或者<collection>
       if (resultMapping.getNestedResultMapId() != null && resultMapping.getResultSet() == null) {
         // Issue #392
         //那么从configuration中获取这个resultMapping中包含的resultMap
         final ResultMap nestedResultMap = configuration.getResultMap(resultMapping.getNestedResultMapId());
-        //递归调用创建行key，注意这里递归传入的是ConstructorResultMapping，所以默认情况下rowKey取的是
+        //递归收集行key的列，注意这里递归传入的是ConstructorResultMapping，所以默认情况下rowKey取的是
         //非<association>、非<collection>的resultMapping
-        createRowKeyForMappedProperties(nestedResultMap, rsw, cacheKey, nestedResultMap.getConstructorResultMappings(),
+        createRowKeyForMappedProperties(nestedResultMap, rsw, columns, typeHandlers, nestedResultMap.getConstructorResultMappings(),
             prependPrefix(resultMapping.getColumnPrefix(), columnPrefix));
         //association、collection的select 元素的值，就说明这个resultMapping是简单的列，没有级联查询的属性什么的
       } else if (resultMapping.getNestedQueryId() == null) {
         //返回列名
         final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
-        //获取这个resultMapping的typeHandler实例
-        final TypeHandler<?> th = resultMapping.getTypeHandler();
         //获取resultMap能和resultSet对应上的列名集合
         List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
         //当前resuestMapping的列名存在于  resultMap能和resultSet对应上的列名集合
         if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          //根据列名从resultSet中获取值
-          final Object value = th.getResult(rsw.getResultSet(), column);
-          //值不为空，rowkey
-          if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-            cacheKey.update(column);
-            cacheKey.update(value);
-          }
+          columns.add(column);
+          typeHandlers.add(resultMapping.getTypeHandler());
         }
       }
     }
   }
 
-  private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, String columnPrefix) throws SQLException {
+  private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<String> columns, List<TypeHandler<?>> typeHandlers,
+      String columnPrefix) throws SQLException {
     final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
     List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
     for (String column : unmappedColumnNames) {
@@ -1438,23 +1872,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-        String value = rsw.getResultSet().getString(column);
-        if (value != null) {
-          cacheKey.update(column);
-          cacheKey.update(value);
-        }
+        columns.add(column);
+        typeHandlers.add(null);
       }
     }
   }
 
-  private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
-    List<String> columnNames = rsw.getColumnNames();
-    for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
-      if (value != null) {
-        cacheKey.update(columnName);
-        cacheKey.update(value);
-      }
+  private void createRowKeyForMap(ResultSetWrapper rsw, List<String> columns, List<TypeHandler<?>> typeHandlers) {
+    for (String columnName : rsw.getColumnNames()) {
+      columns.add(columnName);
+      typeHandlers.add(null);
     }
   }
 
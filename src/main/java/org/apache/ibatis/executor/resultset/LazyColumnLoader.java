@@ -0,0 +1,64 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import org.apache.ibatis.executor.loader.ResultLoader;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Loads a column mapped with <code>fetchType="lazy"</code>.
+ * <p>
+ * The row only keeps the value returned by {@link ResultSet#getObject(int)}, usually a LOB locator
+ * or the raw bytes; the type handler decodes it the first time the property is read. The locator
+ * must still be valid then, which for most drivers means before the transaction ends.
+ * <p>
+ * The loader does not need a query, so the proxy loads it before the result object is serialized,
+ * for example by a read/write second level cache. Rows that go to such a cache keep the bytes or the
+ * string instead of the locator.
+ *
+ * @since 3.5.0
+ */
+final class LazyColumnLoader extends ResultLoader {
+
+  private final TypeHandler<?> typeHandler;
+  private final Object value;
+
+  LazyColumnLoader(Configuration configuration, TypeHandler<?> typeHandler, Object value, Class<?> targetType) {
+    super(configuration, null, null, null, targetType, null, null);
+    this.typeHandler = typeHandler;
+    this.value = value;
+  }
+
+  @Override
+  public boolean isQueryRequired() {
+    return false;
+  }
+
+  @Override
+  public Object loadResult() throws SQLException {
+    final ResultSet rs = BufferedResultSet.newInstance(Collections.singletonList(new Object[] { value }), null, null);
+    rs.next();
+    resultObject = typeHandler.getResult(rs, 1);
+    loaded = true;
+    return resultObject;
+  }
+
+}
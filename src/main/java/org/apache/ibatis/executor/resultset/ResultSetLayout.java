@@ -0,0 +1,307 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.ObjectTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
+
+/**
+ * The columns of a result set and everything resolved from them: type handlers, the columns
+ * mapped and not mapped by each result map, automatic mappings and compiled row mappers.
+ * <p>
+ * A layout does not refer to the result set it was read from, so it is shared by all result sets
+ * of a statement with the same columns, see {@link ResultSetLayoutCache}. It is thread safe.
+ *
+ * @since 3.5.0
+ */
+final class ResultSetLayout {
+
+  /** Marks result maps that cannot be compiled */
+  static final CompiledRowMapper NOT_COMPILABLE = new CompiledRowMapper(new String[0], new int[0], new TypeHandler<?>[0],
+      new String[0], new Invoker[0], new boolean[0], false);
+  /** Marks Map result maps that keep the regular mapping */
+  static final CompactRowMapper NOT_COMPACTABLE = new CompactRowMapper(new CompactRowMap.KeyIndex(new String[0]),
+      new String[0], new int[0], new TypeHandler<?>[0], new int[0], false);
+
+  private final TypeHandlerRegistry typeHandlerRegistry;
+  private final boolean useColumnLabel;
+  /**resultSet解析出来的列名（如果存在别名，则使用别名）集合*/
+  private final List<String> columnNames;
+  /**查询列字段的class类型字符串*/
+  private final List<String> classNames;
+  /**sql语句中字段的JdbcType*/
+  private final List<JdbcType> jdbcTypes;
+  private final int[] columnTypes;
+  private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new ConcurrentHashMap<>();
+  /**ResultSet中存在于ResultMap中的列名集合*/
+  private final Map<String, List<String>> mappedColumnNamesMap = new ConcurrentHashMap<>();
+  /**resultSet中不存在于ResultMap中的列名集合*/
+  private final Map<String, List<String>> unMappedColumnNamesMap = new ConcurrentHashMap<>();
+  private final Map<String, List<DefaultResultSetHandler.UnMappedColumnAutoMapping>> autoMappings = new ConcurrentHashMap<>();
+  private final Map<String, CompiledRowMapper> compiledRowMappers = new ConcurrentHashMap<>();
+  private final Map<String, CompactRowMapper> compactRowMappers = new ConcurrentHashMap<>();
+  /**嵌套结果映射的行key计划，按resultMap和列前缀（null为空字符串）查找，避免每行拼接字符串*/
+  private final Map<ResultMap, Map<String, RowKeyPlan>> rowKeyPlans = new ConcurrentHashMap<>();
+  private final Map<String, Boolean> prefixedColumns = new ConcurrentHashMap<>();
+  /**TypeHandler读取缓冲的行时遇到不支持的读取方式的resultMap，这些resultMap只能按原结果集串行转换*/
+  private final Set<String> unbufferedResultMaps = ConcurrentHashMap.newKeySet();
+
+  ResultSetLayout(ResultSetMetaData metaData, Configuration configuration) throws SQLException {
+    this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    this.useColumnLabel = configuration.isUseColumnLabel();
+    //查询语句列的数量
+    final int columnCount = metaData.getColumnCount();
+    final List<String> columnNames = new ArrayList<>(columnCount);
+    final List<String> classNames = new ArrayList<>(columnCount);
+    final List<JdbcType> jdbcTypes = new ArrayList<>(columnCount);
+    this.columnTypes = new int[columnCount];
+    for (int i = 1; i <= columnCount; i++) {
+      //获取列别名
+      columnNames.add(useColumnLabel ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
+      //metaData.getColumnType(i)表示返回此列的sql数据类型
+      columnTypes[i - 1] = metaData.getColumnType(i);
+      jdbcTypes.add(JdbcType.forCode(columnTypes[i - 1]));
+      //获取列的class类型
+      classNames.add(metaData.getColumnClassName(i));
+    }
+    this.columnNames = Collections.unmodifiableList(columnNames);
+    this.classNames = Collections.unmodifiableList(classNames);
+    this.jdbcTypes = Collections.unmodifiableList(jdbcTypes);
+  }
+
+  /*
+   * Checks whether a result set has the columns of this layout, comparing the column names and
+   * SQL types only.
+   */
+  boolean matches(ResultSetMetaData metaData) throws SQLException {
+    if (metaData.getColumnCount() != columnTypes.length) {
+      return false;
+    }
+    for (int i = 1; i <= columnTypes.length; i++) {
+      if (metaData.getColumnType(i) != columnTypes[i - 1]
+          || !columnNames.get(i - 1).equals(useColumnLabel ? metaData.getColumnLabel(i) : metaData.getColumnName(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  List<String> getClassNames() {
+    return classNames;
+  }
+
+  List<JdbcType> getJdbcTypes() {
+    return jdbcTypes;
+  }
+
+  /*
+   * Same as ResultSet.findColumn: the first column with a matching name wins.
+   *
+   * @return the 1-based index or 0 if there is no such column
+   */
+  int indexOf(String columnName) {
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+  /*
+   * Whether any column name starts with the prefix, ignoring case.
+   */
+  boolean hasColumnWithPrefix(String columnPrefix) {
+    Boolean found = prefixedColumns.get(columnPrefix);
+    if (found == null) {
+      found = Boolean.FALSE;
+      final String upperColumnPrefix = columnPrefix.toUpperCase(Locale.ENGLISH);
+      for (String columnName : columnNames) {
+        if (columnName.toUpperCase(Locale.ENGLISH).startsWith(upperColumnPrefix)) {
+          found = Boolean.TRUE;
+          break;
+        }
+      }
+      prefixedColumns.put(columnPrefix, found);
+    }
+    return found;
+  }
+
+  boolean canMapBufferedRows(String resultMapId) {
+    return !unbufferedResultMaps.contains(resultMapId);
+  }
+
+  void disableBufferedRows(String resultMapId) {
+    unbufferedResultMaps.add(resultMapId);
+  }
+
+  RowKeyPlan getRowKeyPlan(ResultMap resultMap, String columnPrefix) {
+    final Map<String, RowKeyPlan> plans = rowKeyPlans.get(resultMap);
+    return plans == null ? null : plans.get(columnPrefix == null ? "" : columnPrefix);
+  }
+
+  void putRowKeyPlan(ResultMap resultMap, String columnPrefix, RowKeyPlan rowKeyPlan) {
+    rowKeyPlans.computeIfAbsent(resultMap, k -> new ConcurrentHashMap<>()).put(columnPrefix == null ? "" : columnPrefix, rowKeyPlan);
+  }
+
+  JdbcType getJdbcType(String columnName) {
+    for (int i = 0 ; i < columnNames.size(); i++) {
+      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+        return jdbcTypes.get(i);
+      }
+    }
+    return null;
+  }
+
+  TypeHandler<?> getTypeHandler(Class<?> propertyType, String columnName) {
+    Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.computeIfAbsent(columnName, k -> new ConcurrentHashMap<>());
+    TypeHandler<?> handler = columnHandlers.get(propertyType);
+    if (handler == null) {
+      JdbcType jdbcType = getJdbcType(columnName);
+      handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
+      // Replicate logic of UnknownTypeHandler#resolveTypeHandler
+      // See issue #59 comment 10
+      if (handler == null || handler instanceof UnknownTypeHandler) {
+        final int index = columnNames.indexOf(columnName);
+        final Class<?> javaType = resolveClass(classNames.get(index));
+        if (javaType != null && jdbcType != null) {
+          handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
+        } else if (javaType != null) {
+          handler = typeHandlerRegistry.getTypeHandler(javaType);
+        } else if (jdbcType != null) {
+          handler = typeHandlerRegistry.getTypeHandler(jdbcType);
+        }
+      }
+      if (handler == null || handler instanceof UnknownTypeHandler) {
+        handler = new ObjectTypeHandler();
+      }
+      columnHandlers.put(propertyType, handler);
+    }
+    return handler;
+  }
+
+  private Class<?> resolveClass(String className) {
+    try {
+      // #699 className could be null
+      if (className != null) {
+        return Resources.classForName(className);
+      }
+    } catch (ClassNotFoundException e) {
+      // ignore
+    }
+    return null;
+  }
+
+  private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    List<String> mappedColumnNames = new ArrayList<>();
+    List<String> unmappedColumnNames = new ArrayList<>();
+    final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
+    //获取数据库列名集合 大写的
+    final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
+    for (String columnName : columnNames) {
+      //列名大写，匹配
+      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+      if (mappedColumns.contains(upperColumnName)) {
+        mappedColumnNames.add(upperColumnName);
+      } else {
+        unmappedColumnNames.add(columnName);
+      }
+    }
+    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
+    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
+  }
+
+  List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    if (mappedColumnNames == null) {
+      //加载mapped的列名
+      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
+      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    }
+    return mappedColumnNames;
+  }
+
+  List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    if (unMappedColumnNames == null) {
+      //加载列名的映射关系
+      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
+      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    }
+    return unMappedColumnNames;
+  }
+
+  /*
+   * The automatic mappings by result map id and column prefix.
+   */
+  Map<String, List<DefaultResultSetHandler.UnMappedColumnAutoMapping>> getAutoMappings() {
+    return autoMappings;
+  }
+
+  /*
+   * The compiled row mappers by result map id and column prefix, NOT_COMPILABLE for the result
+   * maps that keep the regular mapping.
+   */
+  Map<String, CompiledRowMapper> getCompiledRowMappers() {
+    return compiledRowMappers;
+  }
+
+  /*
+   * The row mappers of Map result maps by result map id and column prefix, NOT_COMPACTABLE for the
+   * result maps that keep the regular mapping.
+   */
+  Map<String, CompactRowMapper> getCompactRowMappers() {
+    return compactRowMappers;
+  }
+
+  private String getMapKey(ResultMap resultMap, String columnPrefix) {
+    return resultMap.getId() + ":" + columnPrefix;
+  }
+
+  private Set<String> prependPrefixes(Set<String> columnNames, String prefix) {
+    if (columnNames == null || columnNames.isEmpty() || prefix == null || prefix.length() == 0) {
+      return columnNames;
+    }
+    final Set<String> prefixed = new HashSet<>();
+    for (String columnName : columnNames) {
+      prefixed.add(prefix + columnName);
+    }
+    return prefixed;
+  }
+
+}
@@ -0,0 +1,67 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The result set layouts seen by one mapped statement, so repeated executions reuse the resolved
+ * type handlers, column lists, automatic mappings and row mappers instead of resolving them again.
+ * <p>
+ * A result set matches a layout when it has the same column names and SQL types. Statements
+ * built from dynamic SQL can produce many layouts, only the first {@value #MAX_LAYOUTS} are kept.
+ *
+ * @since 3.5.0
+ */
+public final class ResultSetLayoutCache {
+
+  private static final int MAX_LAYOUTS = 8;
+
+  private volatile ResultSetLayout[] layouts = new ResultSetLayout[0];
+
+  ResultSetLayout getLayout(ResultSetMetaData metaData, Configuration configuration) throws SQLException {
+    final ResultSetLayout[] current = layouts;
+    for (ResultSetLayout layout : current) {
+      if (layout.matches(metaData)) {
+        return layout;
+      }
+    }
+    final ResultSetLayout layout = new ResultSetLayout(metaData, configuration);
+    if (current.length < MAX_LAYOUTS) {
+      synchronized (this) {
+        if (layouts.length < MAX_LAYOUTS) {
+          ResultSetLayout[] added = Arrays.copyOf(layouts, layouts.length + 1);
+          added[added.length - 1] = layout;
+          layouts = added;
+        }
+      }
+    }
+    return layout;
+  }
+
+  public int size() {
+    return layouts.length;
+  }
+
+  public void clear() {
+    layouts = new ResultSetLayout[0];
+  }
+
+}
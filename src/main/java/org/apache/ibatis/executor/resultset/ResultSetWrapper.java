@@ -16,24 +16,13 @@
 package org.apache.ibatis.executor.resultset;
 
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-import java.util.Set;
-import org.apache.ibatis.io.Resources;
+
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
-import org.apache.ibatis.type.ObjectTypeHandler;
 import org.apache.ibatis.type.TypeHandler;
-import org.apache.ibatis.type.TypeHandlerRegistry;
-import org.apache.ibatis.type.UnknownTypeHandler;
 
 /**
  * ResultSet转换器
@@ -42,19 +31,8 @@ import org.apache.ibatis.type.UnknownTypeHandler;
 public class ResultSetWrapper {
   /**执行sql语句返回的结果集，JDBC的resultSet*/
   private final ResultSet resultSet;
-  /**typeHandler注册器*/
-  private final TypeHandlerRegistry typeHandlerRegistry;
-  /**resultSet解析出来的列名（如果存在别名，则使用别名）集合*/
-  private final List<String> columnNames = new ArrayList<>();
-  /**查询列字段的class类型字符串*/
-  private final List<String> classNames = new ArrayList<>();
-  /**sql语句中字段的JdbcType*/
-  private final List<JdbcType> jdbcTypes = new ArrayList<>();
-  private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
-  /**ResultSet中存在于ResultMap中的列名集合*/
-  private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
-  /**resultSet中不存在于ResultMap中的列名集合*/
-  private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  /**列名、类型以及由此解析出的typeHandler、列名映射等，可以在同一语句的多次执行间共享*/
+  private final ResultSetLayout layout;
 
   /**
    * 创建ResultSet转换器
@@ -63,20 +41,28 @@ public class ResultSetWrapper {
    * @throws SQLException
    */
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
+    this(rs, configuration, null);
+  }
+
+  /**
+   * 创建ResultSet转换器，列结构与之前的结果集相同时复用已解析的映射信息
+   * @param rs
+   * @param configuration
+   * @param layoutCache 语句的ResultSetLayoutCache，可以为null
+   * @throws SQLException
+   * @since 3.5.0
+   */
+  public ResultSetWrapper(ResultSet rs, Configuration configuration, ResultSetLayoutCache layoutCache) throws SQLException {
     super();
-    this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.resultSet = rs;
-    final ResultSetMetaData metaData = rs.getMetaData();
-    //查询语句列的数量
-    final int columnCount = metaData.getColumnCount();
-    for (int i = 1; i <= columnCount; i++) {
-      //获取列别名
-      columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
-      //metaData.getColumnType(i)表示返回此列的sql数据类型
-      jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
-      //获取列的class类型
-      classNames.add(metaData.getColumnClassName(i));
-    }
+    this.layout = layoutCache == null
+        ? new ResultSetLayout(rs.getMetaData(), configuration)
+        : layoutCache.getLayout(rs.getMetaData(), configuration);
+  }
+
+  ResultSetWrapper(ResultSet rs, ResultSetLayout layout) {
+    this.resultSet = rs;
+    this.layout = layout;
   }
 
   public ResultSet getResultSet() {
@@ -84,24 +70,19 @@ public class ResultSetWrapper {
   }
 
   public List<String> getColumnNames() {
-    return this.columnNames;
+    return layout.getColumnNames();
   }
 
   public List<String> getClassNames() {
-    return Collections.unmodifiableList(classNames);
+    return layout.getClassNames();
   }
 
   public List<JdbcType> getJdbcTypes() {
-    return jdbcTypes;
+    return layout.getJdbcTypes();
   }
 
   public JdbcType getJdbcType(String columnName) {
-    for (int i = 0 ; i < columnNames.size(); i++) {
-      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
-        return jdbcTypes.get(i);
-      }
-    }
-    return null;
+    return layout.getJdbcType(columnName);
   }
 
   /**
@@ -114,67 +95,7 @@ public class ResultSetWrapper {
    * @return
    */
   public TypeHandler<?> getTypeHandler(Class<?> propertyType, String columnName) {
-    TypeHandler<?> handler = null;
-    Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.get(columnName);
-    if (columnHandlers == null) {
-      columnHandlers = new HashMap<>();
-      typeHandlerMap.put(columnName, columnHandlers);
-    } else {
-      handler = columnHandlers.get(propertyType);
-    }
-    if (handler == null) {
-      JdbcType jdbcType = getJdbcType(columnName);
-      handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
-      // Replicate logic of UnknownTypeHandler#resolveTypeHandler
-      // See issue #59 comment 10
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        final int index = columnNames.indexOf(columnName);
-        final Class<?> javaType = resolveClass(classNames.get(index));
-        if (javaType != null && jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
-        } else if (javaType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType);
-        } else if (jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(jdbcType);
-        }
-      }
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        handler = new ObjectTypeHandler();
-      }
-      columnHandlers.put(propertyType, handler);
-    }
-    return handler;
-  }
-
-  private Class<?> resolveClass(String className) {
-    try {
-      // #699 className could be null
-      if (className != null) {
-        return Resources.classForName(className);
-      }
-    } catch (ClassNotFoundException e) {
-      // ignore
-    }
-    return null;
-  }
-
-  private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> mappedColumnNames = new ArrayList<>();
-    List<String> unmappedColumnNames = new ArrayList<>();
-    final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
-    //获取数据库列名集合 大写的
-    final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
-    for (String columnName : columnNames) {
-      //列名大写，匹配
-      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
-      if (mappedColumns.contains(upperColumnName)) {
-        mappedColumnNames.add(upperColumnName);
-      } else {
-        unmappedColumnNames.add(columnName);
-      }
-    }
-    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
-    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
+    return layout.getTypeHandler(propertyType, columnName);
   }
 
   /**
@@ -185,13 +106,7 @@ public class ResultSetWrapper {
    * @throws SQLException
    */
   public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (mappedColumnNames == null) {
-      //加载mapped的列名
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return mappedColumnNames;
+    return layout.getMappedColumnNames(resultMap, columnPrefix);
   }
 
   /**
@@ -202,28 +117,11 @@ public class ResultSetWrapper {
    * @throws SQLException
    */
   public List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (unMappedColumnNames == null) {
-      //加载列名的映射关系
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return unMappedColumnNames;
+    return layout.getUnmappedColumnNames(resultMap, columnPrefix);
   }
 
-  private String getMapKey(ResultMap resultMap, String columnPrefix) {
-    return resultMap.getId() + ":" + columnPrefix;
+  ResultSetLayout getLayout() {
+    return layout;
   }
 
-  private Set<String> prependPrefixes(Set<String> columnNames, String prefix) {
-    if (columnNames == null || columnNames.isEmpty() || prefix == null || prefix.length() == 0) {
-      return columnNames;
-    }
-    final Set<String> prefixed = new HashSet<>();
-    for (String columnName : columnNames) {
-      prefixed.add(prefix + columnName);
-    }
-    return prefixed;
-  }
-  
 }
@@ -0,0 +1,84 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * The columns that identify a row of a nested result map, resolved once per result set layout.
+ * <p>
+ * Creating a row key then reads the values by index: the prefixed column names, the properties
+ * found for unmapped columns and the key size are all known in advance, so the only allocation per
+ * row is the key itself. Columns with a custom type handler are read by name, as a custom handler
+ * may only implement {@link TypeHandler#getResult(ResultSet, String)} properly.
+ *
+ * @since 3.5.0
+ */
+final class RowKeyPlan {
+
+  private final String resultMapId;
+  private final String[] columns;
+  private final int[] columnIndexes;
+  /** null to read the value as a string, like the keys of unmapped columns and maps */
+  private final TypeHandler<?>[] typeHandlers;
+  private final boolean[] byIndex;
+  private final boolean keepNulls;
+
+  RowKeyPlan(String resultMapId, String[] columns, int[] columnIndexes, TypeHandler<?>[] typeHandlers, boolean keepNulls) {
+    this.resultMapId = resultMapId;
+    this.columns = columns;
+    this.columnIndexes = columnIndexes;
+    this.typeHandlers = typeHandlers;
+    this.byIndex = new boolean[typeHandlers.length];
+    for (int i = 0; i < typeHandlers.length; i++) {
+      byIndex[i] = typeHandlers[i] == null || CompiledRowMapper.readsByIndex(typeHandlers[i]);
+    }
+    this.keepNulls = keepNulls;
+  }
+
+  /*
+   * Creates the key of the current row, with room for the parent key the caller may add.
+   *
+   * @return the key or CacheKey.NULL_CACHE_KEY if no column has a value
+   */
+  CacheKey createRowKey(ResultSet rs) throws SQLException {
+    final CacheKey cacheKey = new CacheKey(2 * columns.length + 2);
+    cacheKey.update(resultMapId);
+    for (int i = 0; i < columns.length; i++) {
+      final Object value;
+      if (typeHandlers[i] == null) {
+        value = rs.getString(columnIndexes[i]);
+      } else if (byIndex[i]) {
+        value = typeHandlers[i].getResult(rs, columnIndexes[i]);
+      } else {
+        value = typeHandlers[i].getResult(rs, columns[i]);
+      }
+      if (value != null || (keepNulls && typeHandlers[i] != null)) {
+        cacheKey.update(columns[i]);
+        cacheKey.update(value);
+      }
+    }
+    if (cacheKey.getUpdateCount() < 2) {
+      return CacheKey.NULL_CACHE_KEY;
+    }
+    return cacheKey;
+  }
+
+}
@@ -0,0 +1,147 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+
+/**
+ * Generates a class per setter that calls the setter directly, so that {@link CompiledRowMapper}
+ * sets properties without reflection.
+ * <p>
+ * The classes are generated with Javassist into the package and class loader of the bean. Setters
+ * that cannot be called from there, and all setters when Javassist is not available or the class
+ * cannot be defined, keep the reflective invoker of the Reflector.
+ *
+ * @since 3.5.0
+ */
+final class SetterClassGenerator {
+
+  private static final Log log = LogFactory.getLog(SetterClassGenerator.class);
+  private static final boolean JAVASSIST_AVAILABLE = isJavassistAvailable();
+  private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+  private static final Map<Method, Invoker> GENERATED_SETTERS = new ConcurrentHashMap<>();
+
+  private SetterClassGenerator() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /*
+   * Returns a generated invoker for the setter of the given invoker, or the invoker itself.
+   */
+  static Invoker generate(Invoker setter) {
+    if (!JAVASSIST_AVAILABLE || !(setter instanceof MethodInvoker)) {
+      return setter;
+    }
+    final Method method = ((MethodInvoker) setter).getMethod();
+    if (!isAccessible(method)) {
+      return setter;
+    }
+    return GENERATED_SETTERS.computeIfAbsent(method, m -> {
+      try {
+        return Generator.generate(m, setter.getType());
+      } catch (Exception | LinkageError e) {
+        if (log.isDebugEnabled()) {
+          log.debug("Could not generate a setter class for " + m + ", using reflection. Cause: " + e);
+        }
+        return setter;
+      }
+    });
+  }
+
+  private static boolean isAccessible(Method method) {
+    final Class<?> declaringClass = method.getDeclaringClass();
+    Class<?> parameterType = method.getParameterTypes()[0];
+    while (parameterType.isArray()) {
+      parameterType = parameterType.getComponentType();
+    }
+    return Modifier.isPublic(method.getModifiers())
+        && Modifier.isPublic(declaringClass.getModifiers())
+        && (parameterType.isPrimitive() || Modifier.isPublic(parameterType.getModifiers()))
+        && declaringClass.getClassLoader() != null;
+  }
+
+  private static boolean isJavassistAvailable() {
+    try {
+      Resources.classForName("javassist.ClassPool");
+      return true;
+    } catch (Throwable e) {
+      return false;
+    }
+  }
+
+  /*
+   * Only loaded when Javassist is available.
+   */
+  private static final class Generator {
+
+    static Invoker generate(Method method, Class<?> type) throws Exception {
+      final Class<?> beanClass = method.getDeclaringClass();
+      final ClassPool pool = new ClassPool(true);
+      pool.insertClassPath(new ClassClassPath(Invoker.class));
+      pool.insertClassPath(new ClassClassPath(beanClass));
+      final CtClass ctClass = pool.makeClass(beanClass.getName() + "$$MyBatisSetter$$" + CLASS_COUNTER.incrementAndGet());
+      ctClass.addInterface(pool.get(Invoker.class.getName()));
+      ctClass.addField(CtField.make("private final Class type;", ctClass));
+      ctClass.addConstructor(CtNewConstructor.make("public " + ctClass.getSimpleName() + "(Class type) { this.type = type; }", ctClass));
+      ctClass.addMethod(CtNewMethod.make("public Object invoke(Object target, Object[] args) { (("
+          + beanClass.getName() + ") target)." + method.getName() + "(" + argument(method.getParameterTypes()[0])
+          + "); return null; }", ctClass));
+      ctClass.addMethod(CtNewMethod.make("public Class getType() { return type; }", ctClass));
+      final Class<?> generated = ctClass.toClass(beanClass.getClassLoader(), beanClass.getProtectionDomain());
+      ctClass.detach();
+      return (Invoker) generated.getConstructor(Class.class).newInstance(type);
+    }
+
+    private static String argument(Class<?> parameterType) {
+      if (!parameterType.isPrimitive()) {
+        return "(" + typeName(parameterType) + ") args[0]";
+      }
+      final String wrapper;
+      if (parameterType == int.class) {
+        wrapper = "Integer";
+      } else if (parameterType == char.class) {
+        wrapper = "Character";
+      } else {
+        final String name = parameterType.getName();
+        wrapper = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+      }
+      return "((java.lang." + wrapper + ") args[0])." + parameterType.getName() + "Value()";
+    }
+
+    private static String typeName(Class<?> type) {
+      return type.isArray() ? typeName(type.getComponentType()) + "[]" : type.getName();
+    }
+
+  }
+
+}
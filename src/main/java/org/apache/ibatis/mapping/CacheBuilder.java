@@ -23,6 +23,7 @@ import java.util.Properties;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.ConcurrentCache;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.decorators.BlockingCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
@@ -111,13 +112,16 @@ public class CacheBuilder {
     // issue #352, do not apply decorators to custom caches
     //如果缓存的实现类是PerpetualCache，也就是默认缓存实现类
     if (PerpetualCache.class.equals(cache.getClass())) {
+      //缓存类和所有回收策略类都是线程安全的才不需要同步
+      boolean concurrent = cache instanceof ConcurrentCache;
       for (Class<? extends Cache> decorator : decorators) {
         //遍历装饰类，构造出装饰类实例，遍历完成后，cache就是最外层的装饰对象，最里层装饰对象就是正的缓存类
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
+        concurrent &= cache instanceof ConcurrentCache;
       }
       //设置通用的装饰器
-      cache = setStandardDecorators(cache);
+      cache = setStandardDecorators(cache, concurrent);
       //若自定义的缓存类不是LoggingCache的子类，那么创建一个LoggingCache装饰类，用于统计缓存的命中率
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
       cache = new LoggingCache(cache);
@@ -143,9 +147,10 @@ public class CacheBuilder {
   /**
    * 设置装饰缓存类
    * @param cache 装饰缓存类
+   * @param concurrent 整个装饰链是否线程安全
    * @return
    */
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean concurrent) {
     try {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       //设置缓存的长度
@@ -160,11 +165,18 @@ public class CacheBuilder {
       //若设置可序列化，则创建序列化缓存装饰类
       if (readWrite) {
         cache = new SerializedCache(cache);
+        //序列化方式可以通过cache的serializer属性配置，其他属性属于缓存类和回收策略类
+        String serializer = properties == null ? null : properties.getProperty("serializer");
+        if (serializer != null) {
+          ((SerializedCache) cache).setSerializer(serializer);
+        }
       }
       //创建logging缓存装饰类，统计缓存的命中率
       cache = new LoggingCache(cache);
-      //创建同步缓存装饰类，类方法都是同步的，以保证数据的线程安全性
-      cache = new SynchronizedCache(cache);
+      //创建同步缓存装饰类，类方法都是同步的，以保证数据的线程安全性，整个装饰链都线程安全时不需要
+      if (!concurrent) {
+        cache = new SynchronizedCache(cache);
+      }
       //若是阻塞，那么创建阻塞缓存装饰类
       if (blocking) {
         cache = new BlockingCache(cache);
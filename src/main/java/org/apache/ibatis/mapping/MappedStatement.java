@@ -23,6 +23,7 @@ import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.resultset.ResultSetLayoutCache;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
@@ -65,6 +66,14 @@ public final class MappedStatement {
   private boolean flushCacheRequired;
   /**使用缓存*/
   private boolean useCache;
+  /**查询结果是否保存在一级缓存中*/
+  private boolean useLocalCache;
+  /**是否把结果集的行分批交给线程池转换*/
+  private boolean parallelResultMapping;
+  /**游标是否由单独的线程预取，预取时sqlSession在游标关闭前不能再使用*/
+  private boolean prefetchCursor;
+  /**该语句返回过的结果集列结构及其解析结果*/
+  private final ResultSetLayoutCache resultSetLayoutCache = new ResultSetLayoutCache();
   private boolean resultOrdered;
   /**sql语句类型*/
   private SqlCommandType sqlCommandType;
@@ -99,6 +108,7 @@ public final class MappedStatement {
       mappedStatement.parameterMap = new ParameterMap.Builder(configuration, "defaultParameterMap", null, new ArrayList<>()).build();
       mappedStatement.resultMaps = new ArrayList<>();
       mappedStatement.sqlCommandType = sqlCommandType;
+      mappedStatement.useLocalCache = true;
       mappedStatement.keyGenerator = configuration.isUseGeneratedKeys() && SqlCommandType.INSERT.equals(sqlCommandType) ? Jdbc3KeyGenerator.INSTANCE : NoKeyGenerator.INSTANCE;
       String logId = id;
       if (configuration.getLogPrefix() != null) {
@@ -165,6 +175,21 @@ public final class MappedStatement {
       return this;
     }
 
+    public Builder useLocalCache(boolean useLocalCache) {
+      mappedStatement.useLocalCache = useLocalCache;
+      return this;
+    }
+
+    public Builder parallelResultMapping(boolean parallelResultMapping) {
+      mappedStatement.parallelResultMapping = parallelResultMapping;
+      return this;
+    }
+
+    public Builder prefetchCursor(boolean prefetchCursor) {
+      mappedStatement.prefetchCursor = prefetchCursor;
+      return this;
+    }
+
     public Builder resultOrdered(boolean resultOrdered) {
       mappedStatement.resultOrdered = resultOrdered;
       return this;
@@ -281,6 +306,22 @@ public final class MappedStatement {
     return useCache;
   }
 
+  public boolean isUseLocalCache() {
+    return useLocalCache;
+  }
+
+  public boolean isParallelResultMapping() {
+    return parallelResultMapping;
+  }
+
+  public boolean isPrefetchCursor() {
+    return prefetchCursor;
+  }
+
+  public ResultSetLayoutCache getResultSetLayoutCache() {
+    return resultSetLayoutCache;
+  }
+
   public boolean isResultOrdered() {
     return resultOrdered;
   }
@@ -65,6 +65,8 @@ public class ResultMapping {
   private String foreignColumn;
   /**是否懒加载，默认是继承configuration的配置*/
   private boolean lazy;
+  /**普通列是否延迟解码，只有显式指定fetchType="lazy"时才为true，不受lazyLoadingEnabled影响*/
+  private boolean lazyColumn;
 
   ResultMapping() {
   }
@@ -152,6 +154,11 @@ public class ResultMapping {
       return this;
     }
 
+    public Builder lazyColumn(boolean lazyColumn) {
+      resultMapping.lazyColumn = lazyColumn;
+      return this;
+    }
+
     /**
      * 创建requestMapping
      * @return
@@ -284,6 +291,17 @@ public class ResultMapping {
   public void setLazy(boolean lazy) {
     this.lazy = lazy;
   }
+
+  /**
+   * Returns whether this plain column is decoded on first access, that is whether it was mapped with
+   * an explicit <code>fetchType="lazy"</code>. Unlike {@link #isLazy()} it does not follow
+   * <code>lazyLoadingEnabled</code>.
+   *
+   * @since 3.5.0
+   */
+  public boolean isLazyColumn() {
+    return lazyColumn;
+  }
   
   @Override
   public boolean equals(Object o) {
@@ -332,6 +350,7 @@ public class ResultMapping {
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
     sb.append(", lazy=").append(lazy);
+    sb.append(", lazyColumn=").append(lazyColumn);
     sb.append('}');
     return sb.toString();
   }
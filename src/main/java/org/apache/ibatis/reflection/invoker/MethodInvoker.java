@@ -47,4 +47,13 @@ public class MethodInvoker implements Invoker {
   public Class<?> getType() {
     return type;
   }
+
+  /**
+   * 获取执行的方法对象
+   * @return
+   * @since 3.5.0
+   */
+  public Method getMethod() {
+    return method;
+  }
 }
@@ -15,7 +15,10 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import ognl.OgnlContext;
@@ -23,7 +26,11 @@ import ognl.OgnlException;
 import ognl.OgnlRuntime;
 import ognl.PropertyAccessor;
 
+import org.apache.ibatis.builder.ParsedSqlCache;
+import org.apache.ibatis.builder.SqlSourceBuilder.ParameterPlaceholder;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -48,6 +55,11 @@ public class DynamicContext {
   /**sql语句字符串*/
   private final StringBuilder sqlBuilder = new StringBuilder();
   private int uniqueNumber = 0;
+  private final Configuration configuration;
+  /**预编译模式下用于解析运行时生成的含#{}的文本，为null时sql中保留#{}，由SqlSourceBuilder在最后统一解析*/
+  private final ParsedSqlCache parsedSqlCache;
+  /**预编译模式下按出现顺序收集的参数占位符*/
+  private final List<ParameterPlaceholder> placeholders;
 
   /**
    *  构建动态上下文
@@ -56,11 +68,22 @@ public class DynamicContext {
    *  若参数只有一个且没有@Param注解，那么这个parameter就是第一个参数本身
    */
   public DynamicContext(Configuration configuration, Object parameterObject) {
+    this(configuration, parameterObject, null);
+  }
+
+  /**
+   * 构建预编译模式的动态上下文，追加的sql中的#{}立即替换为?，参数占位符按顺序收集
+   * @param parsedSqlCache 用于解析运行时生成的含#{}的文本
+   */
+  DynamicContext(Configuration configuration, Object parameterObject, ParsedSqlCache parsedSqlCache) {
+    this.configuration = configuration;
+    this.parsedSqlCache = parsedSqlCache;
+    this.placeholders = parsedSqlCache == null ? Collections.<ParameterPlaceholder>emptyList() : new ArrayList<>();
     if (parameterObject != null && !(parameterObject instanceof Map)) {
       MetaObject metaObject = configuration.newMetaObject(parameterObject);
-      bindings = new ContextMap(metaObject);
+      bindings = new ContextMap(metaObject, configuration.getReflectorFactory());
     } else {
-      bindings = new ContextMap(null);
+      bindings = new ContextMap(null, configuration.getReflectorFactory());
     }
     bindings.put(PARAMETER_OBJECT_KEY, parameterObject);
     bindings.put(DATABASE_ID_KEY, configuration.getDatabaseId());
@@ -75,10 +98,65 @@ public class DynamicContext {
   }
 
   public void appendSql(String sql) {
+    if (parsedSqlCache != null && sql != null && sql.contains("#{")) {
+      //运行时生成的文本（${}替换的结果等）中的#{}在这里解析，保证参数顺序与sql一致
+      appendSql(new SqlFragment(sql, parsedSqlCache.parse(sql)));
+      return;
+    }
     sqlBuilder.append(sql);
     sqlBuilder.append(" ");
   }
 
+  /**
+   * 追加每次执行都可能不同的文本，预编译模式下其中的#{}只解析，不放入ParsedSqlCache
+   * 如foreach生成的#{__frch_item_N}，每个元素都不同，放入缓存只会挤掉稳定的sql
+   * 通过appendSql追加解析结果，包装上下文的子类不需要覆盖
+   */
+  void appendUncachedSql(String sql) {
+    final ParsedSqlCache cache = getParsedSqlCache();
+    if (cache != null && sql != null && sql.contains("#{")) {
+      appendSql(new SqlFragment(sql, cache.getSqlSourceBuilder().parseSql(sql)));
+      return;
+    }
+    appendSql(sql);
+  }
+
+  /**
+   * 追加预编译的sql片段，不是预编译模式时追加原始文本
+   */
+  void appendSql(SqlFragment fragment) {
+    if (parsedSqlCache == null) {
+      appendSql(fragment.getText());
+      return;
+    }
+    sqlBuilder.append(fragment.getSql());
+    sqlBuilder.append(" ");
+    Collections.addAll(placeholders, fragment.getPlaceholders());
+  }
+
+  /**
+   * 预编译模式下返回用于解析运行时文本的ParsedSqlCache，否则返回null
+   * 包装上下文的子类返回被包装上下文的值
+   */
+  ParsedSqlCache getParsedSqlCache() {
+    return parsedSqlCache;
+  }
+
+  /**
+   * 预编译模式下，根据最终的绑定参数确定各占位符的属性类型，生成ParameterMapping
+   * @param parameterType 参数类型
+   */
+  List<ParameterMapping> getParameterMappings(Class<?> parameterType) {
+    final List<ParameterMapping> parameterMappings = new ArrayList<>(placeholders.size());
+    if (!placeholders.isEmpty()) {
+      final MetaObject metaParameters = configuration.newMetaObject(bindings);
+      for (ParameterPlaceholder placeholder : placeholders) {
+        parameterMappings.add(placeholder.toParameterMapping(parameterType, metaParameters));
+      }
+    }
+    return parameterMappings;
+  }
+
   public String getSql() {
     return sqlBuilder.toString().trim();
   }
@@ -91,8 +169,15 @@ public class DynamicContext {
     private static final long serialVersionUID = 2977601501966151582L;
     /**参数类型的MetaObject*/
     private MetaObject parameterMetaObject;
-    public ContextMap(MetaObject parameterMetaObject) {
+    /**表达式求值时用于读取对象属性*/
+    private final ReflectorFactory reflectorFactory;
+    public ContextMap(MetaObject parameterMetaObject, ReflectorFactory reflectorFactory) {
       this.parameterMetaObject = parameterMetaObject;
+      this.reflectorFactory = reflectorFactory;
+    }
+
+    ReflectorFactory getReflectorFactory() {
+      return reflectorFactory;
     }
 
     @Override
@@ -17,7 +17,9 @@ package org.apache.ibatis.scripting.xmltags;
 
 import java.util.Map;
 
+import org.apache.ibatis.builder.ParsedSqlCache;
 import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.session.Configuration;
@@ -35,10 +37,13 @@ public class DynamicSqlSource implements SqlSource {
   private final Configuration configuration;
   /**MixedSqlNode*/
   private final SqlNode rootSqlNode;
+  /**缓存运行时生成的含#{}的文本的解析结果，静态文本中的#{}在加载时已预编译*/
+  private final ParsedSqlCache parsedSqlCache;
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
     this.rootSqlNode = rootSqlNode;
+    this.parsedSqlCache = new ParsedSqlCache(new SqlSourceBuilder(configuration), configuration.getParsedSqlCacheSize());
   }
 
   /**
@@ -49,8 +54,8 @@ public class DynamicSqlSource implements SqlSource {
    */
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
-    //创建动态上下文
-    DynamicContext context = new DynamicContext(configuration, parameterObject);
+    //创建预编译模式的动态上下文，sql中的#{}在追加时就替换为?
+    DynamicContext context = new DynamicContext(configuration, parameterObject, parsedSqlCache);
     /**
      * 解析动态sql的表达式，动态的sql语句就是在这里生成sql字符串的并且在这里将sql语句append到
      * 注意这里apply，是采用装饰类模式，大部分都是判断表达式本身，但是最底层的staticTextSqlNode
@@ -59,11 +64,9 @@ public class DynamicSqlSource implements SqlSource {
      * 的apply方法是遍历其中的list，分别调用其中的apply
      */
     rootSqlNode.apply(context);
-    //创建一个sqlSourceBuilder，用于解析sqlSource
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    //解析sqlSource，此时这个SqlSource是个StaticSqlSource
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    //分支执行完后根据绑定参数确定占位符的类型，不再重新解析sql
+    SqlSource sqlSource = new StaticSqlSource(configuration, context.getSql(), context.getParameterMappings(parameterType));
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     for (Map.Entry<String, Object> entry : context.getBindings().entrySet()) {
       //将   _parameter->参数对象本身（参数名和参数值的映射关系，Map<String,Object>，
@@ -74,4 +77,12 @@ public class DynamicSqlSource implements SqlSource {
     return boundSql;
   }
 
+  /**
+   * 运行时生成的sql文本的解析缓存，可用于查看命中率
+   * @since 3.5.0
+   */
+  public ParsedSqlCache getParsedSqlCache() {
+    return parsedSqlCache;
+  }
+
 }
@@ -36,7 +36,7 @@ public class ExpressionEvaluator {
 
   public boolean evaluateBoolean(String expression, Object parameterObject) {
       //判断表达式是否正确
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    Object value = SimpleExpression.getValue(expression, parameterObject);
     if (value instanceof Boolean) {
       return (Boolean) value;
     }
@@ -47,7 +47,7 @@ public class ExpressionEvaluator {
   }
 
   public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    Object value = SimpleExpression.getValue(expression, parameterObject);
     if (value == null) {
       throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
     }
@@ -17,6 +17,8 @@ package org.apache.ibatis.scripting.xmltags;
 
 import java.util.Map;
 
+import org.apache.ibatis.builder.ParsedSqlCache;
+import org.apache.ibatis.builder.SqlSourceBuilder.ParameterPlaceholder;
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.session.Configuration;
 
@@ -35,8 +37,20 @@ public class ForEachSqlNode implements SqlNode {
   private final String item;
   private final String index;
   private final Configuration configuration;
+  /**是否将元素个数补齐到2的幂（重复最后一个元素），使不同长度的IN列表复用少数几种sql*/
+  private final boolean padding;
+  /**元素内容只是引用item的#{}时加载时预编译的片段，执行时直接拼接，不为每个元素创建上下文；否则为null*/
+  private final SqlFragment itemFragment;
 
   public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
+    this(configuration, contents, collectionExpression, index, item, open, close, separator, false);
+  }
+
+  /**
+   * @param padding 是否将元素个数补齐到2的幂，只适用于IN列表这类重复元素不影响结果的场景
+   * @since 3.5.0
+   */
+  public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator, boolean padding) {
     this.evaluator = new ExpressionEvaluator();
     this.collectionExpression = collectionExpression;
     this.contents = contents;
@@ -46,6 +60,31 @@ public class ForEachSqlNode implements SqlNode {
     this.index = index;
     this.item = item;
     this.configuration = configuration;
+    this.padding = padding;
+    this.itemFragment = findItemFragment(contents, item);
+  }
+
+  /**
+   * 元素内容只有一段静态文本，且其中的#{}都引用item（如#{id}、#{user.id}）时返回其预编译片段
+   */
+  private static SqlFragment findItemFragment(SqlNode contents, String item) {
+    SqlNode node = contents;
+    if (node instanceof MixedSqlNode && ((MixedSqlNode) node).getContents().size() == 1) {
+      node = ((MixedSqlNode) node).getContents().get(0);
+    }
+    if (item == null || !(node instanceof StaticTextSqlNode)) {
+      return null;
+    }
+    SqlFragment fragment = ((StaticTextSqlNode) node).getFragment();
+    if (fragment == null || fragment.getPlaceholders().length == 0) {
+      return null;
+    }
+    for (ParameterPlaceholder placeholder : fragment.getPlaceholders()) {
+      if (FilteredDynamicContext.itemizeProperty(placeholder.getProperty(), item, 0) == null) {
+        return null;
+      }
+    }
+    return fragment;
   }
 
   @Override
@@ -55,33 +94,22 @@ public class ForEachSqlNode implements SqlNode {
     if (!iterable.iterator().hasNext()) {
       return true;
     }
-    boolean first = true;
     applyOpen(context);
-    int i = 0;
-    for (Object o : iterable) {
-      DynamicContext oldContext = context;
-      if (first || separator == null) {
-        context = new PrefixedContext(context, "");
-      } else {
-        context = new PrefixedContext(context, separator);
-      }
-      int uniqueNumber = context.getUniqueNumber();
-      // Issue #709 
-      if (o instanceof Map.Entry) {
-        @SuppressWarnings("unchecked") 
-        Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
-        applyIndex(context, mapEntry.getKey(), uniqueNumber);
-        applyItem(context, mapEntry.getValue(), uniqueNumber);
-      } else {
-        applyIndex(context, i, uniqueNumber);
-        applyItem(context, o, uniqueNumber);
+    if (itemFragment != null && context.getParsedSqlCache() != null) {
+      applyItemFragments(context, iterable);
+    } else {
+      boolean first = true;
+      int i = 0;
+      Object last = null;
+      for (Object o : iterable) {
+        first = applyElement(context, o, i, first);
+        last = o;
+        i++;
       }
-      contents.apply(new FilteredDynamicContext(configuration, context, index, item, uniqueNumber));
-      if (first) {
-        first = !((PrefixedContext) context).isPrefixApplied();
+      // 补齐的元素重复最后一个元素
+      for (int count = paddedCount(i); i < count; i++) {
+        first = applyElement(context, last, i - 1, first);
       }
-      context = oldContext;
-      i++;
     }
     applyClose(context);
     context.getBindings().remove(item);
@@ -89,6 +117,63 @@ public class ForEachSqlNode implements SqlNode {
     return true;
   }
 
+  private boolean applyElement(DynamicContext context, Object o, int i, boolean first) {
+    if (first || separator == null) {
+      context = new PrefixedContext(context, "");
+    } else {
+      context = new PrefixedContext(context, separator);
+    }
+    int uniqueNumber = context.getUniqueNumber();
+    // Issue #709
+    if (o instanceof Map.Entry) {
+      @SuppressWarnings("unchecked")
+      Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
+      applyIndex(context, mapEntry.getKey(), uniqueNumber);
+      applyItem(context, mapEntry.getValue(), uniqueNumber);
+    } else {
+      applyIndex(context, i, uniqueNumber);
+      applyItem(context, o, uniqueNumber);
+    }
+    contents.apply(new FilteredDynamicContext(configuration, context, index, item, uniqueNumber));
+    if (first) {
+      first = !((PrefixedContext) context).isPrefixApplied();
+    }
+    return first;
+  }
+
+  /**
+   * 元素内容只引用item时的快速路径，生成的sql和参数与逐个元素应用内容时相同：
+   * 每个元素只绑定一个__frch_item_N，不创建包装的上下文，也不绑定item和index
+   */
+  private void applyItemFragments(DynamicContext context, Iterable<?> iterable) {
+    int count = 0;
+    SqlFragment fragment = null;
+    for (Object o : iterable) {
+      final String name = itemizeItem(item, context.getUniqueNumber());
+      context.bind(name, o instanceof Map.Entry ? ((Map.Entry<?, ?>) o).getValue() : o);
+      fragment = itemFragment.renameProperties(property -> name + property.substring(item.length()));
+      appendElement(context, fragment, count++ > 0);
+    }
+    // 补齐的元素与最后一个元素使用相同的参数
+    for (int paddedCount = paddedCount(count); count < paddedCount; count++) {
+      appendElement(context, fragment, true);
+    }
+  }
+
+  private void appendElement(DynamicContext context, SqlFragment fragment, boolean separate) {
+    // 与PrefixedContext一致，第一个元素前追加空前缀
+    context.appendSql(separate && separator != null ? separator : "");
+    context.appendSql(fragment);
+  }
+
+  private int paddedCount(int count) {
+    if (!padding || count <= 1) {
+      return count;
+    }
+    int padded = Integer.highestOneBit(count - 1) << 1;
+    return padded > 0 ? padded : count;
+  }
+
   private void applyIndex(DynamicContext context, Object o, int i) {
     if (index != null) {
       context.bind(index, o);
@@ -158,7 +243,37 @@ public class ForEachSqlNode implements SqlNode {
         return "#{" + newContent + "}";
       });
 
-      delegate.appendSql(parser.parse(sql));
+      //元素的文本每次都不同，不放入ParsedSqlCache
+      delegate.appendUncachedSql(parser.parse(sql));
+    }
+
+    @Override
+    void appendSql(SqlFragment fragment) {
+      if (getParsedSqlCache() == null) {
+        appendSql(fragment.getText());
+        return;
+      }
+      //与上面的文本替换规则一致：属性名以item开头（后面是"."或结束）时改为__frch_item_N
+      delegate.appendSql(fragment.renameProperties(property -> {
+        String newProperty = itemizeProperty(property, item, index);
+        if (newProperty == null && itemIndex != null) {
+          newProperty = itemizeProperty(property, itemIndex, index);
+        }
+        return newProperty;
+      }));
+    }
+
+    static String itemizeProperty(String property, String name, int i) {
+      if (property != null && name != null && property.startsWith(name)
+          && (property.length() == name.length() || property.charAt(name.length()) == '.')) {
+        return itemizeItem(name, i) + property.substring(name.length());
+      }
+      return null;
+    }
+
+    @Override
+    ParsedSqlCache getParsedSqlCache() {
+      return delegate.getParsedSqlCache();
     }
 
     @Override
@@ -204,6 +319,24 @@ public class ForEachSqlNode implements SqlNode {
       delegate.appendSql(sql);
     }
 
+    @Override
+    void appendSql(SqlFragment fragment) {
+      if (getParsedSqlCache() == null) {
+        appendSql(fragment.getText());
+        return;
+      }
+      if (!prefixApplied && fragment.getSql().trim().length() > 0) {
+        delegate.appendSql(prefix);
+        prefixApplied = true;
+      }
+      delegate.appendSql(fragment);
+    }
+
+    @Override
+    ParsedSqlCache getParsedSqlCache() {
+      return delegate.getParsedSqlCache();
+    }
+
     @Override
     public String getSql() {
       return delegate.getSql();
@@ -45,4 +45,8 @@ public class MixedSqlNode implements SqlNode {
     }
     return true;
   }
+
+  List<SqlNode> getContents() {
+    return contents;
+  }
 }
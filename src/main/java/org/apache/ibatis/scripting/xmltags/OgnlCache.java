@@ -19,7 +19,9 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import ognl.Ognl;
+import ognl.OgnlContext;
 import ognl.OgnlException;
+import ognl.OgnlRuntime;
 
 import org.apache.ibatis.builder.BuilderException;
 
@@ -42,13 +44,30 @@ public final class OgnlCache {
 
   public static Object getValue(String expression, Object root) {
     try {
-      Map context = Ognl.createDefaultContext(root, MEMBER_ACCESS, CLASS_RESOLVER, null);
-      return Ognl.getValue(parseExpression(expression), context, root);
+      return Ognl.getValue(parseExpression(expression), createContext(root), root);
     } catch (OgnlException e) {
       throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e, e);
     }
   }
 
+  /**
+   * Reads a property of a target the way an OGNL expression does.
+   */
+  static Object getProperty(Object root, Object target, String name) throws OgnlException {
+    return OgnlRuntime.getProperty(createContext(root), target, name);
+  }
+
+  /**
+   * Calls a method without arguments on a target the way an OGNL expression does.
+   */
+  static Object callMethod(Object root, Object target, String name) throws OgnlException {
+    return OgnlRuntime.callMethod(createContext(root), target, name, new Object[0]);
+  }
+
+  private static OgnlContext createContext(Object root) {
+    return (OgnlContext) Ognl.createDefaultContext(root, MEMBER_ACCESS, CLASS_RESOLVER, null);
+  }
+
   private static Object parseExpression(String expression) throws OgnlException {
     Object node = expressionCache.get(expression);
     if (node == null) {
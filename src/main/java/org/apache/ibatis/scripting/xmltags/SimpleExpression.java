@@ -0,0 +1,646 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ognl.OgnlException;
+import ognl.OgnlOps;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * 内置的表达式求值器，实现mapper中常用的OGNL子集：属性路径、null/true/false/数字/字符串常量、
+ * ==、!=、&lt;、&gt;、&lt;=、&gt;=（及eq、neq、lt、gt、lte、gte）、and、or、not、&amp;&amp;、||、!、括号，
+ * 以及size()、isEmpty()、length()、trim()这几个无参方法
+ * 表达式解析成语法树后缓存，属性通过Reflector读取，不再为每次求值创建OGNL上下文
+ * 是否使用OGNL只在解析时决定：语法不在子集内的表达式整体交给OGNL；子集内的表达式求值时不会再交给OGNL重新求值，
+ * 运算符使用OgnlOps保证语义一致，OGNL有专门访问器的类型（集合、数组等）的属性通过OgnlRuntime读取
+ */
+abstract class SimpleExpression {
+
+  /**表示表达式不在子集内的占位值*/
+  private static final SimpleExpression UNSUPPORTED = new Literal(null);
+  private static final Map<String, SimpleExpression> expressionCache = new ConcurrentHashMap<>();
+  /**求值的根对象不是ContextMap时使用*/
+  private static final ReflectorFactory DEFAULT_REFLECTOR_FACTORY = new DefaultReflectorFactory();
+
+  /**
+   * 对表达式求值，不支持时使用OGNL
+   * @param expression 表达式
+   * @param root 根对象，通常是DynamicContext的bindings
+   */
+  static Object getValue(String expression, Object root) {
+    SimpleExpression compiled = expressionCache.get(expression);
+    if (compiled == null) {
+      compiled = parse(expression);
+      if (compiled == null) {
+        compiled = UNSUPPORTED;
+      }
+      expressionCache.put(expression, compiled);
+    }
+    if (compiled == UNSUPPORTED) {
+      return OgnlCache.getValue(expression, root);
+    }
+    ReflectorFactory reflectorFactory = root instanceof DynamicContext.ContextMap
+        ? ((DynamicContext.ContextMap) root).getReflectorFactory() : DEFAULT_REFLECTOR_FACTORY;
+    try {
+      return compiled.evaluate(root, reflectorFactory);
+    } catch (RuntimeException e) {
+      // 与OGNL一样，运算中的运行时异常（如字符串转数字失败）直接抛出
+      throw e;
+    } catch (Exception e) {
+      // 与OgnlCache的异常信息一致
+      throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 解析表达式
+   * @return 语法树，不在子集内时返回null
+   */
+  static SimpleExpression parse(String expression) {
+    try {
+      Parser parser = new Parser(expression);
+      SimpleExpression result = parser.parseOr();
+      return parser.atEnd() ? result : null;
+    } catch (UnsupportedException e) {
+      return null;
+    }
+  }
+
+  abstract Object evaluate(Object root, ReflectorFactory reflectorFactory) throws Exception;
+
+  /**
+   * 解析时遇到子集不支持的语法时抛出，不填充栈
+   */
+  private static final class UnsupportedException extends RuntimeException {
+    private static final long serialVersionUID = -6415230123489174012L;
+    private static final UnsupportedException INSTANCE = new UnsupportedException();
+
+    private UnsupportedException() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * 常量
+   */
+  private static final class Literal extends SimpleExpression {
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object evaluate(Object root, ReflectorFactory reflectorFactory) {
+      return value;
+    }
+  }
+
+  /**
+   * and和or，与OGNL一样返回决定结果的操作数本身
+   */
+  private static final class Logical extends SimpleExpression {
+    private final boolean and;
+    private final SimpleExpression left;
+    private final SimpleExpression right;
+
+    Logical(boolean and, SimpleExpression left, SimpleExpression right) {
+      this.and = and;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object evaluate(Object root, ReflectorFactory reflectorFactory) throws Exception {
+      Object value = left.evaluate(root, reflectorFactory);
+      if (OgnlOps.booleanValue(value) != and) {
+        return value;
+      }
+      return right.evaluate(root, reflectorFactory);
+    }
+  }
+
+  private static final class Not extends SimpleExpression {
+    private final SimpleExpression operand;
+
+    Not(SimpleExpression operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object evaluate(Object root, ReflectorFactory reflectorFactory) throws Exception {
+      return OgnlOps.booleanValue(operand.evaluate(root, reflectorFactory)) ? Boolean.FALSE : Boolean.TRUE;
+    }
+  }
+
+  /**
+   * 比较运算，与OGNL一样&lt;=是不大于，&gt;=是不小于
+   */
+  private static final class Comparison extends SimpleExpression {
+    private final String operator;
+    private final SimpleExpression left;
+    private final SimpleExpression right;
+
+    Comparison(String operator, SimpleExpression left, SimpleExpression right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object evaluate(Object root, ReflectorFactory reflectorFactory) throws Exception {
+      Object l = left.evaluate(root, reflectorFactory);
+      Object r = right.evaluate(root, reflectorFactory);
+      switch (operator) {
+        case "==":
+          return OgnlOps.equal(l, r);
+        case "!=":
+          return !OgnlOps.equal(l, r);
+        case "<":
+          return OgnlOps.less(l, r);
+        case ">":
+          return OgnlOps.greater(l, r);
+        case "<=":
+          return !OgnlOps.greater(l, r);
+        default:
+          return !OgnlOps.less(l, r);
+      }
+    }
+  }
+
+  /**
+   * 属性路径，如user.name、list.size()
+   * 每一段缓存上次读取的类型和Invoker，类型不变时直接调用
+   */
+  private static final class PropertyPath extends SimpleExpression {
+    private final String[] names;
+    private final boolean[] methods;
+    private final CachedGetter[] getters;
+
+    PropertyPath(List<String> names, List<Boolean> methods) {
+      this.names = names.toArray(new String[names.size()]);
+      this.methods = new boolean[names.size()];
+      for (int i = 0; i < this.methods.length; i++) {
+        this.methods[i] = methods.get(i);
+      }
+      this.getters = new CachedGetter[names.size()];
+    }
+
+    @Override
+    Object evaluate(Object root, ReflectorFactory reflectorFactory) throws Exception {
+      Object value = getRootProperty(root, names[0], reflectorFactory);
+      for (int i = 1; i < names.length; i++) {
+        value = methods[i] ? invokeMethod(root, value, names[i]) : getProperty(root, value, i, reflectorFactory);
+      }
+      return value;
+    }
+
+    private Object getRootProperty(Object root, String name, ReflectorFactory reflectorFactory) throws Exception {
+      if (root instanceof DynamicContext.ContextMap) {
+        // 与DynamicContext.ContextAccessor一致
+        Map<?, ?> map = (Map<?, ?>) root;
+        Object result = map.get(name);
+        if (map.containsKey(name) || result != null) {
+          return result;
+        }
+        Object parameterObject = map.get(DynamicContext.PARAMETER_OBJECT_KEY);
+        if (parameterObject instanceof Map) {
+          return ((Map<?, ?>) parameterObject).get(name);
+        }
+        return null;
+      }
+      return root == null ? null : getProperty(root, root, 0, reflectorFactory);
+    }
+
+    private Object getProperty(Object root, Object target, int index, ReflectorFactory reflectorFactory) throws Exception {
+      String name = names[index];
+      if (target instanceof Map) {
+        // 与OGNL的MapPropertyAccessor一致
+        Map<?, ?> map = (Map<?, ?>) target;
+        switch (name) {
+          case "size":
+            return map.size();
+          case "keys":
+          case "keySet":
+            return map.keySet();
+          case "values":
+            return map.values();
+          case "isEmpty":
+            return map.isEmpty() ? Boolean.TRUE : Boolean.FALSE;
+          default:
+            return map.get(name);
+        }
+      }
+      if (target == null || target instanceof Collection || target instanceof Iterator || target instanceof Enumeration
+          || target.getClass().isArray() || target instanceof Class) {
+        // null报source is null，其他类型OGNL有专门的属性访问器
+        return OgnlCache.getProperty(root, target, name);
+      }
+      Class<?> type = target.getClass();
+      CachedGetter getter = getters[index];
+      if (getter == null || getter.type != type) {
+        Reflector reflector = reflectorFactory.findForClass(type);
+        if (!reflector.hasGetter(name)) {
+          // 由OGNL查找或报告没有该属性
+          return OgnlCache.getProperty(root, target, name);
+        }
+        getter = new CachedGetter(type, reflector.getGetInvoker(name));
+        getters[index] = getter;
+      }
+      return getter.invoker.invoke(target, null);
+    }
+
+    private static Object invokeMethod(Object root, Object target, String name) throws OgnlException {
+      switch (name) {
+        case "size":
+          if (target instanceof Collection) {
+            return ((Collection<?>) target).size();
+          }
+          if (target instanceof Map) {
+            return ((Map<?, ?>) target).size();
+          }
+          break;
+        case "isEmpty":
+          if (target instanceof Collection) {
+            return ((Collection<?>) target).isEmpty();
+          }
+          if (target instanceof Map) {
+            return ((Map<?, ?>) target).isEmpty();
+          }
+          if (target instanceof String) {
+            return ((String) target).isEmpty();
+          }
+          break;
+        case "length":
+          if (target instanceof String) {
+            return ((String) target).length();
+          }
+          break;
+        case "trim":
+          if (target instanceof String) {
+            return ((String) target).trim();
+          }
+          break;
+        default:
+          break;
+      }
+      return OgnlCache.callMethod(root, target, name);
+    }
+  }
+
+  private static final class CachedGetter {
+    final Class<?> type;
+    final Invoker invoker;
+
+    CachedGetter(Class<?> type, Invoker invoker) {
+      this.type = type;
+      this.invoker = invoker;
+    }
+  }
+
+  /**
+   * 递归下降解析器，优先级从低到高：or、and、相等、关系、not、路径和常量，与OGNL一致
+   */
+  private static final class Parser {
+    private static final List<String> SUPPORTED_METHODS = Arrays.asList("size", "isEmpty", "length", "trim");
+
+    private final String expression;
+    private int position;
+
+    Parser(String expression) {
+      this.expression = expression;
+    }
+
+    boolean atEnd() {
+      skipWhitespace();
+      return position == expression.length();
+    }
+
+    SimpleExpression parseOr() {
+      SimpleExpression left = parseAnd();
+      while (acceptSymbol("||") || acceptKeyword("or")) {
+        left = new Logical(false, left, parseAnd());
+      }
+      return left;
+    }
+
+    private SimpleExpression parseAnd() {
+      SimpleExpression left = parseEquality();
+      while (acceptSymbol("&&") || acceptKeyword("and")) {
+        left = new Logical(true, left, parseEquality());
+      }
+      return left;
+    }
+
+    private SimpleExpression parseEquality() {
+      SimpleExpression left = parseRelational();
+      while (true) {
+        if (acceptSymbol("==") || acceptKeyword("eq")) {
+          left = new Comparison("==", left, parseRelational());
+        } else if (acceptSymbol("!=") || acceptKeyword("neq")) {
+          left = new Comparison("!=", left, parseRelational());
+        } else {
+          return left;
+        }
+      }
+    }
+
+    private SimpleExpression parseRelational() {
+      SimpleExpression left = parseUnary();
+      while (true) {
+        String operator;
+        if (acceptSymbol("<=") || acceptKeyword("lte")) {
+          operator = "<=";
+        } else if (acceptSymbol(">=") || acceptKeyword("gte")) {
+          operator = ">=";
+        } else if (acceptSymbol("<") || acceptKeyword("lt")) {
+          operator = "<";
+        } else if (acceptSymbol(">") || acceptKeyword("gt")) {
+          operator = ">";
+        } else {
+          return left;
+        }
+        left = new Comparison(operator, left, parseUnary());
+      }
+    }
+
+    private SimpleExpression parseUnary() {
+      skipWhitespace();
+      if (peek() == '!' && peek(1) != '=') {
+        position++;
+        return new Not(parseUnary());
+      }
+      if (acceptKeyword("not")) {
+        return new Not(parseUnary());
+      }
+      return parsePrimary();
+    }
+
+    private SimpleExpression parsePrimary() {
+      skipWhitespace();
+      char c = peek();
+      if (c == '(') {
+        position++;
+        SimpleExpression expression = parseOr();
+        if (!acceptSymbol(")")) {
+          throw UnsupportedException.INSTANCE;
+        }
+        skipWhitespace();
+        if (peek() == '.') {
+          throw UnsupportedException.INSTANCE;
+        }
+        return expression;
+      }
+      if (c == '\'' || c == '"') {
+        return new Literal(parseString(c));
+      }
+      if (c >= '0' && c <= '9') {
+        return new Literal(parseNumber());
+      }
+      if (Character.isJavaIdentifierStart(c)) {
+        return parsePath();
+      }
+      throw UnsupportedException.INSTANCE;
+    }
+
+    private SimpleExpression parsePath() {
+      String first = parseIdentifier();
+      switch (first) {
+        case "null":
+          return new Literal(null);
+        case "true":
+          return new Literal(Boolean.TRUE);
+        case "false":
+          return new Literal(Boolean.FALSE);
+        default:
+          break;
+      }
+      if (isKeyword(first) || peekAfterWhitespace() == '(') {
+        throw UnsupportedException.INSTANCE;
+      }
+      List<String> names = new ArrayList<>();
+      List<Boolean> methods = new ArrayList<>();
+      names.add(first);
+      methods.add(Boolean.FALSE);
+      while (peekAfterWhitespace() == '.') {
+        skipWhitespace();
+        position++;
+        skipWhitespace();
+        if (!Character.isJavaIdentifierStart(peek())) {
+          throw UnsupportedException.INSTANCE;
+        }
+        String name = parseIdentifier();
+        if (isKeyword(name) || "null".equals(name) || "true".equals(name) || "false".equals(name)) {
+          throw UnsupportedException.INSTANCE;
+        }
+        boolean method = acceptSymbol("(");
+        if (method && (!acceptSymbol(")") || !SUPPORTED_METHODS.contains(name))) {
+          throw UnsupportedException.INSTANCE;
+        }
+        names.add(name);
+        methods.add(method);
+      }
+      return new PropertyPath(names, methods);
+    }
+
+    private String parseIdentifier() {
+      int start = position;
+      while (position < expression.length() && Character.isJavaIdentifierPart(expression.charAt(position))) {
+        position++;
+      }
+      return expression.substring(start, position);
+    }
+
+    /**
+     * OGNL中单引号括起的单个字符是Character常量，与字符串比较的结果不同，不支持
+     */
+    private String parseString(char quote) {
+      StringBuilder builder = new StringBuilder();
+      position++;
+      while (true) {
+        if (position >= expression.length()) {
+          throw UnsupportedException.INSTANCE;
+        }
+        char c = expression.charAt(position++);
+        if (c == quote) {
+          break;
+        }
+        if (c == '\\') {
+          if (position >= expression.length()) {
+            throw UnsupportedException.INSTANCE;
+          }
+          char escaped = expression.charAt(position++);
+          switch (escaped) {
+            case 'n':
+              builder.append('\n');
+              break;
+            case 't':
+              builder.append('\t');
+              break;
+            case 'r':
+              builder.append('\r');
+              break;
+            case 'b':
+              builder.append('\b');
+              break;
+            case 'f':
+              builder.append('\f');
+              break;
+            case '\\':
+            case '\'':
+            case '"':
+              builder.append(escaped);
+              break;
+            default:
+              throw UnsupportedException.INSTANCE;
+          }
+        } else {
+          builder.append(c);
+        }
+      }
+      if (quote == '\'' && builder.length() == 1) {
+        throw UnsupportedException.INSTANCE;
+      }
+      return builder.toString();
+    }
+
+    /**
+     * 只支持十进制整数（Integer）和小数（Double），带后缀、八进制、十六进制和科学计数法的交给OGNL
+     */
+    private Object parseNumber() {
+      int start = position;
+      while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+        position++;
+      }
+      boolean decimal = false;
+      if (peek() == '.' && Character.isDigit(peek(1))) {
+        decimal = true;
+        position++;
+        while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+          position++;
+        }
+      }
+      if (position < expression.length() && (Character.isJavaIdentifierPart(expression.charAt(position))
+          || expression.charAt(position) == '.')) {
+        throw UnsupportedException.INSTANCE;
+      }
+      String text = expression.substring(start, position);
+      if (decimal) {
+        return Double.valueOf(text);
+      }
+      if (text.length() > 1 && text.charAt(0) == '0') {
+        throw UnsupportedException.INSTANCE;
+      }
+      try {
+        return Integer.valueOf(text);
+      } catch (NumberFormatException e) {
+        throw UnsupportedException.INSTANCE;
+      }
+    }
+
+    private boolean acceptSymbol(String symbol) {
+      skipWhitespace();
+      if (!expression.startsWith(symbol, position)) {
+        return false;
+      }
+      char next = peek(symbol.length());
+      if (("<".equals(symbol) || ">".equals(symbol)) && (next == '<' || next == '>' || next == '=')) {
+        // <<、>>、>>>等
+        return false;
+      }
+      if (("==".equals(symbol) || "!=".equals(symbol)) && next == '=') {
+        return false;
+      }
+      position += symbol.length();
+      return true;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+      skipWhitespace();
+      int end = position + keyword.length();
+      if (!expression.startsWith(keyword, position)
+          || (end < expression.length() && Character.isJavaIdentifierPart(expression.charAt(end)))) {
+        return false;
+      }
+      position = end;
+      return true;
+    }
+
+    private static boolean isKeyword(String name) {
+      switch (name) {
+        case "and":
+        case "or":
+        case "not":
+        case "eq":
+        case "neq":
+        case "lt":
+        case "gt":
+        case "lte":
+        case "gte":
+        case "in":
+        case "instanceof":
+        case "new":
+        case "shl":
+        case "shr":
+        case "ushr":
+        case "band":
+        case "bor":
+        case "xor":
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    private void skipWhitespace() {
+      while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+        position++;
+      }
+    }
+
+    private char peekAfterWhitespace() {
+      int saved = position;
+      skipWhitespace();
+      char c = peek();
+      position = saved;
+      return c;
+    }
+
+    private char peek() {
+      return peek(0);
+    }
+
+    private char peek(int offset) {
+      int index = position + offset;
+      return index < expression.length() ? expression.charAt(index) : '\0';
+    }
+  }
+
+}
@@ -0,0 +1,79 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.function.UnaryOperator;
+
+import org.apache.ibatis.builder.ParsedSql;
+import org.apache.ibatis.builder.SqlSourceBuilder.ParameterPlaceholder;
+
+/**
+ * 预编译的sql片段，#{}已替换为?，对应的参数占位符按出现顺序保存
+ * 由StaticTextSqlNode在加载mapper时生成，执行时只需拼接，不再重新解析#{}
+ *
+ * @since 3.5.0
+ */
+final class SqlFragment {
+
+  private static final ParameterPlaceholder[] NO_PLACEHOLDERS = new ParameterPlaceholder[0];
+
+  /**原始文本，上下文不是预编译模式时按原文本追加；由其他片段派生时为null*/
+  private final String text;
+  /**#{}替换为?后的sql*/
+  private final String sql;
+  private final ParameterPlaceholder[] placeholders;
+
+  SqlFragment(String text, String sql, ParameterPlaceholder[] placeholders) {
+    this.text = text;
+    this.sql = sql;
+    this.placeholders = placeholders;
+  }
+
+  SqlFragment(String text, ParsedSql parsedSql) {
+    this(text, parsedSql.getSql(), parsedSql.getPlaceholders().toArray(NO_PLACEHOLDERS));
+  }
+
+  String getText() {
+    return text;
+  }
+
+  String getSql() {
+    return sql;
+  }
+
+  ParameterPlaceholder[] getPlaceholders() {
+    return placeholders;
+  }
+
+  /**
+   * 替换参数占位符的属性名，foreach中使用
+   * @param renamer 返回新的属性名，不需要改名时返回null
+   */
+  SqlFragment renameProperties(UnaryOperator<String> renamer) {
+    ParameterPlaceholder[] renamed = null;
+    for (int i = 0; i < placeholders.length; i++) {
+      String property = renamer.apply(placeholders[i].getProperty());
+      if (property != null) {
+        if (renamed == null) {
+          renamed = placeholders.clone();
+        }
+        renamed[i] = placeholders[i].withProperty(property);
+      }
+    }
+    return renamed == null ? this : new SqlFragment(null, sql, renamed);
+  }
+
+}
@@ -15,6 +15,9 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.session.Configuration;
+
 /**
  * @author Clinton Begin
  */
@@ -25,14 +28,43 @@ package org.apache.ibatis.scripting.xmltags;
 public class StaticTextSqlNode implements SqlNode {
   /**静态sql文本*/
   private final String text;
+  /**加载时预编译的文本，#{}已替换为?，为null时追加原文本*/
+  private final SqlFragment fragment;
 
   public StaticTextSqlNode(String text) {
     this.text = text;
+    this.fragment = null;
+  }
+
+  /**
+   * 创建预编译#{}的静态文本节点
+   * @since 3.5.0
+   */
+  public StaticTextSqlNode(Configuration configuration, String text) {
+    this.text = text;
+    this.fragment = compile(configuration, text);
+  }
+
+  private static SqlFragment compile(Configuration configuration, String text) {
+    try {
+      return new SqlFragment(text, new SqlSourceBuilder(configuration).parseSql(text));
+    } catch (RuntimeException e) {
+      // 非法的#{}保持原来的行为，在执行到这个节点时才报错
+      return null;
+    }
+  }
+
+  SqlFragment getFragment() {
+    return fragment;
   }
 
   @Override
   public boolean apply(DynamicContext context) {
-    context.appendSql(text);
+    if (fragment != null) {
+      context.appendSql(fragment);
+    } else {
+      context.appendSql(text);
+    }
     return true;
   }
 
@@ -15,6 +15,11 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.apache.ibatis.parsing.GenericTokenParser;
@@ -27,22 +32,56 @@ import org.apache.ibatis.type.SimpleTypeRegistry;
  * 动态的文本sql，其中包含${}
  */
 public class TextSqlNode implements SqlNode {
+  /**通过injectionFilter校验的值最多缓存的数量*/
+  private static final int MAX_ACCEPTED_VALUES = 256;
+  /**拆分文本时代替${}的标记，文本中含有此字符时不拆分*/
+  private static final String SEGMENT_MARKER = "\u0000";
+
   /**部分文本sql  select id,cnname,sex from ${tableName} where id=#{studentId}
    */
   private final String text;
   private final Pattern injectionFilter;
+  /**
+   * 创建时按${}拆分的文本，literals比expressions多一个，执行时交替拼接，不再扫描文本
+   * 文本无法拆分时为null，执行时按原来的方式解析
+   */
+  private final String[] literals;
+  private final String[] expressions;
+  /**已通过injectionFilter校验的值，排序字段、表名这类取值有限的${}不必每次都匹配正则*/
+  private final Set<String> acceptedValues;
 
   public TextSqlNode(String text) {
     this(text, null);
   }
-  
+
   public TextSqlNode(String text, Pattern injectionFilter) {
     this.text = text;
     this.injectionFilter = injectionFilter;
+    this.acceptedValues = injectionFilter == null ? null : ConcurrentHashMap.<String>newKeySet();
+    List<String> tokens = new ArrayList<>();
+    String parsed = createParser(content -> {
+      tokens.add(content);
+      return SEGMENT_MARKER;
+    }).parse(text);
+    if (text != null && text.contains(SEGMENT_MARKER)) {
+      this.literals = null;
+      this.expressions = null;
+    } else {
+      this.literals = split(parsed, tokens.size());
+      this.expressions = tokens.toArray(new String[tokens.size()]);
+    }
   }
-  public static void main(String[] args){
-    TextSqlNode tx = new TextSqlNode("hef${name.text}eefh");
-    tx.isDynamic();
+
+  private static String[] split(String parsed, int count) {
+    String[] literals = new String[count + 1];
+    int offset = 0;
+    for (int i = 0; i < count; i++) {
+      int marker = parsed.indexOf(SEGMENT_MARKER, offset);
+      literals[i] = parsed.substring(offset, marker);
+      offset = marker + SEGMENT_MARKER.length();
+    }
+    literals[count] = parsed.substring(offset);
+    return literals;
   }
 
   /**
@@ -52,9 +91,21 @@ public class TextSqlNode implements SqlNode {
    */
   @Override
   public boolean apply(DynamicContext context) {
-    GenericTokenParser parser = createParser(new BindingTokenParser(context, injectionFilter));
-
-    context.appendSql(parser.parse(text));
+    if (literals == null) {
+      GenericTokenParser parser = createParser(new BindingTokenParser(context, this));
+      context.appendSql(parser.parse(text));
+      return true;
+    }
+    if (expressions.length == 0) {
+      context.appendSql(literals[0]);
+      return true;
+    }
+    bindValue(context);
+    StringBuilder sql = new StringBuilder(literals[0]);
+    for (int i = 0; i < expressions.length; i++) {
+      sql.append(evaluate(context, expressions[i])).append(literals[i + 1]);
+    }
+    context.appendSql(sql.toString());
     return true;
   }
 
@@ -63,6 +114,9 @@ public class TextSqlNode implements SqlNode {
    * @return
    */
   public boolean isDynamic() {
+    if (expressions != null) {
+      return expressions.length > 0;
+    }
     //创建DynamicCheckerTokenParser
     DynamicCheckerTokenParser checker = new DynamicCheckerTokenParser();
     //生成${}符号解析器
@@ -75,16 +129,50 @@ public class TextSqlNode implements SqlNode {
     return new GenericTokenParser("${", "}", handler);
   }
 
+  /**
+   * 参数是简单类型时，${value}等引用的就是参数本身
+   */
+  private static void bindValue(DynamicContext context) {
+    //获取参数  参数名和参数值的映射关系，Map<String,Object>，@Param注解，那么这个parameter就是第一个参数本身
+    Object parameter = context.getBindings().get("_parameter");
+    if (parameter == null) {
+      context.getBindings().put("value", null);
+    } else if (SimpleTypeRegistry.isSimpleType(parameter.getClass())) {
+      //是简单类型的数据，直接将值添加到 key为“value”的映射上
+      context.getBindings().put("value", parameter);
+    }
+  }
+
+  private String evaluate(DynamicContext context, String expression) {
+    //根据参数对象，获取${}表达式内的值
+    Object value = SimpleExpression.getValue(expression, context.getBindings());
+    String srtValue = (value == null ? "" : String.valueOf(value)); // issue #274 return "" instead of "null"
+    checkInjection(srtValue);
+    return srtValue;
+  }
+
+  private void checkInjection(String value) {
+    if (injectionFilter == null || acceptedValues.contains(value)) {
+      return;
+    }
+    if (!injectionFilter.matcher(value).matches()) {
+      throw new ScriptingException("Invalid input. Please conform to regex" + injectionFilter.pattern());
+    }
+    if (acceptedValues.size() < MAX_ACCEPTED_VALUES) {
+      acceptedValues.add(value);
+    }
+  }
+
   private static class BindingTokenParser implements TokenHandler {
     /**
      * 动态上下文
      */
     private DynamicContext context;
-    private Pattern injectionFilter;
+    private TextSqlNode node;
 
-    public BindingTokenParser(DynamicContext context, Pattern injectionFilter) {
+    public BindingTokenParser(DynamicContext context, TextSqlNode node) {
       this.context = context;
-      this.injectionFilter = injectionFilter;
+      this.node = node;
     }
 
     /**
@@ -94,25 +182,8 @@ public class TextSqlNode implements SqlNode {
      */
     @Override
     public String handleToken(String content) {
-      //获取参数  参数名和参数值的映射关系，Map<String,Object>，@Param注解，那么这个parameter就是第一个参数本身
-      Object parameter = context.getBindings().get("_parameter");
-      if (parameter == null) {
-        context.getBindings().put("value", null);
-      } else if (SimpleTypeRegistry.isSimpleType(parameter.getClass())) {
-        //是简单类型的数据，直接将值添加到 key为“value”的映射上
-        context.getBindings().put("value", parameter);
-      }
-      //根据参数对象，获取${}表达式内的值
-      Object value = OgnlCache.getValue(content, context.getBindings());
-      String srtValue = (value == null ? "" : String.valueOf(value)); // issue #274 return "" instead of "null"
-      checkInjection(srtValue);
-      return srtValue;
-    }
-
-    private void checkInjection(String value) {
-      if (injectionFilter != null && !injectionFilter.matcher(value).matches()) {
-        throw new ScriptingException("Invalid input. Please conform to regex" + injectionFilter.pattern());
-      }
+      bindValue(context);
+      return node.evaluate(context, content);
     }
   }
   
@@ -22,6 +22,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.StringTokenizer;
 
+import org.apache.ibatis.builder.ParsedSqlCache;
+import org.apache.ibatis.builder.SqlSourceBuilder.ParameterPlaceholder;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -74,6 +76,8 @@ public class TrimSqlNode implements SqlNode {
     private boolean prefixApplied;
     private boolean suffixApplied;
     private StringBuilder sqlBuffer;
+    /**预编译模式下sqlBuffer中?对应的参数占位符*/
+    private final List<ParameterPlaceholder> placeholders = new ArrayList<>();
 
     public FilteredDynamicContext(DynamicContext delegate) {
       super(configuration, null);
@@ -90,7 +94,11 @@ public class TrimSqlNode implements SqlNode {
         applyPrefix(sqlBuffer, trimmedUppercaseSql);
         applySuffix(sqlBuffer, trimmedUppercaseSql);
       }
-      delegate.appendSql(sqlBuffer.toString());
+      if (getParsedSqlCache() != null) {
+        delegate.appendSql(new SqlFragment(null, sqlBuffer.toString(), placeholders.toArray(new ParameterPlaceholder[0])));
+      } else {
+        delegate.appendSql(sqlBuffer.toString());
+      }
     }
 
     @Override
@@ -110,9 +118,30 @@ public class TrimSqlNode implements SqlNode {
 
     @Override
     public void appendSql(String sql) {
+      final ParsedSqlCache parsedSqlCache = getParsedSqlCache();
+      if (parsedSqlCache != null && sql != null && sql.contains("#{")) {
+        appendSql(new SqlFragment(sql, parsedSqlCache.parse(sql)));
+        return;
+      }
       sqlBuffer.append(sql);
     }
 
+    @Override
+    void appendSql(SqlFragment fragment) {
+      if (getParsedSqlCache() == null) {
+        appendSql(fragment.getText());
+        return;
+      }
+      //前后缀的处理只涉及关键字，与?无关，占位符按顺序暂存
+      sqlBuffer.append(fragment.getSql());
+      Collections.addAll(placeholders, fragment.getPlaceholders());
+    }
+
+    @Override
+    ParsedSqlCache getParsedSqlCache() {
+      return delegate.getParsedSqlCache();
+    }
+
     @Override
     public String getSql() {
       return delegate.getSql();
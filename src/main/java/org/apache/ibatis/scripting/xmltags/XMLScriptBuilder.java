@@ -100,13 +100,13 @@ public class XMLScriptBuilder extends BaseBuilder {
       /**如果节点标签是<CDATASection >或者是文本*/
       if (child.getNode().getNodeType() == Node.CDATA_SECTION_NODE || child.getNode().getNodeType() == Node.TEXT_NODE) {
         String data = child.getStringBody("");
-        TextSqlNode textSqlNode = new TextSqlNode(data);
+        TextSqlNode textSqlNode = new TextSqlNode(data, configuration.getSubstitutionFilter());
         //若文本包含${}等，则是动态的sql，否则就是静态的sql
         if (textSqlNode.isDynamic()) {
           contents.add(textSqlNode);
           isDynamic = true;
         } else {
-          contents.add(new StaticTextSqlNode(data));
+          contents.add(new StaticTextSqlNode(configuration, data));
         }
       }
       //如果包含动态标签，则在动态标签库中寻找
@@ -199,7 +199,8 @@ public class XMLScriptBuilder extends BaseBuilder {
       String open = nodeToHandle.getStringAttribute("open");
       String close = nodeToHandle.getStringAttribute("close");
       String separator = nodeToHandle.getStringAttribute("separator");
-      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator);
+      boolean padding = nodeToHandle.getBooleanAttribute("padding", false);
+      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator, padding);
       targetContents.add(forEachSqlNode);
     }
   }
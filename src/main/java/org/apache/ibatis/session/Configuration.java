@@ -24,6 +24,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
@@ -33,9 +41,12 @@ import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.OffHeapCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
@@ -49,6 +60,7 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.result.ColumnarResult;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -101,6 +113,22 @@ public class Configuration {
   protected boolean safeRowBoundsEnabled;
 
   protected boolean safeResultHandlerEnabled = true;
+  //普通resultMap是否使用按列序号取值的编译映射器
+  protected boolean compiledRowMappingEnabled;
+  //Map类型的普通resultMap是否使用共享key索引、按值数组存放的行对象，修改时才复制为HashMap
+  protected boolean compactMapResultsEnabled;
+  //parallelResultMapping语句转换结果行使用的线程池和每批的行数，线程池为null时使用MyBatis自己的默认线程池
+  protected ForkJoinPool resultMappingPool;
+  protected int parallelResultMappingBatchSize = 256;
+  //游标预取的行数，大于0时由单独的线程提前读取和转换结果行；预取线程的ThreadFactory为null时创建守护线程
+  protected int cursorPrefetchSize;
+  protected ThreadFactory cursorPrefetchThreadFactory;
+  //每个动态sql语句和sql provider缓存的运行时生成的sql文本解析结果的数量，0表示不缓存
+  protected int parsedSqlCacheSize = 64;
+  //${}替换的值必须完整匹配的正则，如排序字段、表名只允许[\w.]+，为null时不校验
+  protected Pattern substitutionFilter;
+  //返回CompletableFuture的mapper方法执行查询的线程池，为null时使用线程数等于CPU核数的默认线程池
+  protected ExecutorService asyncQueryPool;
   //是否开启驼峰的命名规则，默认是false
   protected boolean mapUnderscoreToCamelCase;
   /**当aggressiveLazyLoading为true时，就是使用层级延迟加载，改为false就是按需延迟加载*/
@@ -129,6 +157,10 @@ public class Configuration {
   protected Class <? extends VFS> vfsImpl;
   //本地缓存加载范围，默认是session，若配置为STATEMENT，对相同的sqlsession将不会使用缓存
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+  //本地缓存最多保存的查询结果数和行数，0表示不限制
+  protected int localCacheSize;
+  protected int localCacheMaxRows;
+  protected LocalCacheEviction localCacheEviction = LocalCacheEviction.LRU;
   //若没哟㘝参数指定JDBCTYPE 默认是other
   protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
   //指定哪个对象的方法触发一次延迟加载
@@ -236,9 +268,13 @@ public class Configuration {
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
+    typeAliasRegistry.registerAlias("COLUMNAR", ColumnarResult.class);
+
     typeAliasRegistry.registerAlias("XML", XMLLanguageDriver.class);
     typeAliasRegistry.registerAlias("RAW", RawLanguageDriver.class);
 
@@ -335,6 +371,108 @@ public class Configuration {
     this.safeResultHandlerEnabled = safeResultHandlerEnabled;
   }
 
+  public ForkJoinPool getResultMappingPool() {
+    return resultMappingPool == null ? DefaultResultMappingPool.INSTANCE : resultMappingPool;
+  }
+
+  /**
+   * @param resultMappingPool the pool that maps the rows of statements with parallelResultMapping, null for the default pool
+   * @since 3.5.0
+   */
+  public void setResultMappingPool(ForkJoinPool resultMappingPool) {
+    this.resultMappingPool = resultMappingPool;
+  }
+
+  public int getParallelResultMappingBatchSize() {
+    return parallelResultMappingBatchSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setParallelResultMappingBatchSize(int parallelResultMappingBatchSize) {
+    this.parallelResultMappingBatchSize = parallelResultMappingBatchSize;
+  }
+
+  public int getCursorPrefetchSize() {
+    return cursorPrefetchSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setCursorPrefetchSize(int cursorPrefetchSize) {
+    this.cursorPrefetchSize = cursorPrefetchSize;
+  }
+
+  public int getParsedSqlCacheSize() {
+    return parsedSqlCacheSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setParsedSqlCacheSize(int parsedSqlCacheSize) {
+    this.parsedSqlCacheSize = parsedSqlCacheSize;
+  }
+
+  public Pattern getSubstitutionFilter() {
+    return substitutionFilter;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setSubstitutionFilter(Pattern substitutionFilter) {
+    this.substitutionFilter = substitutionFilter;
+  }
+
+  public ThreadFactory getCursorPrefetchThreadFactory() {
+    return cursorPrefetchThreadFactory == null ? PrefetchingCursor.DEFAULT_THREAD_FACTORY : cursorPrefetchThreadFactory;
+  }
+
+  /**
+   * @param cursorPrefetchThreadFactory creates the threads that prefetch cursor rows, null for daemon threads
+   * @since 3.5.0
+   */
+  public void setCursorPrefetchThreadFactory(ThreadFactory cursorPrefetchThreadFactory) {
+    this.cursorPrefetchThreadFactory = cursorPrefetchThreadFactory;
+  }
+
+  public ExecutorService getAsyncQueryPool() {
+    return asyncQueryPool == null ? DefaultAsyncQueryPool.INSTANCE : asyncQueryPool;
+  }
+
+  /**
+   * @param asyncQueryPool the pool that runs the mapper methods returning a CompletableFuture, null for the default pool
+   * @since 3.5.0
+   */
+  public void setAsyncQueryPool(ExecutorService asyncQueryPool) {
+    this.asyncQueryPool = asyncQueryPool;
+  }
+
+  public boolean isCompiledRowMappingEnabled() {
+    return compiledRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setCompiledRowMappingEnabled(boolean compiledRowMappingEnabled) {
+    this.compiledRowMappingEnabled = compiledRowMappingEnabled;
+  }
+
+  public boolean isCompactMapResultsEnabled() {
+    return compactMapResultsEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setCompactMapResultsEnabled(boolean compactMapResultsEnabled) {
+    this.compactMapResultsEnabled = compactMapResultsEnabled;
+  }
+
   public boolean isSafeRowBoundsEnabled() {
     return safeRowBoundsEnabled;
   }
@@ -494,6 +632,41 @@ public class Configuration {
     this.localCacheScope = localCacheScope;
   }
 
+  public int getLocalCacheSize() {
+    return localCacheSize;
+  }
+
+  /**
+   * @param localCacheSize the maximum number of query results kept by the local cache of a session, 0 for no limit
+   * @since 3.5.0
+   */
+  public void setLocalCacheSize(int localCacheSize) {
+    this.localCacheSize = localCacheSize;
+  }
+
+  public int getLocalCacheMaxRows() {
+    return localCacheMaxRows;
+  }
+
+  /**
+   * @param localCacheMaxRows the maximum number of rows, summed over all results, kept by the local cache of a session, 0 for no limit
+   * @since 3.5.0
+   */
+  public void setLocalCacheMaxRows(int localCacheMaxRows) {
+    this.localCacheMaxRows = localCacheMaxRows;
+  }
+
+  public LocalCacheEviction getLocalCacheEviction() {
+    return localCacheEviction;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setLocalCacheEviction(LocalCacheEviction localCacheEviction) {
+    this.localCacheEviction = localCacheEviction;
+  }
+
   public JdbcType getJdbcTypeForNull() {
     return jdbcTypeForNull;
   }
@@ -951,6 +1124,37 @@ public class Configuration {
     }
   }
 
+  /**
+   * 默认的结果转换线程池，第一次使用时才创建，线程数等于CPU核数，不和并行流等共用ForkJoinPool.commonPool()
+   */
+  private static final class DefaultResultMappingPool {
+    static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("mybatis-result-mapping-" + thread.getPoolIndex());
+      return thread;
+    }, null, false);
+  }
+
+  /**
+   * 默认的异步查询线程池，第一次使用时才创建。每个执行中的查询占用一个连接，所以线程数固定为CPU核数，
+   * 多出的查询排队等待，空闲的线程60秒后回收
+   */
+  private static final class DefaultAsyncQueryPool {
+    static final ExecutorService INSTANCE = newPool();
+
+    private static ExecutorService newPool() {
+      final int threads = Runtime.getRuntime().availableProcessors();
+      final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-async-query");
+            thread.setDaemon(true);
+            return thread;
+          });
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    }
+  }
+
   protected static class StrictMap<V> extends HashMap<String, V> {
 
     private static final long serialVersionUID = -4950446264854982944L;
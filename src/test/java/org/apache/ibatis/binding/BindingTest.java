@@ -21,6 +21,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -33,6 +34,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import javassist.util.proxy.Proxy;
 
@@ -211,6 +214,52 @@ public class BindingTest {
     }
   }
   
+  @Test
+  public void shouldExecuteBoundSelectsReturningFutures() throws Exception {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      BoundBlogMapper mapper = session.getMapper(BoundBlogMapper.class);
+      List<Blog> blogs = mapper.selectBlogsAsync().get();
+      assertEquals(2, blogs.size());
+      assertEquals(1, blogs.get(0).getId());
+      Blog blog = mapper.selectBlogAsync(2).get();
+      assertEquals(2, blog.getId());
+    }
+  }
+
+  @Test
+  public void shouldCompleteFuturesAfterTheCallingSessionIsClosed() throws Exception {
+    CompletableFuture<List<Blog>> blogs;
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      blogs = session.getMapper(BoundBlogMapper.class).selectBlogsAsync();
+    }
+    assertEquals(2, blogs.get().size());
+  }
+
+  @Test
+  public void shouldCompleteFuturesExceptionallyWhenTheStatementFails() throws Exception {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      CompletableFuture<List<Blog>> blogs = session.getMapper(BoundBlogMapper.class).selectBlogsFromMissingTableAsync();
+      try {
+        blogs.get();
+        Assert.fail();
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof PersistenceException);
+      }
+      assertTrue(blogs.isCompletedExceptionally());
+    }
+  }
+
+  @Test
+  public void shouldPassRowsToResultHandlerOfFutureReturningVoid() throws Exception {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = new ArrayList<>();
+      CompletableFuture<Void> done = session.getMapper(BoundBlogMapper.class).collectBlogsAsync(context -> blogs.add(context.getResultObject()));
+      assertNull(done.get());
+      assertEquals(2, blogs.size());
+      assertEquals(1, blogs.get(0).getId());
+    }
+  }
+
   @Test
   public void shouldExecuteBoundSelectMapOfBlogsById() {
     try (SqlSession session = sqlSessionFactory.openSession()) {
@@ -27,6 +27,7 @@ import org.apache.ibatis.session.RowBounds;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @CacheNamespace(readWrite = false)
 public interface BoundBlogMapper {
@@ -75,6 +76,29 @@ public interface BoundBlogMapper {
 
   //======================================================
 
+  @Select({
+          "SELECT *",
+          "FROM blog",
+          "ORDER BY id"
+  })
+  CompletableFuture<List<Blog>> selectBlogsAsync();
+
+  @Select("SELECT * FROM blog WHERE id = #{id}")
+  CompletableFuture<Blog> selectBlogAsync(int id);
+
+  @Select("SELECT * FROM missing_blog")
+  CompletableFuture<List<Blog>> selectBlogsFromMissingTableAsync();
+
+  @Select({
+          "SELECT *",
+          "FROM blog",
+          "ORDER BY id"
+  })
+  @ResultType(Blog.class)
+  CompletableFuture<Void> collectBlogsAsync(ResultHandler<Blog> resultHandler);
+
+  //======================================================
+
   List<Blog> selectBlogsFromXML();
 
   //======================================================
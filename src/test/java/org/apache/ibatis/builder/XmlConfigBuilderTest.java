@@ -48,6 +48,7 @@ import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.LocalCacheEviction;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.apache.ibatis.type.BaseTypeHandler;
@@ -91,9 +92,18 @@ public class XmlConfigBuilderTest {
       assertThat(config.isMapUnderscoreToCamelCase()).isFalse();
       assertThat(config.isSafeRowBoundsEnabled()).isFalse();
       assertThat(config.getLocalCacheScope()).isEqualTo(LocalCacheScope.SESSION);
+      assertThat(config.getLocalCacheSize()).isEqualTo(0);
+      assertThat(config.getLocalCacheMaxRows()).isEqualTo(0);
+      assertThat(config.getLocalCacheEviction()).isEqualTo(LocalCacheEviction.LRU);
       assertThat(config.getJdbcTypeForNull()).isEqualTo(JdbcType.OTHER);
       assertThat(config.getLazyLoadTriggerMethods()).isEqualTo((Set<String>) new HashSet<String>(Arrays.asList("equals", "clone", "hashCode", "toString")));
       assertThat(config.isSafeResultHandlerEnabled()).isTrue();
+      assertThat(config.isCompiledRowMappingEnabled()).isFalse();
+      assertThat(config.isCompactMapResultsEnabled()).isFalse();
+      assertThat(config.getParallelResultMappingBatchSize()).isEqualTo(256);
+      assertThat(config.getCursorPrefetchSize()).isEqualTo(0);
+      assertThat(config.getParsedSqlCacheSize()).isEqualTo(64);
+      assertThat(config.getSubstitutionFilter()).isNull();
       assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(XMLLanguageDriver.class);
       assertThat(config.isCallSettersOnNulls()).isFalse();
       assertNull(config.getLogPrefix());
@@ -184,9 +194,18 @@ public class XmlConfigBuilderTest {
         assertThat(config.isMapUnderscoreToCamelCase()).isTrue();
         assertThat(config.isSafeRowBoundsEnabled()).isTrue();
         assertThat(config.getLocalCacheScope()).isEqualTo(LocalCacheScope.STATEMENT);
+        assertThat(config.getLocalCacheSize()).isEqualTo(64);
+        assertThat(config.getLocalCacheMaxRows()).isEqualTo(10000);
+        assertThat(config.getLocalCacheEviction()).isEqualTo(LocalCacheEviction.FIFO);
         assertThat(config.getJdbcTypeForNull()).isEqualTo(JdbcType.NULL);
         assertThat(config.getLazyLoadTriggerMethods()).isEqualTo((Set<String>) new HashSet<String>(Arrays.asList("equals", "clone", "hashCode", "toString", "xxx")));
         assertThat(config.isSafeResultHandlerEnabled()).isFalse();
+        assertThat(config.isCompiledRowMappingEnabled()).isTrue();
+        assertThat(config.isCompactMapResultsEnabled()).isTrue();
+        assertThat(config.getParallelResultMappingBatchSize()).isEqualTo(512);
+        assertThat(config.getCursorPrefetchSize()).isEqualTo(64);
+        assertThat(config.getParsedSqlCacheSize()).isEqualTo(16);
+        assertThat(config.getSubstitutionFilter().pattern()).isEqualTo("[\\w.]+");
         assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(RawLanguageDriver.class);
         assertThat(config.isCallSettersOnNulls()).isTrue();
         assertThat(config.getLogPrefix()).isEqualTo("mybatis_");
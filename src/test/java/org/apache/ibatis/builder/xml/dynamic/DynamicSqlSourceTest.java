@@ -25,10 +25,12 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.scripting.ScriptingException;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
@@ -36,11 +38,13 @@ import org.apache.ibatis.scripting.xmltags.IfSqlNode;
 import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
 import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.type.JdbcType;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -364,6 +368,196 @@ public class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals("__frch_u_0", boundSql.getParameterMappings().get(3).getProperty());
   }
 
+  @Test
+  public void shouldBindPrecompiledParametersInOrder() throws Exception {
+    final Configuration configuration = new Configuration();
+    final Map<String, Object> param = new HashMap<String, Object>();
+    param.put("name", "Bob");
+    param.put("ids", Arrays.asList(1, 2L));
+    param.put("column", "TITLE");
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new StaticTextSqlNode(configuration, "SELECT * FROM BLOG"),
+        new WhereSqlNode(configuration, mixedContents(
+            new StaticTextSqlNode(configuration, "AND NAME = #{name,jdbcType=VARCHAR}"),
+            new ForEachSqlNode(configuration, mixedContents(new StaticTextSqlNode(configuration, "#{id}")),
+                "ids", null, "id", " AND ID IN (", ")", ","),
+            new TextSqlNode(" AND ${column} = #{name}")))));
+    for (int i = 0; i < 2; i++) {
+      BoundSql boundSql = source.getBoundSql(param);
+      assertEquals("SELECT * FROM BLOG WHERE  NAME = ? AND ID IN (?,?) AND TITLE = ?", boundSql.getSql());
+      assertEquals(4, boundSql.getParameterMappings().size());
+      assertEquals("name", boundSql.getParameterMappings().get(0).getProperty());
+      assertEquals(JdbcType.VARCHAR, boundSql.getParameterMappings().get(0).getJdbcType());
+      assertEquals("__frch_id_0", boundSql.getParameterMappings().get(1).getProperty());
+      assertEquals(Integer.class, boundSql.getParameterMappings().get(1).getJavaType());
+      assertEquals("__frch_id_1", boundSql.getParameterMappings().get(2).getProperty());
+      assertEquals(Long.class, boundSql.getParameterMappings().get(2).getJavaType());
+      assertEquals("name", boundSql.getParameterMappings().get(3).getProperty());
+    }
+  }
+
+  @Test
+  public void shouldCacheParsedSqlOfGeneratedText() throws Exception {
+    final Configuration configuration = new Configuration();
+    configuration.setParsedSqlCacheSize(1);
+    final Map<String, Object> param = new HashMap<String, Object>();
+    param.put("name", "Bob");
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new StaticTextSqlNode(configuration, "SELECT * FROM BLOG WHERE ID = #{id}"),
+        new TextSqlNode(" AND ${column} = #{name}")));
+    for (String column : Arrays.asList("TITLE", "TITLE", "NAME", "NAME", "TITLE")) {
+      param.put("column", column);
+      BoundSql boundSql = source.getBoundSql(param);
+      assertEquals("SELECT * FROM BLOG WHERE ID = ?  AND " + column + " = ?", boundSql.getSql());
+      assertEquals(2, boundSql.getParameterMappings().size());
+      assertEquals("name", boundSql.getParameterMappings().get(1).getProperty());
+    }
+    assertEquals(1, source.getParsedSqlCache().getSize());
+    assertEquals(2, source.getParsedSqlCache().getHits());
+    assertEquals(3, source.getParsedSqlCache().getMisses());
+  }
+
+  @Test
+  public void shouldNotCacheParsedSqlOfForEachItems() throws Exception {
+    final Configuration configuration = new Configuration();
+    configuration.setParsedSqlCacheSize(2);
+    final Map<String, Object> param = new HashMap<String, Object>();
+    param.put("column", "TITLE");
+    param.put("name", "Bob");
+    param.put("ids", Arrays.asList(1, 2, 3, 4, 5));
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new StaticTextSqlNode(configuration, "SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{id}")),
+            "ids", null, "id", "(", ")", ",", false),
+        new TextSqlNode(" AND ${column} = #{name}")));
+    for (int i = 0; i < 3; i++) {
+      BoundSql boundSql = source.getBoundSql(param);
+      assertEquals("SELECT * FROM BLOG WHERE ID IN (  ? , ? , ? , ? , ? )  AND TITLE = ?", boundSql.getSql());
+      assertEquals(6, boundSql.getParameterMappings().size());
+      assertEquals("name", boundSql.getParameterMappings().get(5).getProperty());
+    }
+    assertEquals(1, source.getParsedSqlCache().getSize());
+    assertEquals(2, source.getParsedSqlCache().getHits());
+    assertEquals(1, source.getParsedSqlCache().getMisses());
+  }
+
+  @Test
+  public void shouldNotCacheParsedSqlOfForEachItemsInsideWhere() throws Exception {
+    final Configuration configuration = new Configuration();
+    configuration.setParsedSqlCacheSize(2);
+    final Map<String, Object> param = new HashMap<String, Object>();
+    param.put("column", "TITLE");
+    param.put("name", "Bob");
+    param.put("ids", Arrays.asList(1, 2, 3));
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new StaticTextSqlNode(configuration, "SELECT * FROM BLOG"),
+        new WhereSqlNode(configuration, mixedContents(
+            new StaticTextSqlNode(configuration, "ID IN"),
+            new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{id}")),
+                "ids", null, "id", "(", ")", ",", false),
+            new TextSqlNode(" AND ${column} = #{name}")))));
+    for (int i = 0; i < 3; i++) {
+      BoundSql boundSql = source.getBoundSql(param);
+      assertEquals("SELECT * FROM BLOG WHERE ID IN(?,?,?) AND TITLE = ?", boundSql.getSql());
+      assertEquals(4, boundSql.getParameterMappings().size());
+      assertEquals("name", boundSql.getParameterMappings().get(3).getProperty());
+    }
+    assertEquals(1, source.getParsedSqlCache().getSize());
+    assertEquals(2, source.getParsedSqlCache().getHits());
+    assertEquals(1, source.getParsedSqlCache().getMisses());
+  }
+
+  @Test
+  public void shouldEvictParsedSqlThatWasNotHitAgain() throws Exception {
+    final Configuration configuration = new Configuration();
+    configuration.setParsedSqlCacheSize(2);
+    final Map<String, Object> param = new HashMap<String, Object>();
+    param.put("name", "Bob");
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new StaticTextSqlNode(configuration, "SELECT * FROM BLOG WHERE ID = #{id}"),
+        new TextSqlNode(" AND ${column} = #{name}")));
+    // TITLE is hit again before the cache is full, so AUTHOR is dropped for NAME
+    for (String column : Arrays.asList("TITLE", "AUTHOR", "TITLE", "NAME", "TITLE", "NAME", "AUTHOR")) {
+      param.put("column", column);
+      assertEquals("SELECT * FROM BLOG WHERE ID = ?  AND " + column + " = ?", source.getBoundSql(param).getSql());
+    }
+    assertEquals(2, source.getParsedSqlCache().getSize());
+    assertEquals(3, source.getParsedSqlCache().getHits());
+    assertEquals(4, source.getParsedSqlCache().getMisses());
+  }
+
+  @Test
+  public void shouldPadInListToPowerOfTwo() throws Exception {
+    final Configuration configuration = new Configuration();
+    final Map<String, Object> param = new HashMap<String, Object>();
+    param.put("ids", Arrays.asList(1, 2, 3, 4, 5));
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new StaticTextSqlNode(configuration, "SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new StaticTextSqlNode(configuration, "#{id}")),
+            "ids", null, "id", "(", ")", ",", true)));
+    BoundSql boundSql = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE ID IN (  ? , ? , ? , ? , ? , ? , ? , ? )", boundSql.getSql());
+    assertEquals(8, boundSql.getParameterMappings().size());
+    for (int i = 0; i < 8; i++) {
+      String property = boundSql.getParameterMappings().get(i).getProperty();
+      assertEquals(Math.min(i + 1, 5), boundSql.getAdditionalParameter(property));
+    }
+  }
+
+  @Test
+  public void shouldSubstituteValuesMatchingFilter() throws Exception {
+    final Configuration configuration = new Configuration();
+    final Map<String, Object> param = new HashMap<String, Object>();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM ${table} ORDER BY ${column}", Pattern.compile("[\\w.]+"))));
+    for (String column : Arrays.asList("NAME", "b.TITLE", "NAME")) {
+      param.put("table", "BLOG");
+      param.put("column", column);
+      assertEquals("SELECT * FROM BLOG ORDER BY " + column, source.getBoundSql(param).getSql());
+    }
+    // a rejected value is never remembered as accepted, so it is rejected again
+    param.put("column", "NAME; DROP TABLE BLOG");
+    for (int i = 0; i < 2; i++) {
+      try {
+        source.getBoundSql(param);
+        Assert.fail();
+      } catch (ScriptingException e) {
+        // expected
+      }
+    }
+    param.put("column", "NAME");
+    assertEquals("SELECT * FROM BLOG ORDER BY NAME", source.getBoundSql(param).getSql());
+
+    // escaped and unclosed tokens are kept as text
+    source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT '\\${table}' FROM ${table} ORDER BY ${column", Pattern.compile("[\\w.]+"))));
+    assertEquals("SELECT '${table}' FROM BLOG ORDER BY ${column", source.getBoundSql(param).getSql());
+    param.put("table", "BLOG; DROP TABLE BLOG");
+    for (int i = 0; i < 2; i++) {
+      try {
+        source.getBoundSql(param);
+        Assert.fail();
+      } catch (ScriptingException e) {
+        // expected
+      }
+    }
+
+    // text containing the marker is not split but still filtered
+    param.put("table", "BLOG");
+    source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT '\u0000' FROM ${table} ORDER BY ${column}", Pattern.compile("[\\w.]+"))));
+    assertEquals("SELECT '\u0000' FROM BLOG ORDER BY NAME", source.getBoundSql(param).getSql());
+    param.put("column", "NAME; DROP TABLE BLOG");
+    for (int i = 0; i < 2; i++) {
+      try {
+        source.getBoundSql(param);
+        Assert.fail();
+      } catch (ScriptingException e) {
+        // expected
+      }
+    }
+  }
+
   private DynamicSqlSource createDynamicSqlSource(SqlNode... contents) throws IOException, SQLException {
     createBlogDataSource();
     final String resource = "org/apache/ibatis/builder/MapperConfig.xml";
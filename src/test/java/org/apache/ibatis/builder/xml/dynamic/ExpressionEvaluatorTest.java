@@ -17,11 +17,15 @@ package org.apache.ibatis.builder.xml.dynamic;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
 import org.apache.ibatis.scripting.xmltags.ExpressionEvaluator;
+import org.apache.ibatis.session.Configuration;
 import org.junit.Test;
 
 public class ExpressionEvaluatorTest {
@@ -85,5 +89,27 @@ public class ExpressionEvaluatorTest {
     }
   }
 
+  @Test
+  public void shouldEvaluateCommonMapperExpressions() {
+    final Map<String, Object> parameterObject = new HashMap<String, Object>();
+    parameterObject.put("title", "");
+    parameterObject.put("ids", Arrays.asList(1, 2, 3));
+    parameterObject.put("author", new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS));
+    final Map<String, Object> bindings = new DynamicContext(new Configuration(), parameterObject).getBindings();
+    assertFalse(evaluator.evaluateBoolean("title != null and title != ''", bindings));
+    assertTrue(evaluator.evaluateBoolean("ids != null && ids.size() > 2", bindings));
+    assertTrue(evaluator.evaluateBoolean("!ids.isEmpty() and (missing == null or missing.id gt 1)", bindings));
+    assertTrue(evaluator.evaluateBoolean("author.id == 1 and author.username.length() == 6", bindings));
+    assertFalse(evaluator.evaluateBoolean("author.password != null", bindings));
+    assertTrue(evaluator.evaluateBoolean("_parameter.title == \"\"", bindings));
+  }
+
+  @Test
+  public void shouldFallBackToOgnlForOtherExpressions() {
+    final Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+    assertTrue(evaluator.evaluateBoolean("id + 1 == 2", author));
+    assertTrue(evaluator.evaluateBoolean("username.startsWith('cb')", author));
+    assertTrue(evaluator.evaluateBoolean("favouriteSection == @org.apache.ibatis.domain.blog.Section@NEWS", author));
+  }
 
 }
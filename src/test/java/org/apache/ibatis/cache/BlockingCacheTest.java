@@ -0,0 +1,123 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Test;
+
+public class BlockingCacheTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldWaitForTheValueLoadedByAnotherThread() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject(1));
+    Future<Object> waiter = executor.submit(() -> cache.getObject(1));
+    awaitCoalesced(cache, 1);
+    assertFalse(waiter.isDone());
+    cache.putObject(1, "value");
+    assertEquals("value", waiter.get(1, TimeUnit.SECONDS));
+    assertEquals(0, cache.getLoadingCount());
+  }
+
+  @Test
+  public void shouldLoadAfterRollbackOfAnotherThread() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject(1));
+    Future<Object> waiter = executor.submit(() -> {
+      Object value = cache.getObject(1);
+      cache.removeObject(1);
+      return value;
+    });
+    awaitCoalesced(cache, 1);
+    cache.removeObject(1);
+    assertNull(waiter.get(1, TimeUnit.SECONDS));
+    assertEquals(0, cache.getLoadingCount());
+  }
+
+  @Test
+  public void shouldStopWaitingAfterTimeout() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setTimeout(50);
+    assertNull(cache.getObject(1));
+    assertNull(executor.submit(() -> cache.getObject(1)).get(1, TimeUnit.SECONDS));
+    assertEquals(1, cache.getTimedOutCount());
+    assertEquals(1, cache.getLoadingCount());
+  }
+
+  @Test
+  public void shouldKeepOtherThreadsWaitingWhenOneTimesOut() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setTimeout(500);
+    assertNull(cache.getObject(1));
+    Future<Object> first = executor.submit(() -> cache.getObject(1));
+    awaitCoalesced(cache, 1);
+    Thread.sleep(250);
+    Future<Object> second = executor.submit(() -> cache.getObject(1));
+    awaitCoalesced(cache, 2);
+    assertNull(first.get(1, TimeUnit.SECONDS));
+    assertEquals(1, cache.getTimedOutCount());
+    assertFalse(second.isDone());
+    assertEquals(1, cache.getLoadingCount());
+    cache.putObject(1, "value");
+    assertEquals("value", second.get(1, TimeUnit.SECONDS));
+    assertEquals(0, cache.getLoadingCount());
+  }
+
+  @Test
+  public void shouldNotWaitForItsOwnLoad() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(executor.submit(() -> {
+      assertNull(cache.getObject(1));
+      return cache.getObject(1);
+    }).get(1, TimeUnit.SECONDS));
+    assertEquals(0, cache.getCoalescedCount());
+    assertEquals(1, cache.getLoadingCount());
+  }
+
+  @Test
+  public void shouldNotTrackHits() {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject(1));
+    cache.putObject(1, "value");
+    assertEquals("value", cache.getObject(1));
+    assertEquals(0, cache.getLoadingCount());
+    assertEquals(0, cache.getCoalescedCount());
+  }
+
+  private void awaitCoalesced(BlockingCache cache, long count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 1000;
+    while (cache.getCoalescedCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(count, cache.getCoalescedCount());
+  }
+
+}
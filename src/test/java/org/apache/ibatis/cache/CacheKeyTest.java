@@ -104,6 +104,69 @@ public class CacheKeyTest {
     Assert.assertEquals(cacheKey, serialize(cacheKey));
   }
 
+  @Test
+  public void shouldGrowBeyondExpectedUpdateCount() {
+    CacheKey key1 = new CacheKey(1);
+    CacheKey key2 = new CacheKey();
+    for (int i = 0; i < 20; i++) {
+      key1.update(i);
+      key2.update(i);
+    }
+    assertEquals(20, key1.getUpdateCount());
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+  }
+
+  @Test
+  public void shouldKeepHashCodeAndStringOfInternedStrings() {
+    String sql = "select * from author where id = ?";
+    CacheKey key1 = new CacheKey(new Object[] { 1, sql });
+    CacheKey key2 = new CacheKey(new Object[] { 1, CacheKey.intern(sql) });
+    CacheKey key3 = new CacheKey(new Object[] { 1, CacheKey.intern(new String(sql)) });
+    assertSame(CacheKey.intern(sql), CacheKey.intern(new String(sql)));
+    assertEquals(key2, key3);
+    assertNotEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+  }
+
+  @Test
+  public void shouldKeepInterningWhenManyStringsWereInterned() {
+    String used = "select * from author where id = ?";
+    Object usedInstance = CacheKey.intern(used);
+    for (int i = 0; i < 10000; i++) {
+      assertEquals("select " + i, CacheKey.intern("select " + i).toString());
+      assertSame(usedInstance, CacheKey.intern(used));
+    }
+    String sql = "select * from author where username = ?";
+    assertSame(CacheKey.intern(sql), CacheKey.intern(new String(sql)));
+  }
+
+  @Test
+  public void shouldNotMatchKeysOfDroppedInternedStrings() {
+    Object first = CacheKey.intern("select 0");
+    for (int i = 1; i < 10000; i++) {
+      CacheKey.intern("select " + i);
+    }
+    Object second = CacheKey.intern("select 0");
+    assertNotSame(first, second);
+    assertNotEquals(first, second);
+    assertEquals(first.hashCode(), second.hashCode());
+  }
+
+  @Test
+  public void shouldSerializeInternedStrings() throws Exception {
+    CacheKey cacheKey = new CacheKey();
+    cacheKey.update(CacheKey.intern("select 1"));
+    cacheKey.update(10);
+    CacheKey copy = serialize(cacheKey);
+    Assert.assertEquals(cacheKey, copy);
+    Assert.assertEquals(cacheKey.hashCode(), copy.hashCode());
+    Assert.assertEquals(new CacheKey(new Object[] { "select 1", 10 }).toString(), copy.toString());
+    copy.update(20);
+    Assert.assertEquals(3, copy.getUpdateCount());
+  }
+
   private static <T> T serialize(T object) throws Exception {
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
       new ObjectOutputStream(baos).writeObject(object);
@@ -35,6 +35,34 @@ public class FifoCacheTest {
     assertEquals(5, cache.getSize());
   }
 
+  @Test
+  public void shouldKeepRemovingOldestItemsAfterWrappingAround() {
+    FifoCache cache = new FifoCache(new PerpetualCache("default"));
+    cache.setSize(3);
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(3, cache.getSize());
+    assertNull(cache.getObject(6));
+    assertEquals(7, cache.getObject(7));
+    assertEquals(9, cache.getObject(9));
+  }
+
+  @Test
+  public void shouldRemoveOldestItemsWhenShrunk() {
+    FifoCache cache = new FifoCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.setSize(2);
+    assertEquals(2, cache.getSize());
+    assertNull(cache.getObject(2));
+    assertEquals(3, cache.getObject(3));
+    cache.putObject(5, 5);
+    assertNull(cache.getObject(3));
+    assertEquals(4, cache.getObject(4));
+  }
+
   @Test
   public void shouldRemoveItemOnDemand() {
     FifoCache cache = new FifoCache(new PerpetualCache("default"));
@@ -0,0 +1,123 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.OffHeapCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class OffHeapCacheTest {
+
+  @Test
+  public void shouldReturnCopiesOfStoredObjects() {
+    OffHeapCache cache = new OffHeapCache(new PerpetualCache("default"));
+    List<String> value = new ArrayList<>();
+    value.add("a");
+    cache.putObject(1, value);
+    assertEquals(value, cache.getObject(1));
+    assertNotSame(value, cache.getObject(1));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldStoreSerializedValuesAsIs() {
+    Cache cache = new SerializedCache(new OffHeapCache(new PerpetualCache("default")));
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals("value" + i, cache.getObject(i));
+    }
+  }
+
+  @Test
+  public void shouldEvictOldestRegionWhenFull() {
+    OffHeapCache cache = new OffHeapCache(new PerpetualCache("default"));
+    cache.setCapacity(4 * 64 * 1024);
+    byte[] value = new byte[1024];
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, value);
+    }
+    assertTrue(cache.getSize() < 256);
+    assertTrue(cache.getSize() > 128);
+    assertNull(cache.getObject(0));
+    assertArrayEquals(value, (byte[]) cache.getObject(999));
+  }
+
+  @Test
+  public void shouldLimitNumberOfEntries() {
+    OffHeapCache cache = new OffHeapCache(new PerpetualCache("default"));
+    cache.setSize(5);
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5, cache.getSize());
+    assertNull(cache.getObject(4));
+    assertEquals(5, cache.getObject(5));
+  }
+
+  @Test
+  public void shouldNotCacheValuesLargerThanARegion() {
+    OffHeapCache cache = new OffHeapCache(new PerpetualCache("default"));
+    cache.setCapacity(2 * 64 * 1024);
+    cache.putObject(1, new byte[10]);
+    cache.putObject(1, new byte[128 * 1024]);
+    assertNull(cache.getObject(1));
+    assertEquals(1, cache.getOversizedCount());
+  }
+
+  @Test
+  public void shouldHonourCapacitiesSmallerThanTwoDefaultRegions() {
+    OffHeapCache cache = new OffHeapCache(new PerpetualCache("default"));
+    cache.setCapacity(8 * 1024);
+    cache.putObject(1, new byte[4 * 1024]);
+    cache.putObject(2, new byte[4 * 1024 + 1]);
+    assertNotNull(cache.getObject(1));
+    assertNull(cache.getObject(2));
+    assertEquals(1, cache.getOversizedCount());
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, new byte[1024]);
+    }
+    assertTrue(cache.getSize() <= 8);
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    OffHeapCache cache = new OffHeapCache(new PerpetualCache("default"));
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    OffHeapCache cache = new OffHeapCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+}
@@ -54,6 +54,19 @@ public class PerpetualCacheTest {
     assertNull(cache.getObject(0));
   }
 
+  @Test
+  public void shouldStoreNullKeysAndValues() {
+    Cache cache = new PerpetualCache("default");
+    cache.putObject(null, 0);
+    cache.putObject(1, null);
+    assertEquals(2, cache.getSize());
+    assertEquals(0, cache.getObject(null));
+    assertNull(cache.getObject(1));
+    assertNull(cache.removeObject(1));
+    assertEquals(0, cache.removeObject(null));
+    assertEquals(0, cache.getSize());
+  }
+
   @Test
   public void shouldFlushAllItemsOnDemand() {
     Cache cache = new PerpetualCache("default");
@@ -0,0 +1,191 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CompactSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.domain.blog.Section;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class SerializedCacheTest {
+
+  @Test
+  public void shouldReturnCopiesWithJavaSerialization() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"));
+    Author author = new Author(1, "jim", "****", "jim@ibatis.apache.org", "", Section.NEWS);
+    cache.putObject(1, author);
+    Author copy = (Author) cache.getObject(1);
+    assertNotSame(author, copy);
+    assertEquals(author, copy);
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectNonSerializableObjectsWithJavaSerialization() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"));
+    cache.putObject(1, new Blog());
+  }
+
+  @Test
+  public void shouldCopyBeansAndKeepCycles() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), new CompactSerializer());
+    Author author = new Author(101, "jim", "****", "jim@ibatis.apache.org", "", Section.NEWS);
+    Topic topic = new Topic();
+    topic.title = "Topic";
+    topic.author = author;
+    for (int i = 0; i < 3; i++) {
+      Reply reply = new Reply();
+      reply.id = i;
+      reply.topic = topic;
+      reply.author = author;
+      reply.createdOn = new Date(1000L * i);
+      topic.replies.add(reply);
+    }
+    List<Topic> topics = new ArrayList<>();
+    topics.add(topic);
+    topics.add(topic);
+    cache.putObject(1, topics);
+
+    List<?> result = (List<?>) cache.getObject(1);
+    Topic copy = (Topic) result.get(0);
+    assertNotSame(topic, copy);
+    assertSame(copy, result.get(1));
+    assertEquals("Topic", copy.title);
+    assertEquals(author, copy.author);
+    assertEquals(3, copy.replies.size());
+    for (int i = 0; i < 3; i++) {
+      Reply reply = copy.replies.get(i);
+      assertEquals(i, reply.id);
+      assertSame(copy, reply.topic);
+      assertSame(copy.author, reply.author);
+      assertEquals(new Date(1000L * i), reply.createdOn);
+    }
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectNonSerializableObjectsWithCompactSerialization() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), new CompactSerializer());
+    cache.putObject(1, new Blog());
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectNonSerializableFieldsWithCompactSerialization() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), new CompactSerializer());
+    Post post = new Post();
+    post.setBlog(new Blog());
+    Reply reply = new Reply();
+    reply.post = post;
+    cache.putObject(1, reply);
+  }
+
+  @Test
+  public void shouldCopyCommonValueTypes() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), new CompactSerializer());
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("int", -42);
+    row.put("long", Long.MIN_VALUE);
+    row.put("double", 3.5d);
+    row.put("boolean", true);
+    row.put("char", 'é');
+    row.put("string", "café 中文");
+    row.put("decimal", new BigDecimal("-12345678901234567890.123"));
+    row.put("date", LocalDate.of(2018, 2, 28));
+    row.put("dateTime", LocalDateTime.of(2018, 2, 28, 13, 45, 10, 123456789));
+    row.put("offset", OffsetDateTime.of(2018, 2, 28, 13, 45, 0, 0, ZoneOffset.ofHours(9)));
+    row.put("zoned", ZonedDateTime.of(2018, 2, 28, 13, 45, 0, 0, ZoneId.of("Asia/Tokyo")));
+    row.put("timestamp", java.sql.Timestamp.valueOf("2018-02-28 13:45:10.123456789"));
+    row.put("bytes", new byte[] { 1, -2, 3 });
+    row.put("set", new TreeSet<>(Arrays.asList("b", "a")));
+    row.put("enum", Section.VIDEOS);
+    row.put("array", new String[] { "x", null });
+    row.put("uuid", UUID.randomUUID());
+    row.put("null", null);
+    cache.putObject(1, row);
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> copy = (Map<String, Object>) cache.getObject(1);
+    assertEquals(LinkedHashMap.class, copy.getClass());
+    assertEquals(new ArrayList<>(row.keySet()), new ArrayList<>(copy.keySet()));
+    for (Map.Entry<String, Object> entry : row.entrySet()) {
+      Object expected = entry.getValue();
+      if (expected instanceof byte[]) {
+        assertArrayEquals((byte[]) expected, (byte[]) copy.get(entry.getKey()));
+      } else if (expected instanceof Object[]) {
+        assertArrayEquals((Object[]) expected, (Object[]) copy.get(entry.getKey()));
+      } else {
+        assertEquals(entry.getKey(), expected, copy.get(entry.getKey()));
+      }
+    }
+  }
+
+  @Test
+  public void shouldSelectSerializerByName() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"));
+    cache.setSerializer("compact");
+    Map<String, Object> value = new HashMap<>();
+    value.put("topic", new Topic());
+    cache.putObject(1, value);
+    assertTrue(((Map<?, ?>) cache.getObject(1)).get("topic") instanceof Topic);
+
+    cache.setSerializer(CompactSerializer.class.getName());
+    cache.putObject(1, new Topic());
+    assertTrue(cache.getObject(1) instanceof Topic);
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldFailOnUnknownSerializer() {
+    new SerializedCache(new PerpetualCache("default")).setSerializer("unknown");
+  }
+
+  private static class Topic implements Serializable {
+    private static final long serialVersionUID = 1L;
+    String title;
+    Author author;
+    List<Reply> replies = new ArrayList<>();
+  }
+
+  private static class Reply implements Serializable {
+    private static final long serialVersionUID = 1L;
+    int id;
+    Topic topic;
+    Author author;
+    Date createdOn;
+    Object post;
+  }
+
+}
@@ -0,0 +1,137 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class TinyLfuCacheTest {
+
+  @Test
+  public void shouldNotGrowBeyondSize() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(100, cache.getSize());
+  }
+
+  @Test
+  public void shouldKeepFrequentlyUsedItemsWhenScanning() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(100);
+    for (int i = 0; i < 50; i++) {
+      cache.putObject(i, i);
+    }
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 50; i++) {
+        assertEquals(i, cache.getObject(i));
+      }
+    }
+    for (int i = 1000; i < 2000; i++) {
+      cache.putObject(i, i);
+    }
+    int kept = 0;
+    for (int i = 0; i < 50; i++) {
+      if (cache.getObject(i) != null) {
+        kept++;
+      }
+    }
+    assertTrue("Only " + kept + " frequently used items survived the scan", kept >= 45);
+  }
+
+  @Test
+  public void shouldStoreItemsInDelegate() {
+    PerpetualCache delegate = new PerpetualCache("default");
+    TinyLfuCache cache = new TinyLfuCache(delegate);
+    cache.setSize(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(100, delegate.getSize());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(delegate.getObject(i), cache.getObject(i));
+    }
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    Cache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new TinyLfuCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldStayConsistentUnderConcurrentAccess() throws Exception {
+    final TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(256);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (int t = 0; t < 8; t++) {
+        final int offset = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 20000; i++) {
+            Integer key = (i * 31 + offset) % 1000;
+            if (cache.getObject(key) == null) {
+              cache.putObject(key, key);
+            }
+            if (i % 500 == 0) {
+              cache.removeObject(key);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(cache.getSize() <= 256);
+    for (int i = 0; i < 1000; i++) {
+      Object value = cache.getObject(i);
+      assertTrue(value == null || value.equals(i));
+    }
+  }
+
+}
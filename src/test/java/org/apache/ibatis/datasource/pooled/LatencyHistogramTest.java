@@ -0,0 +1,59 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void shouldKeepSmallValuesExact() {
+    for (long value = 0; value < 32; value++) {
+      assertEquals(value, LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value)));
+    }
+  }
+
+  @Test
+  public void shouldReportLargeValuesWithinBucketPrecision() {
+    for (long value : new long[] { 32, 63, 64, 100, 1000, 12345, 987654321L, Long.MAX_VALUE }) {
+      int index = LatencyHistogram.indexOf(value);
+      long highest = LatencyHistogram.highestValueOf(index);
+      assertTrue(highest >= value);
+      assertTrue(LatencyHistogram.highestValueOf(index - 1) < value);
+      assertTrue(highest - value <= value / 32);
+    }
+  }
+
+  @Test
+  public void shouldComputePercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+    long[] snapshot = histogram.snapshot();
+    assertEquals(503, LatencyHistogram.valueAtPercentile(snapshot, 50));
+    assertEquals(991, LatencyHistogram.valueAtPercentile(snapshot, 99));
+    assertEquals(1007, LatencyHistogram.valueAtPercentile(snapshot, 99.9));
+  }
+
+  @Test
+  public void shouldReturnZeroWhenNothingWasRecorded() {
+    assertEquals(0, LatencyHistogram.valueAtPercentile(new LatencyHistogram().snapshot(), 99));
+  }
+
+}
@@ -17,7 +17,9 @@ package org.apache.ibatis.executor;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
@@ -35,6 +37,7 @@ import org.apache.ibatis.domain.blog.Post;
 import org.apache.ibatis.domain.blog.Section;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheEviction;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
@@ -461,6 +464,81 @@ public class BaseExecutorTest extends BaseDataTest {
     }
   }
 
+  @Test
+  public void shouldEvictFirstCachedResultBeyondLocalCacheSize() throws Exception {
+    config.setLocalCacheSize(2);
+    config.setLocalCacheEviction(LocalCacheEviction.FIFO);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      List<Author> jim = executor.query(selectStatement, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      List<Author> sally = executor.query(selectStatement, 102, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertSame(jim, executor.query(selectStatement, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER));
+      executor.query(selectStatement, 103, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertSame(sally, executor.query(selectStatement, 102, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER));
+      assertNotSame(jim, executor.query(selectStatement, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER));
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedResultBeyondLocalCacheSize() throws Exception {
+    config.setLocalCacheSize(2);
+    config.setLocalCacheEviction(LocalCacheEviction.LRU);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      List<Author> jim = executor.query(selectStatement, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      List<Author> sally = executor.query(selectStatement, 102, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertSame(jim, executor.query(selectStatement, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER));
+      executor.query(selectStatement, 103, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertSame(jim, executor.query(selectStatement, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER));
+      assertNotSame(sally, executor.query(selectStatement, 102, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER));
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldEvictCachedResultsBeyondLocalCacheMaxRows() throws Exception {
+    config.setLocalCacheMaxRows(2);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectAll = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+      MappedStatement selectOne = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      List<Author> all = executor.query(selectAll, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals(2, all.size());
+      assertSame(all, executor.query(selectAll, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER));
+      List<Author> jim = executor.query(selectOne, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertSame(jim, executor.query(selectOne, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER));
+      assertNotSame(all, executor.query(selectAll, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER));
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldNotCacheResultsOfStatementsOptingOutOfLocalCache() throws Exception {
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement cached = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      MappedStatement notCached = ExecutorTestHelper.prepareSelectOneAuthorMappedStatementWithoutLocalCache(config);
+      List<Author> first = executor.query(notCached, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      List<Author> second = executor.query(notCached, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertNotSame(first, second);
+      assertEquals(first.get(0).toString(), second.get(0).toString());
+      List<Author> jim = executor.query(cached, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertSame(jim, executor.query(cached, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER));
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
   protected Executor createExecutor(Transaction transaction) {
     return new SimpleExecutor(config,transaction);
   }
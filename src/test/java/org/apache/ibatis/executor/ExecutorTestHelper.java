@@ -155,6 +155,14 @@ public class ExecutorTestHelper {
   }
 
   public static MappedStatement prepareSelectOneAuthorMappedStatement(final Configuration config) {
+    return prepareSelectOneAuthorMappedStatement(config, "selectAuthor", true);
+  }
+
+  public static MappedStatement prepareSelectOneAuthorMappedStatementWithoutLocalCache(final Configuration config) {
+    return prepareSelectOneAuthorMappedStatement(config, "selectAuthorWithoutLocalCache", false);
+  }
+
+  private static MappedStatement prepareSelectOneAuthorMappedStatement(final Configuration config, String id, boolean useLocalCache) {
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
 
     final ResultMap rm = new ResultMap.Builder(config, "defaultResultMap", Author.class, new
@@ -169,7 +177,7 @@ public class ExecutorTestHelper {
           }
         }).build();
 
-    MappedStatement ms = new MappedStatement.Builder(config, "selectAuthor", new StaticSqlSource(config,"SELECT * FROM author WHERE id = ?"), SqlCommandType.SELECT)
+    MappedStatement ms = new MappedStatement.Builder(config, id, new StaticSqlSource(config,"SELECT * FROM author WHERE id = ?"), SqlCommandType.SELECT)
         .parameterMap(new ParameterMap.Builder(config, "defaultParameterMap", Author.class,
             new ArrayList<ParameterMapping>() {
               {
@@ -181,6 +189,7 @@ public class ExecutorTestHelper {
             add(rm);
           }
         })
+        .useLocalCache(useLocalCache)
         .cache(authorCache).build();
     return ms;
   }
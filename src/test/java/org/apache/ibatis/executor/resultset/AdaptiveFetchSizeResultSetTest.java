@@ -0,0 +1,49 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+
+import org.junit.Test;
+
+public class AdaptiveFetchSizeResultSetTest {
+
+  @Test
+  public void shouldAdaptFetchSizeToTheSizeOfTheRowsRead() throws Exception {
+    ResultSet driverResultSet = mock(ResultSet.class);
+    when(driverResultSet.next()).thenReturn(true);
+    when(driverResultSet.getString(1)).thenReturn(new String(new char[5000]));
+    when(driverResultSet.getInt(2)).thenReturn(1);
+    ResultSet rs = AdaptiveFetchSizeResultSet.newInstance(driverResultSet, 10);
+
+    for (int i = 0; i < 10; i++) {
+      rs.next();
+      rs.getString(1);
+      rs.getInt(2);
+    }
+    verify(driverResultSet, never()).setFetchSize(anyInt());
+    rs.next();
+    // 10016 bytes per row, about 1MB per round trip
+    verify(driverResultSet).setFetchSize(104);
+  }
+
+}
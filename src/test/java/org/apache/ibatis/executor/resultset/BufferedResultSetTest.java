@@ -0,0 +1,96 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Collections;
+import java.util.UUID;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+import org.apache.ibatis.type.BlobTypeHandler;
+import org.apache.ibatis.type.ClobTypeHandler;
+import org.junit.Test;
+
+public class BufferedResultSetTest {
+
+  @Test
+  public void shouldConvertBetweenStringsAndBytesWithUtf8() throws Exception {
+    String text = "caf\u00e9 \u65e5\u672c";
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    ResultSet rs = BufferedResultSet.newInstance(
+        Collections.singletonList(new Object[] { text, bytes }), null, null);
+    assertTrue(rs.next());
+    assertArrayEquals(bytes, rs.getBytes(1));
+    assertEquals(text, rs.getString(2));
+    assertFalse(rs.next());
+  }
+
+  @Test
+  public void shouldReadLobsWhenFetchingRows() throws Exception {
+    ResultSet driverResultSet = mock(ResultSet.class);
+    when(driverResultSet.getObject(1)).thenReturn(new SerialBlob(new byte[] { 1, 2 }));
+    when(driverResultSet.getObject(2)).thenReturn(new SerialClob("text".toCharArray()));
+    when(driverResultSet.getObject(3)).thenReturn(7);
+    Object[] row = BufferedResultSet.fetchRow(driverResultSet, 3);
+    assertArrayEquals(new byte[] { 1, 2 }, (byte[]) row[0]);
+    assertEquals("text", row[1]);
+    assertEquals(7, row[2]);
+  }
+
+  @Test
+  public void shouldConvertObjectsToCommonTypesOnly() throws Exception {
+    ResultSet rs = BufferedResultSet.newInstance(
+        Collections.singletonList(new Object[] { 1, "a" }), null, null);
+    assertTrue(rs.next());
+    assertEquals(Double.valueOf(1d), rs.getObject(1, Double.class));
+    assertEquals(Boolean.TRUE, rs.getObject(1, Boolean.class));
+    try {
+      rs.getObject(2, UUID.class);
+      fail();
+    } catch (SQLFeatureNotSupportedException e) {
+      // the rows must be mapped from the driver's result set
+    }
+  }
+
+  @Test
+  public void shouldWrapLobsFetchedAsBytesOrStrings() throws Exception {
+    byte[] bytes = { 1, 2, 3 };
+    ResultSet rs = BufferedResultSet.newInstance(
+        Collections.singletonList(new Object[] { bytes, "text" }), null, null);
+    assertTrue(rs.next());
+    Blob blob = rs.getBlob(1);
+    assertArrayEquals(bytes, blob.getBytes(1, (int) blob.length()));
+    Clob clob = rs.getClob(2);
+    assertEquals("text", clob.getSubString(1, (int) clob.length()));
+    assertArrayEquals(bytes, new BlobTypeHandler().getResult(rs, 1));
+    assertEquals("text", new ClobTypeHandler().getResult(rs, 2));
+  }
+
+}
@@ -0,0 +1,109 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CompactRowMapTest {
+
+  private final CompactRowMap.KeyIndex keyIndex = new CompactRowMap.KeyIndex(new String[] { "id", "name", "note" });
+
+  private CompactRowMap newRow() {
+    CompactRowMap row = new CompactRowMap(keyIndex);
+    row.set(0, 1);
+    row.set(1, "a");
+    return row;
+  }
+
+  @Test
+  public void shouldBehaveAsTheEquivalentHashMap() {
+    CompactRowMap row = newRow();
+    Map<String, Object> expected = new HashMap<>();
+    expected.put("id", 1);
+    expected.put("name", "a");
+    assertEquals(2, row.size());
+    assertEquals("a", row.get("name"));
+    assertNull(row.get("note"));
+    assertFalse(row.containsKey("note"));
+    assertFalse(row.containsKey("other"));
+    assertEquals(expected, row);
+    assertEquals(row, expected);
+    assertEquals(expected.hashCode(), row.hashCode());
+    assertEquals(Arrays.asList("id", "name"), new ArrayList<>(row.keySet()));
+  }
+
+  @Test
+  public void shouldKeepNullValuesThatWereSet() {
+    CompactRowMap row = newRow();
+    row.set(2, null);
+    assertEquals(3, row.size());
+    assertTrue(row.containsKey("note"));
+  }
+
+  @Test
+  public void shouldCopyOnModification() {
+    CompactRowMap row = newRow();
+    CompactRowMap other = newRow();
+    row.put("note", "b");
+    row.remove("id");
+    assertEquals(2, row.size());
+    assertEquals("b", row.get("note"));
+    assertFalse(row.containsKey("id"));
+    assertEquals(2, other.size());
+    assertEquals(1, other.get("id"));
+  }
+
+  @Test
+  public void shouldModifyThroughEntriesAndIterator() {
+    CompactRowMap row = newRow();
+    Iterator<Map.Entry<String, Object>> iterator = row.entrySet().iterator();
+    iterator.next().setValue(2);
+    iterator.next();
+    iterator.remove();
+    assertFalse(iterator.hasNext());
+    assertEquals(1, row.size());
+    assertEquals(2, row.get("id"));
+  }
+
+  @Test
+  public void shouldSerializeAsHashMap() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(newRow());
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Object copy = in.readObject();
+      assertEquals(HashMap.class, copy.getClass());
+      assertEquals(newRow(), copy);
+    }
+  }
+
+}
@@ -15,35 +15,54 @@
  */
 package org.apache.ibatis.executor.resultset;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.result.ColumnarResult;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultFlag;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 import org.junit.Assert;
@@ -101,6 +120,31 @@ public class DefaultResultSetHandlerTest {
     assertEquals(Integer.valueOf(100), ((HashMap) results.get(0)).get("cOlUmN1"));
   }
 
+  @Test
+  public void shouldReuseResultSetLayoutAcrossExecutions() throws Exception {
+    final MappedStatement ms = getMappedStatement();
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(false).thenReturn(true).thenReturn(false);
+    when(rs.getInt("CoLuMn1")).thenReturn(100).thenReturn(200);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false); // for simplicity.
+
+    final List<Object> first = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100)).handleResultSets(stmt);
+    final List<Object> second = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100)).handleResultSets(stmt);
+    assertEquals(Integer.valueOf(100), ((HashMap) first.get(0)).get("cOlUmN1"));
+    assertEquals(Integer.valueOf(200), ((HashMap) second.get(0)).get("cOlUmN1"));
+    assertEquals(1, ms.getResultSetLayoutCache().size());
+    verify(rsmd, times(1)).getColumnClassName(1);
+  }
+
   @Test
   public void shouldThrowExceptionWithColumnName() throws Exception {
     final MappedStatement ms = getMappedStatement();
@@ -129,6 +173,464 @@ public class DefaultResultSetHandlerTest {
     }
   }
 
+  @Test
+  public void shouldMapBeanByColumnIndexWhenCompiledRowMappingIsEnabled() throws Exception {
+    final Configuration config = new Configuration();
+    config.setCompiledRowMappingEnabled(true);
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+        Collections.singletonList(new ResultMap.Builder(config, "testMap", Row.class, Collections.singletonList(
+            new ResultMapping.Builder(config, "id", "ID", registry.getTypeHandler(Integer.class)).build())).build())).build();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+    when(rs.getString(1)).thenReturn("first").thenReturn("second");
+    when(rs.getInt(2)).thenReturn(100).thenReturn(200);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("NAME");
+    when(rsmd.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(String.class.getCanonicalName());
+    when(rsmd.getColumnLabel(2)).thenReturn("ID");
+    when(rsmd.getColumnType(2)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(2)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false); // for simplicity.
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(2, results.size());
+    assertEquals(100, ((Row) results.get(0)).getId());
+    assertEquals("first", ((Row) results.get(0)).getName());
+    assertEquals(200, ((Row) results.get(1)).getId());
+    assertEquals("second", ((Row) results.get(1)).getName());
+  }
+
+  @Test
+  public void shouldMapRowsInParallelPreservingOrder() throws Exception {
+    final Configuration config = new Configuration();
+    config.setParallelResultMappingBatchSize(2);
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+        Collections.singletonList(new ResultMap.Builder(config, "testMap", Row.class, Collections.singletonList(
+            new ResultMapping.Builder(config, "id", "ID", registry.getTypeHandler(Integer.class)).build())).build()))
+        .parallelResultMapping(true).build();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true, true, true, true, true, false);
+    when(rs.getObject(1)).thenReturn("a", "b", "c", "d", "e");
+    when(rs.getObject(2)).thenReturn(1L, 2L, 3L, 4L, null);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("NAME");
+    when(rsmd.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(String.class.getCanonicalName());
+    when(rsmd.getColumnLabel(2)).thenReturn("ID");
+    when(rsmd.getColumnType(2)).thenReturn(Types.BIGINT);
+    when(rsmd.getColumnClassName(2)).thenReturn(Long.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false); // for simplicity.
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(5, results.size());
+    for (int i = 0; i < 4; i++) {
+      assertEquals(i + 1, ((Row) results.get(i)).getId());
+      assertEquals(String.valueOf((char) ('a' + i)), ((Row) results.get(i)).getName());
+    }
+    assertEquals(0, ((Row) results.get(4)).getId());
+    assertEquals("e", ((Row) results.get(4)).getName());
+  }
+
+  @Test
+  public void shouldMapRowsSeriallyWhenTypeHandlerCannotReadBufferedRows() throws Exception {
+    final Configuration config = new Configuration();
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+        Collections.singletonList(new ResultMap.Builder(config, "testMap", Row.class, Arrays.asList(
+            new ResultMapping.Builder(config, "id", "ID", registry.getTypeHandler(Integer.class)).build(),
+            new ResultMapping.Builder(config, "name", "NAME", new UuidAsStringTypeHandler()).build())).build()))
+        .parallelResultMapping(true).build();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+    final UUID[] uuids = { UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID() };
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true, true, true, false);
+    when(rs.getObject(1)).thenReturn(uuids[0].toString());
+    when(rs.getObject(2)).thenReturn(1);
+    when(rs.getObject("NAME", UUID.class)).thenReturn(uuids[0], uuids[1], uuids[2]);
+    when(rs.getInt("ID")).thenReturn(1, 2, 3);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("NAME");
+    when(rsmd.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(String.class.getCanonicalName());
+    when(rsmd.getColumnLabel(2)).thenReturn("ID");
+    when(rsmd.getColumnType(2)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(2)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false); // for simplicity.
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(3, results.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(i + 1, ((Row) results.get(i)).getId());
+      assertEquals(uuids[i].toString(), ((Row) results.get(i)).getName());
+    }
+    // only the first row was buffered, the later executions map serially from the start
+    verify(rs, times(1)).getObject(1);
+    assertFalse(ms.getResultSetLayoutCache().getLayout(rsmd, config).canMapBufferedRows("testMap"));
+  }
+
+  @Test
+  public void shouldFillColumnarResultWithoutMappingRows() throws Exception {
+    final Configuration config = new Configuration();
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+        Collections.singletonList(new ResultMap.Builder(config, "testMap", ColumnarResult.class, new ArrayList<ResultMapping>()).build())).build();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true, true, true, false);
+    when(rs.getString(1)).thenReturn("a", "b", "a");
+    when(rs.getLong(2)).thenReturn(1L, 2L, 0L);
+    when(rs.wasNull()).thenReturn(false, false, false, false, false, true);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("NAME");
+    when(rsmd.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(String.class.getCanonicalName());
+    when(rsmd.getColumnLabel(2)).thenReturn("ID");
+    when(rsmd.getColumnType(2)).thenReturn(Types.BIGINT);
+    when(rsmd.getColumnClassName(2)).thenReturn(Long.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false); // for simplicity.
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(1, results.size());
+    final ColumnarResult result = (ColumnarResult) results.get(0);
+    assertEquals(3, result.getRowCount());
+    assertArrayEquals(new long[] { 1L, 2L, 0L }, result.getLongColumn("id"));
+    assertTrue(result.isNull(2, "ID"));
+    assertNull(result.getObject(2, "ID"));
+    assertArrayEquals(new int[] { 0, 1, 0 }, result.getStringCodes("NAME"));
+    assertArrayEquals(new String[] { "a", "b" }, result.getDictionary("NAME"));
+    assertEquals("b", result.getString(1, "NAME"));
+    verify(rs, never()).getObject(anyInt());
+
+    result.getLongColumn("ID")[0] = 9L;
+    result.getStringCodes("NAME")[0] = 1;
+    assertEquals(1L, result.getLong(0, "ID"));
+    assertEquals("a", result.getString(0, "NAME"));
+  }
+
+  @Test
+  public void shouldReturnCompactMapsSharingTheKeys() throws Exception {
+    final Configuration config = new Configuration();
+    config.setCompactMapResultsEnabled(true);
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+        Collections.singletonList(new ResultMap.Builder(config, "testMap", Map.class, Collections.singletonList(
+            new ResultMapping.Builder(config, "id", "ID", registry.getTypeHandler(Integer.class)).build())).build())).build();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true, true, false);
+    when(rs.getInt(1)).thenReturn(1, 2);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("ID");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false); // for simplicity.
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(2, results.size());
+    assertEquals(CompactRowMap.class, results.get(0).getClass());
+    assertEquals(Collections.singletonMap("id", 1), results.get(0));
+    @SuppressWarnings("unchecked")
+    final Map<String, Object> second = (Map<String, Object>) results.get(1);
+    second.put("name", "b");
+    assertEquals(2, second.get("id"));
+    assertEquals("b", second.get("name"));
+    assertEquals(Collections.singletonMap("id", 1), results.get(0));
+  }
+
+  @Test
+  public void shouldReadColumnsByNameForCustomTypeHandlersOfCompactMaps() throws Exception {
+    final Configuration config = new Configuration();
+    config.setCompactMapResultsEnabled(true);
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+        Collections.singletonList(new ResultMap.Builder(config, "testMap", Map.class, Arrays.asList(
+            new ResultMapping.Builder(config, "id", "ID", registry.getTypeHandler(Integer.class)).build(),
+            new ResultMapping.Builder(config, "name", "NAME", new ByNameOnlyTypeHandler()).build())).build())).build();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rs.getString("NAME")).thenReturn("first");
+    when(rs.getInt(2)).thenReturn(100);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("NAME");
+    when(rsmd.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(String.class.getCanonicalName());
+    when(rsmd.getColumnLabel(2)).thenReturn("ID");
+    when(rsmd.getColumnType(2)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(2)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false); // for simplicity.
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(1, results.size());
+    assertEquals(CompactRowMap.class, results.get(0).getClass());
+    @SuppressWarnings("unchecked")
+    final Map<String, Object> row = (Map<String, Object>) results.get(0);
+    assertEquals(100, row.get("id"));
+    assertEquals("first", row.get("name"));
+  }
+
+  @Test
+  public void shouldReadColumnsByNameForCustomTypeHandlersWhenCompiledRowMappingIsEnabled() throws Exception {
+    final Configuration config = new Configuration();
+    config.setCompiledRowMappingEnabled(true);
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(
+        Collections.singletonList(new ResultMap.Builder(config, "testMap", Row.class, Arrays.asList(
+            new ResultMapping.Builder(config, "id", "ID", registry.getTypeHandler(Integer.class)).build(),
+            new ResultMapping.Builder(config, "name", "NAME", new ByNameOnlyTypeHandler()).build())).build())).build();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rs.getString("NAME")).thenReturn("first");
+    when(rs.getInt(2)).thenReturn(100);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("NAME");
+    when(rsmd.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(String.class.getCanonicalName());
+    when(rsmd.getColumnLabel(2)).thenReturn("ID");
+    when(rsmd.getColumnType(2)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(2)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false); // for simplicity.
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(1, results.size());
+    assertEquals(100, ((Row) results.get(0)).getId());
+    assertEquals("first", ((Row) results.get(0)).getName());
+  }
+
+  @Test
+  public void shouldMergeNestedRowsByCompositeKeyAndColumnPrefix() throws Exception {
+    final MappedStatement ms = getNestedMappedStatement();
+    try (Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:rowkeys", "sa", "");
+         Statement statement = connection.createStatement()) {
+      statement.execute(NESTED_SELECT);
+      final List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100)).handleResultSets(statement);
+      assertEquals(2, results.size());
+      assertParent((Parent) results.get(0), 1, 1, "a", "b");
+      assertParent((Parent) results.get(1), 1, 2, "c");
+    }
+  }
+
+  @Test
+  public void shouldReadRowKeyColumnsByNameForCustomTypeHandlers() throws Exception {
+    final Configuration config = new Configuration();
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final List<ResultFlag> idFlag = Collections.singletonList(ResultFlag.ID);
+    config.addResultMap(new ResultMap.Builder(config, "childMap", Row.class, Arrays.asList(
+        new ResultMapping.Builder(config, "id", "ID", registry.getTypeHandler(Integer.class)).build(),
+        new ResultMapping.Builder(config, "name", "NAME", new ByNameOnlyTypeHandler()).flags(idFlag).build())).build());
+    final ResultMap parentMap = new ResultMap.Builder(config, "parentMap", Parent.class, Arrays.asList(
+        new ResultMapping.Builder(config, "id", "ID", registry.getTypeHandler(Integer.class)).flags(idFlag).build(),
+        new ResultMapping.Builder(config, "children").javaType(List.class).nestedResultMapId("childMap").columnPrefix("C_").build())).build();
+    config.addResultMap(parentMap);
+    final MappedStatement ms = new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT)
+        .resultMaps(Collections.singletonList(parentMap)).build();
+    try (Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:rowkeys", "sa", "");
+         Statement statement = connection.createStatement()) {
+      statement.execute(NESTED_SELECT);
+      final List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100)).handleResultSets(statement);
+      assertEquals(1, results.size());
+      final List<Row> children = ((Parent) results.get(0)).getChildren();
+      assertEquals(3, children.size());
+      assertEquals("a", children.get(0).getName());
+      assertEquals("b", children.get(1).getName());
+      assertEquals("c", children.get(2).getName());
+    }
+  }
+
+  @Test
+  public void shouldReuseRowKeyPlansAcrossExecutions() throws Exception {
+    final MappedStatement ms = getNestedMappedStatement();
+    final Configuration config = ms.getConfiguration();
+    try (Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:rowkeys", "sa", "");
+         Statement statement = connection.createStatement()) {
+      statement.execute(NESTED_SELECT);
+      new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100)).handleResultSets(statement);
+      final ResultSetLayout layout;
+      try (ResultSet resultSet = statement.executeQuery(NESTED_SELECT)) {
+        layout = ms.getResultSetLayoutCache().getLayout(resultSet.getMetaData(), config);
+      }
+      final RowKeyPlan parentPlan = layout.getRowKeyPlan(config.getResultMap("parentMap"), null);
+      final RowKeyPlan childPlan = layout.getRowKeyPlan(config.getResultMap("childMap"), "C_");
+      assertNotNull(parentPlan);
+      assertNotNull(childPlan);
+      assertNull(layout.getRowKeyPlan(config.getResultMap("childMap"), null));
+
+      statement.execute(NESTED_SELECT);
+      final List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100)).handleResultSets(statement);
+      assertEquals(2, results.size());
+      assertParent((Parent) results.get(0), 1, 1, "a", "b");
+      assertParent((Parent) results.get(1), 1, 2, "c");
+      assertEquals(1, ms.getResultSetLayoutCache().size());
+      assertSame(parentPlan, layout.getRowKeyPlan(config.getResultMap("parentMap"), null));
+      assertSame(childPlan, layout.getRowKeyPlan(config.getResultMap("childMap"), "C_"));
+    }
+  }
+
+  private static final String NESTED_SELECT = "SELECT * FROM (VALUES (1, 1, 10, 'a'), (1, 1, 11, 'b'), (1, 2, 10, 'c'), (1, 1, 10, 'a'))"
+      + " AS T(ID, VERSION, C_ID, C_NAME)";
+
+  private void assertParent(Parent parent, int id, int version, String... childNames) {
+    assertEquals(id, parent.getId());
+    assertEquals(version, parent.getVersion());
+    assertEquals(childNames.length, parent.getChildren().size());
+    for (int i = 0; i < childNames.length; i++) {
+      // the children are read from the prefixed columns, not from the ID of the parent
+      assertEquals(10 + i, parent.getChildren().get(i).getId());
+      assertEquals(childNames[i], parent.getChildren().get(i).getName());
+    }
+  }
+
+  MappedStatement getNestedMappedStatement() {
+    final Configuration config = new Configuration();
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final List<ResultFlag> idFlag = Collections.singletonList(ResultFlag.ID);
+    config.addResultMap(new ResultMap.Builder(config, "childMap", Row.class, Arrays.asList(
+        new ResultMapping.Builder(config, "id", "ID", registry.getTypeHandler(Integer.class)).flags(idFlag).build(),
+        new ResultMapping.Builder(config, "name", "NAME", registry.getTypeHandler(String.class)).build())).build());
+    final ResultMap parentMap = new ResultMap.Builder(config, "parentMap", Parent.class, Arrays.asList(
+        new ResultMapping.Builder(config, "id", "ID", registry.getTypeHandler(Integer.class)).flags(idFlag).build(),
+        new ResultMapping.Builder(config, "version", "VERSION", registry.getTypeHandler(Integer.class)).flags(idFlag).build(),
+        new ResultMapping.Builder(config, "children").javaType(List.class).nestedResultMapId("childMap").columnPrefix("C_").build())).build();
+    config.addResultMap(parentMap);
+    return new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT)
+        .resultMaps(Collections.singletonList(parentMap)).build();
+  }
+
+  public static class ByNameOnlyTypeHandler implements TypeHandler<String> {
+    @Override
+    public void setParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getResult(ResultSet rs, String columnName) throws SQLException {
+      return rs.getString(columnName);
+    }
+
+    @Override
+    public String getResult(ResultSet rs, int columnIndex) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getResult(CallableStatement cs, int columnIndex) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  public static class UuidAsStringTypeHandler implements TypeHandler<String> {
+    @Override
+    public void setParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getResult(ResultSet rs, String columnName) throws SQLException {
+      return String.valueOf(rs.getObject(columnName, UUID.class));
+    }
+
+    @Override
+    public String getResult(ResultSet rs, int columnIndex) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getResult(CallableStatement cs, int columnIndex) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  public static class Row {
+    private int id;
+    private String name;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  public static class Parent {
+    private int id;
+    private int version;
+    private List<Row> children;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public int getVersion() {
+      return version;
+    }
+
+    public void setVersion(int version) {
+      this.version = version;
+    }
+
+    public List<Row> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Row> children) {
+      this.children = children;
+    }
+  }
+
   MappedStatement getMappedStatement() {
     final Configuration config = new Configuration();
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
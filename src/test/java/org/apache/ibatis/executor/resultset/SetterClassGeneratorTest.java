@@ -0,0 +1,78 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandlerTest.Row;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.junit.Test;
+
+public class SetterClassGeneratorTest {
+
+  @Test
+  public void shouldGenerateClassesCallingPublicSetters() throws Exception {
+    Reflector reflector = new DefaultReflectorFactory().findForClass(Row.class);
+    Invoker idSetter = SetterClassGenerator.generate(reflector.getSetInvoker("id"));
+    Invoker nameSetter = SetterClassGenerator.generate(reflector.getSetInvoker("name"));
+    assertFalse(idSetter instanceof MethodInvoker);
+    assertFalse(nameSetter instanceof MethodInvoker);
+    assertEquals(int.class, idSetter.getType());
+    assertSame(idSetter, SetterClassGenerator.generate(reflector.getSetInvoker("id")));
+
+    Row row = new Row();
+    idSetter.invoke(row, new Object[] { 7 });
+    nameSetter.invoke(row, new Object[] { "seven" });
+    assertEquals(7, row.getId());
+    assertEquals("seven", row.getName());
+  }
+
+  @Test
+  public void shouldKeepReflectiveInvokersOfSettersThatCannotBeCalledDirectly() {
+    Reflector reflector = new DefaultReflectorFactory().findForClass(PackagePrivateBean.class);
+    Invoker setter = reflector.getSetInvoker("value");
+    assertSame(setter, SetterClassGenerator.generate(setter));
+  }
+
+  @Test
+  public void shouldReadOnlyBuiltInTypeHandlersByIndex() {
+    assertTrue(CompiledRowMapper.readsByIndex(new StringTypeHandler()));
+    assertFalse(CompiledRowMapper.readsByIndex(new IntegerTypeHandler() {
+    }));
+    assertFalse(CompiledRowMapper.readsByIndex(new DefaultResultSetHandlerTest.ByNameOnlyTypeHandler()));
+  }
+
+  static class PackagePrivateBean {
+    private String value;
+
+    public void setValue(String value) {
+      this.value = value;
+    }
+
+    public String getValue() {
+      return value;
+    }
+  }
+
+}
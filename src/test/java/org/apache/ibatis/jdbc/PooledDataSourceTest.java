@@ -24,9 +24,13 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PoolStatistics;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.Ignore;
@@ -75,6 +79,216 @@ public class PooledDataSourceTest extends BaseDataTest {
     }
   }
 
+  @Test
+  public void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnectionsWithConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(true);
+      runScript(ds, JPETSTORE_DDL);
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolMaximumCheckoutTime(10000);
+      ds.setPoolPingConnectionsNotUsedFor(1);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM PRODUCT");
+      ds.setPoolTimeToWait(10000);
+      List<Connection> connections = new ArrayList<Connection>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+      PoolStatistics statistics = ds.getPoolState().snapshot();
+      assertEquals(4, statistics.getRequestCount());
+      assertEquals(2, statistics.getIdleConnectionCount());
+      assertEquals(0, statistics.getWaitTimeP99());
+      assertTrue(statistics.getCheckoutTimeP50() <= statistics.getCheckoutTimeP999());
+      try {
+        connections.get(0).createStatement();
+        fail("A closed connection must not be usable once it is back in the pool");
+      } catch (SQLException e) {
+        // expected
+      }
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldHandOffConnectionsBetweenThreadsWithConcurrentBag() throws Exception {
+    final PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolConcurrentBagEnabled(true);
+    ds.setPoolMaximumActiveConnections(2);
+    ds.setPoolMaximumIdleConnections(2);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 50; j++) {
+            try (Connection c = ds.getConnection()) {
+              executeHsqldbQuery(c);
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertEquals(400, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 2);
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldHandOffConnectionsToManyWaitingThreads() throws Exception {
+    final PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolMaximumActiveConnections(3);
+    ds.setPoolMaximumIdleConnections(3);
+    ds.setPoolTimeToWait(100);
+    ExecutorService executor = Executors.newFixedThreadPool(200);
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (int i = 0; i < 200; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 10; j++) {
+            try (Connection c = ds.getConnection()) {
+              executeHsqldbQuery(c);
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+      assertEquals(2000, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertTrue(ds.getPoolState().getHadToWaitCount() > 0);
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldClaimOverdueConnectionWithConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(true);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(1);
+      ds.setPoolTimeToWait(10);
+      Connection leaked = ds.getConnection();
+      Thread.sleep(20);
+      Connection c = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      leaked.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      executeHsqldbQuery(c);
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldKeepMinimumIdleConnectionsInBackground() throws Exception {
+    for (boolean concurrentBag : new boolean[] { false, true }) {
+      PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+      try {
+        ds.setPoolConcurrentBagEnabled(concurrentBag);
+        ds.setPoolMinimumIdleConnections(2);
+        ds.setPoolHousekeepingInterval(10);
+        awaitIdleConnectionCount(ds, 2);
+        assertEquals(0, ds.getPoolState().getRequestCount());
+      } finally {
+        ds.setPoolHousekeepingInterval(0);
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  public void shouldStopHousekeepingOnForceCloseAllUntilNextCheckout() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolHousekeepingInterval(10);
+      awaitIdleConnectionCount(ds, 2);
+      ds.forceCloseAll();
+      Thread.sleep(100);
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      ds.getConnection().close();
+      awaitIdleConnectionCount(ds, 2);
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldEvictIdleConnectionsInBackground() throws Exception {
+    for (boolean concurrentBag : new boolean[] { false, true }) {
+      PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+      try {
+        ds.setPoolConcurrentBagEnabled(concurrentBag);
+        ds.setPoolMaximumIdleTime(50);
+        ds.setPoolHousekeepingInterval(10);
+        List<Connection> connections = new ArrayList<Connection>();
+        for (int i = 0; i < 3; i++) {
+          connections.add(ds.getConnection());
+        }
+        for (Connection c : connections) {
+          c.close();
+        }
+        assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+        awaitIdleConnectionCount(ds, 0);
+      } finally {
+        ds.setPoolHousekeepingInterval(0);
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  public void shouldCloseConnectionsExceedingMaximumLifetime() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumLifetime(1);
+      Connection c = ds.getConnection();
+      Thread.sleep(10);
+      c.close();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private void awaitIdleConnectionCount(PooledDataSource ds, int expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+    while (ds.getPoolState().getIdleConnectionCount() != expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, ds.getPoolState().getIdleConnectionCount());
+  }
+
   @Test
   public void shouldNotFailCallingToStringOverAnInvalidConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
@@ -136,6 +350,15 @@ public class PooledDataSourceTest extends BaseDataTest {
     con.close();
   }
 
+  private void executeHsqldbQuery(Connection con) throws SQLException {
+    try (PreparedStatement st = con.prepareStatement("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+         ResultSet rs = st.executeQuery()) {
+      while (rs.next()) {
+        assertEquals(1, rs.getInt(1));
+      }
+    }
+  }
+
   private void exexuteQuery(Connection con) throws SQLException {
     try (PreparedStatement st = con.prepareStatement("select 1");
          ResultSet rs = st.executeQuery()) {
@@ -18,6 +18,10 @@ package org.apache.ibatis.mapping;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
@@ -43,6 +47,28 @@ public class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  public void shouldSynchronizeDefaultEviction() throws Exception {
+    Cache cache = new CacheBuilder("test").build();
+
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
+  @Test
+  public void shouldNotSynchronizeConcurrentEviction() throws Exception {
+    Cache cache = new CacheBuilder("test").addDecorator(TinyLfuCache.class).size(10).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat((Object) unwrap(cache)).isInstanceOf(TinyLfuCache.class);
+  }
+
+  @Test
+  public void shouldSynchronizeConcurrentEvictionDecoratedByOtherEviction() throws Exception {
+    Cache cache = new CacheBuilder("test").addDecorator(TinyLfuCache.class).addDecorator(LruCache.class).size(10).build();
+
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache){
     Field field;
@@ -0,0 +1,96 @@
+/**
+ *    Copyright ${license.git.copyrightYears} the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class SimpleExpressionTest {
+
+  @Test
+  public void shouldParseSupportedSubset() {
+    for (String expression : Arrays.asList(
+        "username",
+        "username == 'cbegin'",
+        "title != null and title != ''",
+        "ids != null && ids.size() > 2",
+        "!ids.isEmpty() and (missing == null or missing.id gt 1)",
+        "author.id == 1 and author.username.length() == 6",
+        "_parameter.title == \"\"",
+        "not (id lte 0) || name.trim() neq 'xy'",
+        "id >= 1.5 or id < 10")) {
+      assertNotNull(expression, SimpleExpression.parse(expression));
+    }
+  }
+
+  @Test
+  public void shouldNotParseExpressionsLeftToOgnl() {
+    for (String expression : Arrays.asList(
+        "id + 1 == 2",
+        "username.startsWith('cb')",
+        "favouriteSection == @org.apache.ibatis.domain.blog.Section@NEWS",
+        "name == 'a'",
+        "id == 10L",
+        "id == 0x10",
+        "ids[0] == 1",
+        "ids.contains(1)",
+        "id in {1, 2}",
+        "(id).class",
+        "id ==",
+        "'unclosed")) {
+      assertNull(expression, SimpleExpression.parse(expression));
+    }
+  }
+
+  @Test
+  public void shouldEvaluateLikeOgnl() {
+    final Map<String, Object> parameterObject = new HashMap<String, Object>();
+    parameterObject.put("map", new HashMap<String, Object>());
+    parameterObject.put("ids", Arrays.asList(1, 2, 3));
+    parameterObject.put("array", new int[] { 1, 2 });
+    parameterObject.put("id", 5);
+    parameterObject.put("amount", new java.math.BigDecimal("5.0"));
+    final Map<String, Object> bindings = new DynamicContext(new Configuration(), parameterObject).getBindings();
+    for (String expression : Arrays.asList(
+        "map.size", "map.isEmpty", "ids.size", "ids.empty", "array.length",
+        "id == amount", "id <= 5", "amount >= 6", "!map", "ids and id")) {
+      assertNotNull(expression, SimpleExpression.parse(expression));
+      assertEquals(expression, OgnlCache.getValue(expression, bindings), SimpleExpression.getValue(expression, bindings));
+    }
+  }
+
+  @Test
+  public void shouldReportErrorsLikeOgnl() {
+    final Map<String, Object> bindings = new DynamicContext(new Configuration(), new HashMap<String, Object>()).getBindings();
+    try {
+      SimpleExpression.getValue("missing.id", bindings);
+      fail();
+    } catch (BuilderException e) {
+      assertEquals("Error evaluating expression 'missing.id'. Cause: ognl.OgnlException: source is null for getProperty(null, \"id\")", e.getMessage());
+    }
+  }
+
+}
@@ -16,9 +16,13 @@
 package org.apache.ibatis.submitted.blobtest;
 
 import java.util.List;
+import java.util.Map;
 
 public interface BlobMapper {
     int insert(BlobRecord blobRecord);
     List<BlobRecord> selectAll();
     List<BlobRecord> selectAllWithBlobObjects();
+    List<BlobRecord> selectAllWithLazyBlob();
+    List<BlobRecord> selectAllWithPlainBlob();
+    List<Map<String, Object>> selectAllAsMapsWithLazyBlob();
 }
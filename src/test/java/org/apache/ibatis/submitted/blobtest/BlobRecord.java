@@ -15,10 +15,19 @@
  */
 package org.apache.ibatis.submitted.blobtest;
 
-public class BlobRecord {
+import java.io.Serializable;
+
+public class BlobRecord implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+
     private int id;
     private byte[] blob;
 
+    public BlobRecord() {
+        super();
+    }
+
     public BlobRecord(int id, byte[] blob) {
         super();
         this.id = id;
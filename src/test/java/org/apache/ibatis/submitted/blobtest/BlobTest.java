@@ -16,13 +16,19 @@
 package org.apache.ibatis.submitted.blobtest;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.InputStream;
 import java.io.Reader;
+import java.lang.reflect.Field;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
@@ -90,6 +96,98 @@ public class BlobTest {
         }
     }
 
+    @Test
+    public void shouldDecodeLazyBlobOnFirstAccess() throws Exception {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            BlobMapper blobMapper = sqlSession.getMapper(BlobMapper.class);
+
+            byte[] myblob = new byte[] {1, 2, 3, 4, 5};
+            BlobRecord blobRecord = new BlobRecord(1, myblob);
+            int rows = blobMapper.insert(blobRecord);
+            assertEquals(1, rows);
+
+            List<BlobRecord> results = blobMapper.selectAllWithLazyBlob();
+
+            assertEquals(1, results.size());
+            BlobRecord result = results.get(0);
+            Field blobField = BlobRecord.class.getDeclaredField("blob");
+            blobField.setAccessible(true);
+            assertNull(blobField.get(result));
+            assertEquals (blobRecord.getId(), result.getId());
+            assertTrue (blobsAreEqual(blobRecord.getBlob(), result.getBlob()));
+        }
+    }
+
+    @Test
+    public void shouldDecodePlainBlobEagerlyWhenLazyLoadingIsEnabled() throws Exception {
+        final String resource = "org/apache/ibatis/submitted/blobtest/BlobMapper.xml";
+        final Configuration configuration = new Configuration(sqlSessionFactory.getConfiguration().getEnvironment());
+        configuration.setLazyLoadingEnabled(true);
+        try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+            new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+        try (SqlSession sqlSession = new SqlSessionFactoryBuilder().build(configuration).openSession()) {
+            BlobMapper blobMapper = sqlSession.getMapper(BlobMapper.class);
+
+            byte[] myblob = new byte[] {1, 2, 3, 4, 5};
+            BlobRecord blobRecord = new BlobRecord(1, myblob);
+            int rows = blobMapper.insert(blobRecord);
+            assertEquals(1, rows);
+
+            List<BlobRecord> results = blobMapper.selectAllWithPlainBlob();
+
+            assertEquals(1, results.size());
+            BlobRecord result = results.get(0);
+            assertEquals(BlobRecord.class, result.getClass());
+            Field blobField = BlobRecord.class.getDeclaredField("blob");
+            blobField.setAccessible(true);
+            assertTrue (blobsAreEqual(myblob, (byte[]) blobField.get(result)));
+        }
+    }
+
+    @Test
+    public void shouldDecodeLazyBlobEagerlyForMapResults() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            BlobMapper blobMapper = sqlSession.getMapper(BlobMapper.class);
+
+            byte[] myblob = new byte[] {1, 2, 3, 4, 5};
+            BlobRecord blobRecord = new BlobRecord(1, myblob);
+            int rows = blobMapper.insert(blobRecord);
+            assertEquals(1, rows);
+
+            List<Map<String, Object>> results = blobMapper.selectAllAsMapsWithLazyBlob();
+
+            assertEquals(1, results.size());
+            assertEquals(1, results.get(0).get("id"));
+            assertTrue (blobsAreEqual(myblob, (byte[]) results.get(0).get("blob")));
+        }
+    }
+
+    @Test
+    public void shouldDecodeLazyBlobOfResultsReadFromTheCache() {
+        byte[] myblob = new byte[] {1, 2, 3, 4, 5};
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            CachedBlobMapper blobMapper = sqlSession.getMapper(CachedBlobMapper.class);
+            assertEquals(1, blobMapper.insert(new BlobRecord(1, myblob)));
+            sqlSession.commit();
+        }
+
+        // the result is serialized into the cache before the lazy blob is read
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            assertEquals(1, sqlSession.getMapper(CachedBlobMapper.class).selectAllWithLazyBlob().size());
+            sqlSession.commit();
+        }
+
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            List<BlobRecord> results = sqlSession.getMapper(CachedBlobMapper.class).selectAllWithLazyBlob();
+
+            assertEquals(1, sqlSessionFactory.getConfiguration().getCache(CachedBlobMapper.class.getName()).getSize());
+            assertEquals(1, results.size());
+            assertEquals(1, results.get(0).getId());
+            assertTrue(blobsAreEqual(myblob, results.get(0).getBlob()));
+        }
+    }
+
     public static boolean blobsAreEqual(byte[] blob1, byte[] blob2) {
         if (blob1 == null) {
             return blob2 == null;
@@ -15,6 +15,7 @@
 --
 
 drop table blobtest.blobs is exists;
+drop table blobtest.cached_blobs if exists;
 drop schema blobtest if exists;
 
 create schema blobtest;
@@ -24,3 +25,9 @@ create table blobtest.blobs (
   blob longvarbinary,
   primary key (id)
 );
+
+create table blobtest.cached_blobs (
+  id int not null,
+  blob longvarbinary,
+  primary key (id)
+);
@@ -17,6 +17,7 @@ package org.apache.ibatis.submitted.cursor_simple;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
@@ -29,9 +30,12 @@ import org.junit.Test;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class CursorSimpleTest {
 
@@ -361,4 +365,63 @@ public class CursorSimpleTest {
         }
     }
 
+    @Test
+    public void shouldPrefetchUsersAndStreamThem() {
+        sqlSessionFactory.getConfiguration().setCursorPrefetchSize(2);
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsersPrefetched();
+            Assert.assertTrue(usersCursor instanceof PrefetchingCursor);
+            Assert.assertFalse(usersCursor.isOpen());
+
+            List<String> names;
+            try (Stream<User> users = usersCursor.stream()) {
+                names = users.map(User::getName).collect(Collectors.toList());
+            }
+            Assert.assertEquals(Arrays.asList("User1", "User2", "User3", "User4", "User5"), names);
+            Assert.assertEquals(4, usersCursor.getCurrentIndex());
+            Assert.assertTrue(usersCursor.isConsumed());
+        } finally {
+            sqlSessionFactory.getConfiguration().setCursorPrefetchSize(0);
+        }
+    }
+
+    @Test
+    public void shouldStopPrefetchingWhenTheStreamIsClosed() {
+        sqlSessionFactory.getConfiguration().setCursorPrefetchSize(1);
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsersPrefetched", null, new RowBounds(1, 3));
+            try (Stream<User> users = usersCursor.stream()) {
+                Assert.assertEquals("User2", users.findFirst().get().getName());
+                Assert.assertTrue(usersCursor.isOpen());
+            }
+            Assert.assertFalse(usersCursor.isOpen());
+            Assert.assertFalse(usersCursor.isConsumed());
+            Assert.assertEquals(1, usersCursor.getCurrentIndex());
+        } finally {
+            sqlSessionFactory.getConfiguration().setCursorPrefetchSize(0);
+        }
+    }
+
+    @Test
+    public void shouldPrefetchOnlyStatementsThatOptIn() throws IOException {
+        sqlSessionFactory.getConfiguration().setCursorPrefetchSize(2);
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+            Assert.assertFalse(usersCursor instanceof PrefetchingCursor);
+            usersCursor.close();
+        } finally {
+            sqlSessionFactory.getConfiguration().setCursorPrefetchSize(0);
+        }
+    }
+
+    @Test
+    public void shouldPrefetchWithTheDefaultSizeWhenNoneIsSet() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsersPrefetched();
+            Assert.assertTrue(usersCursor instanceof PrefetchingCursor);
+            List<String> names = new ArrayList<>();
+            usersCursor.forEach(user -> names.add(user.getName()));
+            Assert.assertEquals(Arrays.asList("User1", "User2", "User3", "User4", "User5"), names);
+        }
+    }
 }